@@ -0,0 +1,65 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.generator.MarketDataGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试使用的数据，由 MarketDataGenerator 在临时目录中生成一类产品（Funds）
+ */
+final class BenchmarkData {
+
+    static final String TYPE = "Funds";
+    static final LocalDate START = LocalDate.of(2020, 9, 1);
+    static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return 数据根目录，测试结束后用 delete 删除
+     */
+    static Path generate(int days, int symbols, int ticksPerMinute, List<String> frequencies) throws IOException {
+        Path root = Files.createTempDirectory("vvtr-bench-");
+        MarketDataGenerator.builder()
+                .root(root)
+                .types(List.of(TYPE))
+                .frequencies(frequencies)
+                .symbols(symbols)
+                .startDate(START)
+                .days(days)
+                .ticksPerMinute(ticksPerMinute)
+                .seed(SEED)
+                .build()
+                .generate();
+        return root;
+    }
+
+    static List<LocalDate> tradingDays(int days) {
+        return MarketDataGenerator.tradingDays(TYPE, START, days);
+    }
+
+    /**
+     * 位于中间的代码
+     */
+    static String middleSymbol(int symbols) {
+        return MarketDataGenerator.symbol(TYPE, symbols / 2);
+    }
+
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.generator.MarketDataGenerator;
+import com.example.mcp.util.CsvMerger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CsvMerger 中目录查找、整文件读取和字符串过滤的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvMergerBenchmark {
+
+    @Param({"20"})
+    public int days;
+
+    @Param({"50"})
+    public int symbols;
+
+    private Path root;
+    private Path dayRoot;
+    private Path minuteRoot;
+    private String start;
+    private String end;
+    private String symbol;
+    private Path dayFile;
+    private String dayText;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = BenchmarkData.generate(days, symbols, 0, List.of("1d", "1m"));
+        dayRoot = root.resolve(BenchmarkData.TYPE).resolve("1d");
+        minuteRoot = root.resolve(BenchmarkData.TYPE).resolve("1m");
+        List<LocalDate> tradingDays = BenchmarkData.tradingDays(days);
+        start = tradingDays.get(1 % days).format(DateTimeFormatter.BASIC_ISO_DATE);
+        end = tradingDays.get(Math.max(days - 2, 0)).format(DateTimeFormatter.BASIC_ISO_DATE);
+        symbol = BenchmarkData.middleSymbol(symbols);
+        dayFile = CsvMerger.findAllCsvFiles(dayRoot).get(0);
+        dayText = MarketDataGenerator.BAR_HEADER + "\n" + CsvMerger.parseCSVWithoutHeaderAsString(dayFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(root);
+    }
+
+    @Benchmark
+    public List<Path> findAllCsvFiles() throws IOException {
+        return CsvMerger.findAllCsvFiles(dayRoot);
+    }
+
+    @Benchmark
+    public List<Path> findAllCsvFilesByDate() throws IOException {
+        return CsvMerger.findAllCsvFiles(dayRoot, start, end);
+    }
+
+    @Benchmark
+    public List<Path> findAllCsvFilesBySymbol() throws IOException {
+        return CsvMerger.findAllCsvFiles(minuteRoot, start, end, symbol);
+    }
+
+    @Benchmark
+    public void parseAndCount(Blackhole bh) {
+        String text = CsvMerger.parseCSVWithoutHeaderAsString(dayFile);
+        bh.consume(text);
+        bh.consume(CsvMerger.countLines(text));
+    }
+
+    @Benchmark
+    public String filterData() {
+        return CsvMerger.filterData(dayText, symbol);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.model.KLineData;
+import com.example.mcp.model.KLineSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KLineData 逐行解析的开销，输入为 fromCsv 使用的列顺序：
+ * symbol,open,high,low,close,amount,volume,bob,eob,type
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KLineDataBenchmark {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"1000"})
+    public int lines;
+
+    private String[] rows;
+    private String text;
+    private String[] dates;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42L);
+        rows = new String[lines];
+        dates = new String[lines];
+        StringBuilder all = new StringBuilder();
+        LocalDateTime bob = LocalDateTime.of(2020, 9, 1, 9, 30);
+        for (int i = 0; i < lines; i++) {
+            double open = 1 + random.nextDouble() * 3;
+            double close = open * (1 + random.nextGaussian() * 0.001);
+            dates[i] = bob.format(TIME) + "+08:00";
+            rows[i] = "SHSE.510300," + open + "," + Math.max(open, close) + "," + Math.min(open, close) + ","
+                    + close + "," + random.nextInt(10_000_000) + "," + random.nextInt(1_000_000) + ","
+                    + dates[i] + "," + bob.plusMinutes(1).format(TIME) + "+08:00,1";
+            all.append(rows[i]).append('\n');
+            bob = bob.plusMinutes(1);
+        }
+        text = all.toString();
+    }
+
+    @Benchmark
+    public void fromCsv(Blackhole bh) {
+        for (String row : rows) {
+            bh.consume(KLineData.fromCsv(row));
+        }
+    }
+
+    @Benchmark
+    public KLineData[] parseCsvLines() {
+        return KLineData.parseCsvLines(text);
+    }
+
+    @Benchmark
+    public KLineSeries parseSeries() {
+        return KLineSeries.parseCsvLines(text);
+    }
+
+    @Benchmark
+    public void parseDate(Blackhole bh) {
+        for (String date : dates) {
+            bh.consume(KLineData.parseDate(date));
+        }
+    }
+}
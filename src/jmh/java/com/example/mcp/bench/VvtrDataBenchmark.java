@@ -0,0 +1,190 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.bar.BarPeriod;
+import com.example.mcp.bar.TickBarBuilder;
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.cursor.CursorStore;
+import com.example.mcp.cursor.ScanCursor;
+import com.example.mcp.indicator.IndicatorEngine;
+import com.example.mcp.model.DataBack;
+import com.example.mcp.model.DataLabel;
+import com.example.mcp.model.KLineData;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.repository.VvtrData;
+import com.example.mcp.util.CsvMerger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VvtrData 各查询方法的开销，每次调用都沿游标读完全部分页
+ * <p>
+ * cacheBytes 为 0 时每次都从磁盘读取；sidecar（.idx、.stats、.sym）在第一次扫描时生成，
+ * 预热阶段之后的测量都会用到。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VvtrDataBenchmark {
+
+    @Param({"10"})
+    public int days;
+
+    @Param({"20"})
+    public int symbols;
+
+    @Param({"10"})
+    public int ticksPerMinute;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"0", "268435456"})
+    public long cacheBytes;
+
+    @Param({"65536"})
+    public int pageBytes;
+
+    private Path root;
+    private CursorStore cursorStore;
+    private ScanPool scanPool;
+    private VvtrData vvtrData;
+    private List<Path> minutePaths;
+    private List<Path> dayPaths;
+    private List<Path> tickPaths;
+    private String symbol;
+    private String start;
+    private String end;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = BenchmarkData.generate(days, symbols, ticksPerMinute, List.of("1d", "1m", "tick"));
+        cursorStore = new CursorStore(600);
+        scanPool = new ScanPool(parallelism);
+        vvtrData = new VvtrData(cursorStore, new PartitionCache(cacheBytes), scanPool, pageBytes);
+        List<LocalDate> tradingDays = BenchmarkData.tradingDays(days);
+        LocalDate first = tradingDays.get(0);
+        LocalDate last = tradingDays.get(days - 1);
+        symbol = BenchmarkData.middleSymbol(symbols);
+        start = first + " 00:00:00";
+        end = last + " 23:59:59";
+        String firstDay = first.format(DateTimeFormatter.BASIC_ISO_DATE);
+        String lastDay = last.format(DateTimeFormatter.BASIC_ISO_DATE);
+        Path data = root.resolve(BenchmarkData.TYPE);
+        minutePaths = sorted(CsvMerger.findAllCsvFiles(data.resolve("1m"), firstDay, lastDay, symbol));
+        dayPaths = sorted(CsvMerger.findAllCsvFiles(data.resolve("1d"), firstDay, lastDay));
+        tickPaths = sorted(CsvMerger.findAllCsvFiles(data.resolve("tick"), firstDay, lastDay, symbol));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        scanPool.close();
+        BenchmarkData.delete(root);
+    }
+
+    @Benchmark
+    public void getMinuteData(Blackhole bh) {
+        DataLabel page = vvtrData.getMinuteData(minutePaths, 0, 0);
+        bh.consume(page.getReturnedData());
+        while (page.getCursor() != null) {
+            page = vvtrData.getMinuteData(next(page.getCursor()), 0);
+            bh.consume(page.getReturnedData());
+        }
+    }
+
+    @Benchmark
+    public void getDayData(Blackhole bh) {
+        DataBack page = vvtrData.getDayData(dayPaths, symbol, start, end);
+        bh.consume(page.getData());
+        while (page.getCursor() != null) {
+            page = vvtrData.getDayData(next(page.getCursor()));
+            bh.consume(page.getData());
+        }
+    }
+
+    @Benchmark
+    public void getMinData(Blackhole bh) {
+        DataBack page = vvtrData.getMinData(minutePaths, start, end);
+        bh.consume(page.getData());
+        while (page.getCursor() != null) {
+            page = vvtrData.getMinData(next(page.getCursor()));
+            bh.consume(page.getData());
+        }
+    }
+
+    @Benchmark
+    public void getTickData(Blackhole bh) {
+        DataLabel page = vvtrData.getTickData(tickPaths, start, end, 0, 0);
+        bh.consume(page.getReturnedData());
+        while (page.getCursor() != null) {
+            page = vvtrData.getTickData(next(page.getCursor()), 0);
+            bh.consume(page.getReturnedData());
+        }
+    }
+
+    @Benchmark
+    public void getTickDataProjected(Blackhole bh) {
+        ScanCursor cursor = ScanCursor.builder()
+                .kind("tick")
+                .paths(tickPaths)
+                .startTime(start)
+                .endTime(end)
+                .columns(List.of("created_at", "price", "last_volume"))
+                .build();
+        DataLabel page = vvtrData.getTickData(cursor, 0);
+        bh.consume(page.getReturnedData());
+        while (page.getCursor() != null) {
+            page = vvtrData.getTickData(next(page.getCursor()), 0);
+            bh.consume(page.getReturnedData());
+        }
+    }
+
+    @Benchmark
+    public List<KLineData> resample() {
+        return vvtrData.resample(minutePaths, start, end, BarPeriod.M30, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String indicators() {
+        return vvtrData.indicators(minutePaths, symbol, start, end,
+                new IndicatorEngine(List.of("sma:20", "ema:12", "rsi:14")), 1000);
+    }
+
+    @Benchmark
+    public String tickBars() {
+        return vvtrData.tickBars(tickPaths, start, end, TickBarBuilder.parse("volume:100000"), Integer.MAX_VALUE);
+    }
+
+    private static List<Path> sorted(List<Path> paths) {
+        return paths.stream().sorted().toList();
+    }
+
+    private ScanCursor next(String token) {
+        ScanCursor cursor = cursorStore.get(token);
+        if (cursor == null) {
+            throw new IllegalStateException("游标已失效: " + token);
+        }
+        return cursor;
+    }
+}
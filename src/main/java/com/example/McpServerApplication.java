@@ -2,6 +2,10 @@ package com.example;
 
 // 导入Spring AI和Spring Boot所需的类
 import com.example.mcp.demo.WeatherService;
+import com.example.mcp.metrics.TimedToolCallback;
+import com.example.mcp.metrics.VvtrMetrics;
+import com.example.mcp.resource.PartitionResources;
+import com.example.mcp.tool.ToolExecutor;
 import com.example.mcp.tool.Vvtr;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import groovy.util.logging.Slf4j;
@@ -9,20 +13,25 @@ import io.modelcontextprotocol.server.McpServerFeatures;
 import io.modelcontextprotocol.spec.McpSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import reactor.core.publisher.Mono;
 
 @Slf4j
 @SpringBootApplication
@@ -60,11 +69,49 @@ public class McpServerApplication {
 	}*/
 
 
+	// 同步模式(默认)：由 MCP SDK 在 boundedElastic 线程上执行工具，每个工具都记录耗时
 	@Bean
-	public ToolCallbackProvider vvtrTools(Vvtr vvtrDate) {
-		return MethodToolCallbackProvider.builder()
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "SYNC", matchIfMissing = true)
+	public ToolCallbackProvider vvtrTools(Vvtr vvtrDate, VvtrMetrics metrics) {
+		return ToolCallbackProvider.from(timed(vvtrDate, metrics));
+	}
+
+	// 异步模式：工具返回 Mono，在 ToolExecutor 的线程池上执行，多个调用可以同时进行，
+	// 查路径这类轻量工具与读取数据的工具使用不同的线程，不会排在长时间的扫描后面
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+	public List<McpServerFeatures.AsyncToolSpecification> vvtrAsyncTools(Vvtr vvtrDate, ToolExecutor toolExecutor, VvtrMetrics metrics) {
+		List<ToolCallback> callbacks = timed(vvtrDate, metrics);
+		List<McpServerFeatures.AsyncToolSpecification> specifications = new ArrayList<>();
+		for (ToolCallback callback : callbacks) {
+			McpSchema.Tool tool = McpToolUtils.toSyncToolSpecification(callback).tool();
+			boolean lookup = Vvtr.LOOKUP_TOOLS.contains(tool.name());
+			specifications.add(new McpServerFeatures.AsyncToolSpecification(tool, (exchange, arguments) -> {
+				Callable<McpSchema.CallToolResult> call = () -> callTool(callback, arguments);
+				return lookup ? toolExecutor.lookup(call) : toolExecutor.scan(call);
+			}));
+		}
+		return specifications;
+	}
+
+	private static List<ToolCallback> timed(Vvtr vvtrDate, VvtrMetrics metrics) {
+		ToolCallback[] callbacks = MethodToolCallbackProvider.builder()
 				.toolObjects(vvtrDate)
-				.build();
+				.build()
+				.getToolCallbacks();
+		return Arrays.stream(callbacks)
+				.<ToolCallback>map(callback -> new TimedToolCallback(callback, metrics))
+				.toList();
+	}
+
+	// 与同步模式一致：结果作为文本返回，异常信息作为错误结果返回
+	private static McpSchema.CallToolResult callTool(ToolCallback callback, Map<String, Object> arguments) {
+		try {
+			String result = callback.call(ModelOptionsUtils.toJsonString(arguments));
+			return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(result)), false);
+		} catch (Exception e) {
+			return new McpSchema.CallToolResult(List.of(new McpSchema.TextContent(e.getMessage())), true);
+		}
 	}
 
 
@@ -108,27 +155,62 @@ public class McpServerApplication {
 //		return resourceSpecifications;
 //	}
 //
+	// 数据分区：不在启动时为每个文件注册资源，按 vvtr://{type}/{freq}/{date}/{symbol} 读取时才查找文件，
+	// 可以按字节或行分段读取。SDK 只按完整 URI 匹配资源，这里注册说明资源，分段读取通过 read-financial-products-partition 工具
 	@Bean
-	public List<McpServerFeatures.SyncResourceSpecification> resources() throws IOException {
-		String resourceUri = "file:///" + "C:\\Users\\Administrator\\Desktop\\csv_files.txt";
-		var systemInfoResource = new McpSchema.Resource(resourceUri,
-				UUID.randomUUID().toString(),
-				"加密货币资源",
-				"text/plain",
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "SYNC", matchIfMissing = true)
+	public List<McpServerFeatures.SyncResourceSpecification> resources(PartitionResources partitionResources) {
+		return List.of(new McpServerFeatures.SyncResourceSpecification(partitionsResource(),
+				(exchange, request) -> readPartitions(partitionResources, request)));
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+	public List<McpServerFeatures.AsyncResourceSpecification> asyncResources(PartitionResources partitionResources) {
+		return List.of(new McpServerFeatures.AsyncResourceSpecification(partitionsResource(),
+				(exchange, request) -> Mono.fromCallable(() -> readPartitions(partitionResources, request))));
+	}
+
+	private static McpSchema.Resource partitionsResource() {
+		return new McpSchema.Resource(PartitionResources.RESOURCE_URI,
+				"vvtr-partitions",
+				"数据分区的资源模板 " + PartitionResources.TEMPLATE + " 及分段读取参数(offset/length,row/rows)",
+				"application/json",
 				null);
-		var resourceSpecification = new McpServerFeatures.SyncResourceSpecification(systemInfoResource, (exchange, request) -> {
-			try {
-				String csvContent = Files.readString(Path.of(resourceUri));
-				return new McpSchema.ReadResourceResult(
-						List.of(new McpSchema.TextResourceContents(request.uri(), "text/plain", csvContent))
-				);
-			} catch (IOException e) {
-				// 处理异常
-				throw new RuntimeException("Failed to read CSV file", e);
-			}
-		});
+	}
 
-		return List.of(resourceSpecification);
+	private static McpSchema.ReadResourceResult readPartitions(PartitionResources partitionResources,
+															   McpSchema.ReadResourceRequest request) {
+		return new McpSchema.ReadResourceResult(
+				List.of(new McpSchema.TextResourceContents(request.uri(), "application/json", partitionResources.json())));
+	}
+
+	// 运行指标：工具和各读取方法的耗时、读取的文件/字节/行数、分区缓存命中率，每次读取时生成
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "SYNC", matchIfMissing = true)
+	public List<McpServerFeatures.SyncResourceSpecification> metricsResources(VvtrMetrics metrics) {
+		return List.of(new McpServerFeatures.SyncResourceSpecification(metricsResource(),
+				(exchange, request) -> readMetrics(metrics, request)));
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+	public List<McpServerFeatures.AsyncResourceSpecification> metricsAsyncResources(VvtrMetrics metrics) {
+		return List.of(new McpServerFeatures.AsyncResourceSpecification(metricsResource(),
+				(exchange, request) -> Mono.fromCallable(() -> readMetrics(metrics, request))));
+	}
+
+	private static McpSchema.Resource metricsResource() {
+		return new McpSchema.Resource(VvtrMetrics.RESOURCE_URI,
+				"vvtr-metrics",
+				"服务运行指标：工具耗时(p50/p99)、读取的文件/字节/行数、分区缓存命中率",
+				"application/json",
+				null);
+	}
+
+	private static McpSchema.ReadResourceResult readMetrics(VvtrMetrics metrics, McpSchema.ReadResourceRequest request) {
+		return new McpSchema.ReadResourceResult(
+				List.of(new McpSchema.TextResourceContents(request.uri(), "application/json", metrics.json())));
 	}
 
 	@Bean
@@ -0,0 +1,118 @@
+package com.example.mcp.bar;
+
+import com.example.mcp.model.KLineSeries;
+import com.example.mcp.util.TimeDecoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把小周期 K 线逐根合并为大周期 K 线，每个代码只保留一根正在合并的 K 线
+ * <p>
+ * 合并规则：开盘价取第一根，收盘价取最后一根，最高/最低取极值，成交额和成交量累加。
+ * <ul>
+ *     <li>日内周期按交易时段切分：相邻两根 K 线间隔超过 SESSION_GAP（午休、收盘、夜盘前）视为新时段，
+ *     一根 K 线不会跨越时段。时段起点向下取整到半小时，9:30 开盘的 1h 线为 9:30-10:30、10:30-11:30、13:00-14:00、14:00-15:00</li>
+ *     <li>日线按 bob 所在的自然日切分，周线按 bob 所在的自然周（周一开始）切分</li>
+ * </ul>
+ * 时间使用 TimeDecoder 的毫秒数（本地时间当作 UTC）。合并完成的 K 线按列追加到 KLineSeries，不为每根 K 线创建对象。
+ */
+public class BarAggregator {
+
+    /**
+     * 相邻两根 K 线之间超过该间隔时视为新的交易时段
+     */
+    public static final long SESSION_GAP = 30 * 60_000L;
+
+    private static final long ANCHOR = 30 * 60_000L;
+
+    private final BarPeriod period;
+    private final Map<String, Bar> open = new HashMap<>();
+    private final KLineSeries.Builder completed = KLineSeries.builder();
+
+    public BarAggregator(BarPeriod period) {
+        this.period = period;
+    }
+
+    // 正在合并的一根 K 线
+    private static final class Bar {
+        long bucket;      // 所属区间的起点
+        long anchor;      // 所属交易时段的起点（日内周期）
+        long lastEob;
+        long bob;
+        long eob;
+        double open;
+        double high;
+        double low;
+        double close;
+        double amount;
+        double volume;
+        int count;
+    }
+
+    /**
+     * 加入一根小周期 K 线，同一代码的 K 线需要按时间顺序加入
+     */
+    public void add(String symbol, double open, double high, double low, double close,
+                    double amount, double volume, long bob, long eob) {
+        Bar bar = this.open.get(symbol);
+        long bucket;
+        long anchor = 0;
+        if (period.isIntraday()) {
+            anchor = bar != null && bob >= bar.lastEob && bob - bar.lastEob < SESSION_GAP
+                    ? bar.anchor
+                    : Math.floorDiv(bob, ANCHOR) * ANCHOR;
+            bucket = anchor + Math.floorDiv(bob - anchor, period.millis()) * period.millis();
+        } else if (period == BarPeriod.D1) {
+            bucket = TimeDecoder.day(bob) * TimeDecoder.MILLIS_PER_DAY;
+        } else {
+            // 1970-01-01 是周四，往前 3 天是周一
+            long week = Math.floorDiv(TimeDecoder.day(bob) + 3, 7);
+            bucket = (week * 7 - 3) * TimeDecoder.MILLIS_PER_DAY;
+        }
+        if (bar != null && (bar.bucket != bucket || bar.anchor != anchor)) {
+            complete(symbol, bar);
+            bar = null;
+        }
+        if (bar == null) {
+            bar = new Bar();
+            bar.bucket = bucket;
+            bar.anchor = anchor;
+            bar.bob = period.isIntraday() ? bucket : bob;
+            bar.open = open;
+            bar.high = high;
+            bar.low = low;
+            this.open.put(symbol, bar);
+        } else {
+            bar.high = Math.max(bar.high, high);
+            bar.low = Math.min(bar.low, low);
+        }
+        bar.close = close;
+        bar.amount += amount;
+        bar.volume += volume;
+        bar.eob = Math.max(bar.eob, eob);
+        bar.lastEob = eob;
+        bar.count++;
+    }
+
+    /**
+     * 已经合并完成的 K 线数量（不含正在合并的）
+     */
+    public int completedCount() {
+        return completed.size();
+    }
+
+    /**
+     * 结束合并，返回全部 K 线，按代码、时间排序
+     */
+    public KLineSeries finish() {
+        open.forEach(this::complete);
+        open.clear();
+        return completed.build().sorted();
+    }
+
+    // type 为合并的原始 K 线根数
+    private void complete(String symbol, Bar bar) {
+        completed.add(symbol, bar.open, bar.high, bar.low, bar.close, bar.amount, bar.volume, bar.bob, bar.eob, bar.count);
+    }
+}
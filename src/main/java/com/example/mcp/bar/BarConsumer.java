@@ -0,0 +1,11 @@
+package com.example.mcp.bar;
+
+/**
+ * 逐根接收 K 线，时间为 TimeDecoder 解码的毫秒
+ */
+@FunctionalInterface
+public interface BarConsumer {
+
+    void accept(String symbol, double open, double high, double low, double close,
+                double amount, double volume, long bob, long eob);
+}
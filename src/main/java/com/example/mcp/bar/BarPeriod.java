@@ -0,0 +1,61 @@
+package com.example.mcp.bar;
+
+import java.util.Locale;
+
+/**
+ * K 线周期
+ */
+public enum BarPeriod {
+    M1("1m", 1),
+    M5("5m", 5),
+    M15("15m", 15),
+    M30("30m", 30),
+    H1("1h", 60),
+    D1("1d", 1440),
+    W1("1w", 10080);
+
+    private final String label;
+    private final int minutes;
+
+    BarPeriod(String label, int minutes) {
+        this.label = label;
+        this.minutes = minutes;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public int minutes() {
+        return minutes;
+    }
+
+    public long millis() {
+        return minutes * 60_000L;
+    }
+
+    /**
+     * 日内周期按交易时段切分，日线和周线按自然日、自然周切分
+     */
+    public boolean isIntraday() {
+        return minutes < D1.minutes;
+    }
+
+    /**
+     * 解析 1m、5m、15m、30m、1h(60m)、1d、1w
+     *
+     * @throws IllegalArgumentException 不支持的周期
+     */
+    public static BarPeriod parse(String text) {
+        String value = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("60m")) {
+            return H1;
+        }
+        for (BarPeriod period : values()) {
+            if (period.label.equals(value)) {
+                return period;
+            }
+        }
+        throw new IllegalArgumentException("不支持的K线周期: " + text + ", 可选 1m,5m,15m,30m,1h,1d,1w");
+    }
+}
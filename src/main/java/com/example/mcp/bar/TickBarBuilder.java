@@ -0,0 +1,201 @@
+package com.example.mcp.bar;
+
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.Decimals;
+import com.example.mcp.util.TimeDecoder;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把 tick 逐笔合并为 K 线，支持三种切分方式：
+ * <ul>
+ *     <li>时间线：1s、5s、1m、5m 等，按 created_at 所在的时间区间切分，没有成交的区间不输出</li>
+ *     <li>成交量线：volume:N，累计成交量达到 N 时结束一根（单笔不拆分，最后一笔可能超出）</li>
+ *     <li>笔数线：trades:N，每 N 笔 tick 一根</li>
+ * </ul>
+ * 完成的 K 线保存在基本类型数组中，不为每根 K 线创建对象。代码变化时当前 K 线立即结束。
+ */
+public class TickBarBuilder {
+
+    public enum Type {
+        TIME, VOLUME, TRADES
+    }
+
+    private static final DateTimeFormatter OUTPUT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final Type type;
+    private final long size;  // 时间线为毫秒，成交量线为成交量，笔数线为笔数
+
+    // 完成的 K 线，按列存放
+    private final List<String> symbols = new ArrayList<>();
+    private long[] bobs = new long[64];
+    private long[] eobs = new long[64];
+    private double[] opens = new double[64];
+    private double[] highs = new double[64];
+    private double[] lows = new double[64];
+    private double[] closes = new double[64];
+    private double[] volumes = new double[64];
+    private double[] amounts = new double[64];
+    private int[] trades = new int[64];
+    private int count;
+
+    // 正在合并的 K 线
+    private String symbol;
+    private long bucket;
+    private long bob;
+    private long eob;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double volume;
+    private double amount;
+    private int tradeCount;
+
+    public TickBarBuilder(Type type, long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("K线大小必须大于0");
+        }
+        this.type = type;
+        this.size = size;
+    }
+
+    /**
+     * 解析 K 线写法：1s、30s、1m、5m、1h，volume:10000，trades:100
+     *
+     * @throws IllegalArgumentException 无法解析
+     */
+    public static TickBarBuilder parse(String spec) {
+        String value = spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (value.startsWith("volume:")) {
+                return new TickBarBuilder(Type.VOLUME, Long.parseLong(value.substring(7).trim()));
+            }
+            if (value.startsWith("trades:")) {
+                return new TickBarBuilder(Type.TRADES, Long.parseLong(value.substring(7).trim()));
+            }
+            if (value.length() > 1) {
+                long n = Long.parseLong(value.substring(0, value.length() - 1));
+                switch (value.charAt(value.length() - 1)) {
+                    case 's':
+                        return new TickBarBuilder(Type.TIME, n * 1000L);
+                    case 'm':
+                        return new TickBarBuilder(Type.TIME, n * 60_000L);
+                    case 'h':
+                        return new TickBarBuilder(Type.TIME, n * 3_600_000L);
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // 统一在下面抛出
+        }
+        throw new IllegalArgumentException("无法解析K线类型: " + spec + ", eg:1s,1m,volume:10000,trades:100");
+    }
+
+    /**
+     * 加入一笔 tick，同一代码需要按时间顺序加入
+     *
+     * @param time   created_at，TimeDecoder 解码的毫秒
+     * @param price  成交价
+     * @param volume 本笔成交量
+     * @param amount 本笔成交额
+     */
+    public void add(String symbol, long time, double price, double volume, double amount) {
+        long key = type == Type.TIME ? Math.floorDiv(time, size) : 0L;
+        if (tradeCount > 0 && (!symbol.equals(this.symbol) || (type == Type.TIME && key != bucket))) {
+            complete();
+        }
+        if (tradeCount == 0) {
+            this.symbol = symbol;
+            bucket = key;
+            bob = type == Type.TIME ? key * size : time;
+            open = price;
+            high = price;
+            low = price;
+            this.volume = 0;
+            this.amount = 0;
+        }
+        high = Math.max(high, price);
+        low = Math.min(low, price);
+        close = price;
+        eob = type == Type.TIME ? (key + 1) * size : time;
+        this.volume += volume;
+        this.amount += amount;
+        tradeCount++;
+        if ((type == Type.VOLUME && this.volume >= size) || (type == Type.TRADES && tradeCount >= size)) {
+            complete();
+        }
+    }
+
+    private void complete() {
+        if (count == bobs.length) {
+            int capacity = count * 2;
+            bobs = Arrays.copyOf(bobs, capacity);
+            eobs = Arrays.copyOf(eobs, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            trades = Arrays.copyOf(trades, capacity);
+        }
+        symbols.add(symbol);
+        bobs[count] = bob;
+        eobs[count] = eob;
+        opens[count] = open;
+        highs[count] = high;
+        lows[count] = low;
+        closes[count] = close;
+        volumes[count] = volume;
+        amounts[count] = amount;
+        trades[count] = tradeCount;
+        count++;
+        tradeCount = 0;
+    }
+
+    /**
+     * 结束当前 K 线
+     */
+    public void finish() {
+        if (tradeCount > 0) {
+            complete();
+        }
+    }
+
+    /**
+     * 已完成的 K 线数量
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 输出为 CSV：symbol,bob,eob,open,high,low,close,volume,amount,vwap,trades
+     * <p>
+     * 成交量为 0 时 vwap 为空。时间线的 bob/eob 为区间边界，成交量线和笔数线为第一笔和最后一笔的时间。
+     */
+    public void writeCsv(ByteSink out) {
+        out.append("symbol,bob,eob,open,high,low,close,volume,amount,vwap,trades\n");
+        for (int i = 0; i < count; i++) {
+            out.append(symbols.get(i)).append(',')
+                    .append(TimeDecoder.toLocalDateTime(bobs[i]).format(OUTPUT_TIME)).append(',')
+                    .append(TimeDecoder.toLocalDateTime(eobs[i]).format(OUTPUT_TIME)).append(',')
+                    .append(Decimals.format(opens[i])).append(',')
+                    .append(Decimals.format(highs[i])).append(',')
+                    .append(Decimals.format(lows[i])).append(',')
+                    .append(Decimals.format(closes[i])).append(',')
+                    .append(Decimals.format(volumes[i])).append(',')
+                    .append(Decimals.format(amounts[i])).append(',');
+            if (volumes[i] > 0) {
+                out.append(Decimals.format(amounts[i] / volumes[i]));
+            }
+            out.append(',').append(Integer.toString(trades[i])).append('\n');
+        }
+    }
+}
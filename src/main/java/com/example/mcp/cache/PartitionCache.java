@@ -0,0 +1,251 @@
+package com.example.mcp.cache;
+
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.util.CsvLineReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 最近读取的 CSV 分区缓存，按字节数限制总大小
+ * <p>
+ * 缓存的是文件的原始字节（一个 byte[]），不转换成 String，读取时通过 CsvLineReader.of 逐行遍历，
+ * 字节偏移与磁盘上的文件一致，游标可以在缓存和磁盘之间通用。
+ * 解码后的列式数据已经由 .vcol 文件提供（见 VcolFile），这里不再缓存另一份。
+ * <ul>
+ *     <li>以路径为键，每次读取前比较文件大小和修改时间，文件变化后重新加载</li>
+ *     <li>超过预算时按最近最少使用淘汰</li>
+ *     <li>定位或按范围读取只使用已缓存的内容，否则直接读磁盘，不会为了读一小段把整个文件读入内存</li>
+ *     <li>从头读取的文件真正读到末尾（没有被页大小等预算提前截断）时才记录下来，
+ *     之后再从头读取时才放入缓存；一次性扫描大范围数据时不会把常用的分区挤出去</li>
+ *     <li>多个线程同时加载同一个文件时只读取一次，其余线程等待结果</li>
+ * </ul>
+ */
+@Component
+public class PartitionCache {
+
+    private static final int SEEN_SIZE = 4096;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // 访问顺序的 LinkedHashMap，最久未使用的在最前面；由 this 加锁
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // 从头完整读取过一次但还没有缓存的文件
+    private final LinkedHashMap<Path, Boolean> seen = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+            return size() > SEEN_SIZE;
+        }
+    };
+    // 正在加载的文件，完成后移除
+    private final Map<Path, CompletableFuture<byte[]>> loading = new HashMap<>();
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(long size, long mtime, byte[] data) {
+    }
+
+    /**
+     * @param maxBytes 缓存的总字节数，为 0 时不缓存
+     */
+    public PartitionCache(@Value("${vvtr.cache.max-bytes:268435456}") long maxBytes) {
+        this.maxBytes = Math.max(maxBytes, 0L);
+        // 单个文件最多占用预算的四分之一，太大的文件直接从磁盘读取
+        this.maxEntryBytes = Math.min(this.maxBytes / 4, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * 打开文件并定位到 offset：已缓存时从内存读取，否则从磁盘读取，不加载到缓存
+     *
+     * @param offset 某一行的行首，0 表示文件开头（包括表头）
+     */
+    public CsvLineReader open(Path path, long offset) throws IOException {
+        return open(path, offset, false);
+    }
+
+    /**
+     * 打开文件并定位到 offset
+     *
+     * @param offset    某一行的行首，0 表示文件开头（包括表头）
+     * @param wholeFile 调用方从头扫描文件，没有预算截断时会读到末尾；为 true 且 offset 为 0 时才可能放入缓存
+     */
+    public CsvLineReader open(Path path, long offset, boolean wholeFile) throws IOException {
+        boolean fromStart = wholeFile && offset == 0L;
+        byte[] data = get(path, fromStart);
+        if (data != null) {
+            return CsvLineReader.of(data, data.length, offset);
+        }
+        CsvLineReader reader = CsvLineReader.open(path, offset);
+        if (fromStart && maxEntryBytes > 0) {
+            reader.whenFinished(() -> finished(path));
+        }
+        return reader;
+    }
+
+    // 从磁盘完整读取过一次的文件，下一次从头读取时放入缓存
+    private synchronized void finished(Path path) {
+        if (!entries.containsKey(path)) {
+            seen.put(path, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 文件的完整内容，没有缓存（或不应缓存）时返回 null
+     *
+     * @param load 没有缓存时是否加载
+     */
+    byte[] get(Path path, boolean load) {
+        Sidecars.Version version = Sidecars.version(path);
+        if (version == null) {
+            return null;
+        }
+        CompletableFuture<byte[]> future;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null) {
+                if (entry.size() == version.size() && entry.mtime() == version.mtime()) {
+                    hits.incrementAndGet();
+                    return entry.data();
+                }
+                remove(path);
+            }
+            misses.incrementAndGet();
+            if (!load || version.size() > maxEntryBytes) {
+                return null;
+            }
+            future = loading.get(path);
+            if (future == null) {
+                if (!seen.containsKey(path)) {
+                    return null;
+                }
+                future = new CompletableFuture<>();
+                loading.put(path, future);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            // 其他线程正在加载，在锁外等待它的结果
+            return future.join();
+        }
+        byte[] data = null;
+        try {
+            data = load(path, version);
+        } finally {
+            synchronized (this) {
+                loading.remove(path);
+            }
+            future.complete(data);
+        }
+        return data;
+    }
+
+    private byte[] load(Path path, Sidecars.Version version) {
+        byte[] data;
+        try {
+            data = read(path, version.size());
+        } catch (IOException e) {
+            System.err.println("缓存CSV文件失败: " + e.getMessage());
+            return null;
+        }
+        // 读取期间文件发生变化时不缓存
+        Sidecars.Version after = Sidecars.version(path);
+        if (after == null || !after.equals(version) || data.length != version.size()) {
+            return null;
+        }
+        put(path, new Entry(version.size(), version.mtime(), data));
+        loads.incrementAndGet();
+        return data;
+    }
+
+    private synchronized void put(Path path, Entry entry) {
+        remove(path);
+        seen.remove(path);
+        entries.put(path, entry);
+        weight += entry.data().length;
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (weight > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Entry> eldest = it.next();
+            weight -= eldest.getValue().data().length;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            weight -= removed.data().length;
+        }
+    }
+
+    private static byte[] read(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ScanMetrics.fileOpened();
+            byte[] data = new byte[(int) size];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            ScanMetrics.bytesRead(buffer.position());
+            return buffer.hasRemaining() ? new byte[0] : data;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        seen.clear();
+        weight = 0;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long loadCount() {
+        return loads.get();
+    }
+
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionCache[entries=" + size() + ", bytes=" + weight() + "/" + maxBytes
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.mcp.columnar;
+
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.TimeDecoder;
+
+import java.util.Arrays;
+
+/**
+ * 时间列的写法，由列中第一个非空值确定，例如 "2020-09-04 09:31:00+08:00"
+ * <p>
+ * 列存文件只保存 epoch 毫秒，输出时把日期、时间填回模板中对应的数字位置，
+ * 分隔符、毫秒位数和时区后缀都沿用模板。转换时逐个值检查能否原样还原，不能还原的列不按时间列保存。
+ */
+final class TimeTemplate {
+
+    private final byte[] template;
+    private final int fields;        // 3: 只有日期, 5: 到分钟, 6: 到秒
+    private final int fractionDigits;
+
+    private TimeTemplate(byte[] template, int fields, int fractionDigits) {
+        this.template = template;
+        this.fields = fields;
+        this.fractionDigits = fractionDigits;
+    }
+
+    /**
+     * @return 不是 TimeDecoder 支持的时间写法时返回 null
+     */
+    static TimeTemplate of(byte[] b, int off, int len) {
+        if (TimeDecoder.decode(b, off, len) == TimeDecoder.INVALID) {
+            return null;
+        }
+        int fields = 3;
+        int fraction = 0;
+        int p = off + 10;
+        int end = off + len;
+        if (p < end && (b[p] == ' ' || b[p] == 'T')) {
+            fields = 5;
+            p += 6;
+            if (p < end && b[p] == ':') {
+                fields = 6;
+                p += 3;
+                if (p < end && b[p] == '.') {
+                    p++;
+                    while (p < end && b[p] >= '0' && b[p] <= '9') {
+                        fraction++;
+                        p++;
+                    }
+                }
+            }
+        }
+        return new TimeTemplate(Arrays.copyOfRange(b, off, end), fields, fraction);
+    }
+
+    byte[] bytes() {
+        return template;
+    }
+
+    /**
+     * 值能否按模板原样还原
+     */
+    boolean matches(byte[] b, int off, int len) {
+        long millis = TimeDecoder.decode(b, off, len);
+        if (millis == TimeDecoder.INVALID || len != template.length) {
+            return false;
+        }
+        byte[] rendered = new byte[len];
+        if (!render(millis, rendered, 0)) {
+            return false;
+        }
+        return Arrays.equals(rendered, 0, len, b, off, off + len);
+    }
+
+    /**
+     * 把 millis 按模板追加到 out
+     */
+    void append(long millis, ByteSink out) {
+        int base = out.size();
+        out.append(template);
+        render(millis, out.buffer(), base);
+    }
+
+    private boolean render(long millis, byte[] out, int base) {
+        long days = Math.floorDiv(millis, TimeDecoder.MILLIS_PER_DAY);
+        long ms = Math.floorMod(millis, TimeDecoder.MILLIS_PER_DAY);
+        // 1970-01-01 起的天数到公历日期，与 TimeDecoder.daysFromCivil 互逆
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return false;
+        }
+        System.arraycopy(template, 0, out, base, template.length);
+        digits(out, base, (int) year, 4);
+        digits(out, base + 5, month, 2);
+        digits(out, base + 8, day, 2);
+        if (fields >= 5) {
+            digits(out, base + 11, (int) (ms / 3_600_000L), 2);
+            digits(out, base + 14, (int) (ms / 60_000L % 60), 2);
+        }
+        if (fields == 6) {
+            digits(out, base + 17, (int) (ms / 1000L % 60), 2);
+            int millisOfSecond = (int) (ms % 1000L);
+            for (int k = 0; k < fractionDigits; k++) {
+                int digit = k == 0 ? millisOfSecond / 100 : k == 1 ? millisOfSecond / 10 % 10 : k == 2 ? millisOfSecond % 10 : 0;
+                out[base + 20 + k] = (byte) ('0' + digit);
+            }
+        }
+        return true;
+    }
+
+    private static void digits(byte[] out, int p, int value, int width) {
+        for (int k = width - 1; k >= 0; k--) {
+            out[p + k] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.mcp.columnar;
+
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.startup.FolderInitializer;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 把数据目录中已有的 CSV 批量转换为列存文件，每个 CSV 旁边生成一个 .vcol：
+ * <pre>
+ * root/A-shares/1m/202009/20200904/SHSE.600000.csv
+ * root/A-shares/1m/202009/20200904/SHSE.600000.csv.vcol
+ * </pre>
+ * 按文件并行转换，已经是最新的文件不再转换。CSV 保持不变，之后更新的 CSV 在重新转换之前按 CSV 读取。
+ * <p>
+ * 命令行（参数均可省略，root 默认为 -Dapi.data.path）：
+ * <pre>
+ * java -cp mcp.jar -Dloader.main=com.example.mcp.columnar.VcolConverter \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --root=/data --types=A-shares,Funds --frequencies=1d,1m --threads=8 --force=false
+ * </pre>
+ */
+@Builder
+public class VcolConverter {
+
+    private final Path root;
+    @Builder.Default
+    private final List<String> types = FolderInitializer.FOLDERS;
+    @Builder.Default
+    private final List<String> frequencies = FolderInitializer.FREQUENCIES;
+    @Builder.Default
+    private final int threads = Runtime.getRuntime().availableProcessors();
+    @Builder.Default
+    private final boolean force = false;    // 重新转换已是最新的文件
+
+    /**
+     * 转换结果
+     *
+     * @param csvBytes  转换的 CSV 字节数
+     * @param vcolBytes 生成的列存文件字节数
+     */
+    public record Summary(long converted, long upToDate, long skipped, long csvBytes, long vcolBytes, long millis) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        VcolConverterBuilder builder = builder();
+        String root = System.getProperty("api.data.path");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("参数格式为 --name=value: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "root" -> root = value;
+                case "types" -> builder.types(List.of(value.split(",")));
+                case "frequencies" -> builder.frequencies(List.of(value.split(",")));
+                case "threads" -> builder.threads(Integer.parseInt(value));
+                case "force" -> builder.force(Boolean.parseBoolean(value));
+                default -> throw new IllegalArgumentException("不支持的参数: " + name);
+            }
+        }
+        if (root == null || root.isEmpty()) {
+            throw new IllegalArgumentException("请通过 --root 或 -Dapi.data.path 指定数据目录");
+        }
+        Summary summary = builder.root(Path.of(root)).build().convert();
+        System.out.printf("转换 %d 个文件（%.1f MB -> %.1f MB），已是最新 %d 个，跳过 %d 个，用时 %d ms%n",
+                summary.converted(), summary.csvBytes() / 1048576.0, summary.vcolBytes() / 1048576.0,
+                summary.upToDate(), summary.skipped(), summary.millis());
+    }
+
+    /**
+     * 转换 root/type/frequency 下的全部 CSV
+     *
+     * @throws IllegalArgumentException 参数无效
+     */
+    public Summary convert() throws IOException {
+        if (root == null) {
+            throw new IllegalArgumentException("数据目录不能为空");
+        }
+        for (String frequency : frequencies) {
+            if (!FolderInitializer.FREQUENCIES.contains(frequency)) {
+                throw new IllegalArgumentException("不支持的频率: " + frequency + ", 可选 " + FolderInitializer.FREQUENCIES);
+            }
+        }
+        long begin = System.nanoTime();
+        List<Path> files = new ArrayList<>();
+        for (String type : types) {
+            for (String frequency : frequencies) {
+                Path dir = root.resolve(type).resolve(frequency);
+                if (!Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (Stream<Path> walk = Files.walk(dir)) {
+                    walk.filter(path -> path.getFileName().toString().toLowerCase().endsWith(".csv"))
+                            .filter(Files::isRegularFile)
+                            .sorted()
+                            .forEach(files::add);
+                }
+            }
+        }
+
+        LongAdder converted = new LongAdder();
+        LongAdder upToDate = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        LongAdder csvBytes = new LongAdder();
+        LongAdder vcolBytes = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (Path csv : files) {
+                futures.add(pool.submit(() -> {
+                    switch (VcolWriter.write(csv, force)) {
+                        case CONVERTED -> {
+                            converted.increment();
+                            csvBytes.add(size(csv));
+                            vcolBytes.add(size(Sidecars.path(csv, VcolFile.SUFFIX)));
+                        }
+                        case UP_TO_DATE -> upToDate.increment();
+                        case SKIPPED -> skipped.increment();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("转换被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("转换失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(converted.sum(), upToDate.sum(), skipped.sum(), csvBytes.sum(), vcolBytes.sum(),
+                (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
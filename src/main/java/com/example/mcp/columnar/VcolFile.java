@@ -0,0 +1,431 @@
+package com.example.mcp.columnar;
+
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.SchemaRegistry;
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.TimeDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CSV 分区的列存副本（&lt;name&gt;.csv.vcol），通过内存映射读取
+ * <p>
+ * 由 VcolWriter 一次性转换生成，CSV 仍是原始数据：CSV 的大小或修改时间变化后列存文件失效，
+ * 查询回到读取 CSV。每列按类型保存：
+ * <ul>
+ *     <li>TIME：epoch 毫秒（long），空值为 TimeDecoder.INVALID，输出时按 TimeTemplate 还原写法</li>
+ *     <li>LONG / DOUBLE：long / double，DOUBLE 的空值为 NaN</li>
+ *     <li>DICT：字典编号（int），字典按首次出现的顺序保存原始字段</li>
+ *     <li>RAW：原始字段字节（含引号）</li>
+ * </ul>
+ * 每 {@link #BLOCK_ROWS} 行为一块，文件末尾的 footer 记录每块每列的偏移、最小值、最大值和空值数，
+ * 查询先按块统计跳过整块。所有列还原后与 CSV 的每一行逐字节相同，输出结果与读取 CSV 一致。
+ * <p>
+ * 文件布局（小端）：
+ * <pre>
+ * header: magic, version, csvSize, csvMtime, rowCount, blockRows, columnCount, 表头, 每列的类型和模板/字典
+ * blocks: 按块、按列依次存放
+ * footer: blockCount, 每块每列 (offset int, min long, max long, nulls int)
+ * trailer: footerOffset long, magic int
+ * </pre>
+ */
+public final class VcolFile {
+
+    public static final String SUFFIX = ".vcol";
+    public static final int BLOCK_ROWS = 4096;
+
+    static final int MAGIC = 0x4C4F4356; // "VCOL"
+    static final int VERSION = 1;
+    static final int TRAILER_BYTES = 12;
+
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<Path, VcolFile> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, VcolFile> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * 列的存储类型
+     */
+    public enum Type {
+        TIME, LONG, DOUBLE, DICT, RAW
+    }
+
+    private final ByteBuffer data;
+    private final long csvSize;
+    private final long csvMtime;
+    private final long rowCount;
+    private final int blockRows;
+    private final CsvSchema schema;
+    private final Type[] types;
+    private final TimeTemplate[] templates;
+    private final byte[][][] dictionaries;  // 原始字段字节
+    private final String[][] dictionaryValues; // 去掉引号后的内容
+    private final int blockCount;
+    private final int footerOffset;
+    // 按 block * columnCount + column 存放
+    private final int[] offsets;
+    private final long[] mins;
+    private final long[] maxs;
+    private final int[] nulls;
+
+    private VcolFile(ByteBuffer data) {
+        this.data = data;
+        int p = 4;
+        if (data.getInt(0) != MAGIC || data.getInt(p) != VERSION) {
+            throw new IllegalArgumentException("不是列存文件或版本不支持");
+        }
+        p += 4;
+        csvSize = data.getLong(p);
+        csvMtime = data.getLong(p + 8);
+        rowCount = data.getLong(p + 16);
+        blockRows = data.getInt(p + 24);
+        int columnCount = data.getInt(p + 28);
+        p += 32;
+        byte[] header = bytes(data, p + 4, data.getInt(p));
+        p += 4 + header.length;
+        schema = SchemaRegistry.intern(new String(header, StandardCharsets.UTF_8));
+
+        types = new Type[columnCount];
+        templates = new TimeTemplate[columnCount];
+        dictionaries = new byte[columnCount][][];
+        dictionaryValues = new String[columnCount][];
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        for (int c = 0; c < columnCount; c++) {
+            types[c] = Type.values()[data.get(p++)];
+            if (types[c] == Type.TIME) {
+                byte[] template = bytes(data, p + 4, data.getInt(p));
+                p += 4 + template.length;
+                templates[c] = TimeTemplate.of(template, 0, template.length);
+            } else if (types[c] == Type.DICT) {
+                int size = data.getInt(p);
+                p += 4;
+                dictionaries[c] = new byte[size][];
+                dictionaryValues[c] = new String[size];
+                for (int id = 0; id < size; id++) {
+                    byte[] entry = bytes(data, p + 4, data.getInt(p));
+                    p += 4 + entry.length;
+                    dictionaries[c][id] = entry;
+                    dictionaryValues[c][id] = tokenizer.reset(entry, 0, entry.length, 1).fieldAsString(0);
+                }
+            }
+        }
+
+        int limit = data.capacity();
+        footerOffset = (int) data.getLong(limit - TRAILER_BYTES);
+        blockCount = data.getInt(footerOffset);
+        offsets = new int[blockCount * columnCount];
+        mins = new long[offsets.length];
+        maxs = new long[offsets.length];
+        nulls = new int[offsets.length];
+        p = footerOffset + 4;
+        for (int k = 0; k < offsets.length; k++) {
+            offsets[k] = data.getInt(p);
+            mins[k] = data.getLong(p + 4);
+            maxs[k] = data.getLong(p + 12);
+            nulls[k] = data.getInt(p + 20);
+            p += 24;
+        }
+    }
+
+    /**
+     * 打开 CSV 的列存文件
+     *
+     * @return 没有列存文件、已失效或无法读取时返回 null，调用方读取 CSV
+     */
+    public static VcolFile open(Path csv) {
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return null;
+        }
+        VcolFile file;
+        synchronized (CACHE) {
+            file = CACHE.get(csv);
+        }
+        if (file != null && file.matches(version)) {
+            return file;
+        }
+        Path sidecar = Sidecars.path(csv, SUFFIX);
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        file = map(sidecar);
+        if (file == null || !file.matches(version)) {
+            return null;
+        }
+        synchronized (CACHE) {
+            CACHE.put(csv, file);
+        }
+        return file;
+    }
+
+    /**
+     * 列存文件存在且与 CSV 一致，只读取文件头
+     */
+    public static boolean isCurrent(Path csv) {
+        Sidecars.Version version = Sidecars.version(csv);
+        Path sidecar = Sidecars.path(csv, SUFFIX);
+        if (version == null || !Files.isRegularFile(sidecar)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(head, 0) == head.capacity() && head.getInt(0) == MAGIC && head.getInt(4) == VERSION
+                    && head.getLong(8) == version.size() && head.getLong(16) == version.mtime();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static VcolFile map(Path sidecar) {
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            ScanMetrics.fileOpened();
+            if (buffer.getInt((int) size - 4) != MAGIC) {
+                return null;
+            }
+            return new VcolFile(buffer);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("读取列存文件失败: " + sidecar + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean matches(Sidecars.Version version) {
+        return csvSize == version.size() && csvMtime == version.mtime();
+    }
+
+    private static byte[] bytes(ByteBuffer data, int offset, int length) {
+        byte[] b = new byte[length];
+        data.get(offset, b);
+        return b;
+    }
+
+    public CsvSchema schema() {
+        return schema;
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public Type type(int column) {
+        return types[column];
+    }
+
+    // ---------------------------------------------------------------- 块
+
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * row 所在的块，row 超出行数时返回 blockCount()
+     */
+    public int block(long row) {
+        return row >= rowCount ? blockCount : (int) (row / blockRows);
+    }
+
+    public long blockStart(int block) {
+        return (long) block * blockRows;
+    }
+
+    public int blockRows(int block) {
+        return (int) Math.min(blockRows, rowCount - blockStart(block));
+    }
+
+    /**
+     * 块在文件中占用的字节数
+     */
+    public long blockBytes(int block) {
+        int next = block + 1 < blockCount ? offsets[(block + 1) * types.length] : footerOffset;
+        return next - offsets[block * types.length];
+    }
+
+    /**
+     * 块内的最小值：TIME/LONG 为有效值的最小值（没有时为 TimeDecoder.INVALID），
+     * DOUBLE 为 Double.doubleToLongBits，DICT 为最小的编号，RAW 为 0
+     */
+    public long min(int block, int column) {
+        return mins[block * types.length + column];
+    }
+
+    public long max(int block, int column) {
+        return maxs[block * types.length + column];
+    }
+
+    /**
+     * 块内的空值数：TIME 为无法解析的时间，DOUBLE 为空字段
+     */
+    public int nulls(int block, int column) {
+        return nulls[block * types.length + column];
+    }
+
+    /**
+     * 字典列中内容等于 value 的编号
+     *
+     * @return 不是字典列时返回 null
+     */
+    public boolean[] matching(int column, byte[] value) {
+        if (types[column] != Type.DICT) {
+            return null;
+        }
+        byte[][] dictionary = dictionaries[column];
+        boolean[] ids = new boolean[dictionary.length];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = valueEquals(dictionary[id], value);
+        }
+        return ids;
+    }
+
+    /**
+     * 块内是否可能有 ids 中的编号
+     */
+    public boolean containsAny(int block, int column, boolean[] ids) {
+        int max = (int) max(block, column);
+        for (int id = (int) min(block, column); id <= max; id++) {
+            if (ids[id]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- 值
+
+    private int position(int column, long row, int width) {
+        int block = (int) (row / blockRows);
+        int index = (int) (row - (long) block * blockRows);
+        return offsets[block * types.length + column] + index * width;
+    }
+
+    /**
+     * 时间列的 epoch 毫秒，与 TimeDecoder.decode 一致，无法解析时返回 TimeDecoder.INVALID
+     */
+    public long time(int column, long row) {
+        if (types[column] == Type.TIME) {
+            return data.getLong(position(column, row, 8));
+        }
+        return TimeDecoder.decode(tokenize(column, row), 0);
+    }
+
+    /**
+     * 与 CsvTokenizer.fieldAsDouble 一致，空字段返回 Double.NaN
+     *
+     * @throws NumberFormatException 字段不是数字
+     */
+    public double number(int column, long row) {
+        return switch (types[column]) {
+            case DOUBLE -> data.getDouble(position(column, row, 8));
+            case LONG -> data.getLong(position(column, row, 8));
+            default -> tokenize(column, row).fieldAsDouble(0);
+        };
+    }
+
+    public int dictId(int column, long row) {
+        return data.getInt(position(column, row, 4));
+    }
+
+    /**
+     * 字段内容（去掉引号）是否等于 value，与 CsvTokenizer.fieldEquals 一致
+     */
+    public boolean equals(int column, long row, byte[] value) {
+        if (types[column] == Type.DICT) {
+            return valueEquals(dictionaries[column][dictId(column, row)], value);
+        }
+        return tokenize(column, row).fieldEquals(0, value);
+    }
+
+    /**
+     * 字段内容（去掉引号），与 CsvTokenizer.fieldAsString 一致
+     */
+    public String string(int column, long row) {
+        if (types[column] == Type.DICT) {
+            return dictionaryValues[column][dictId(column, row)];
+        }
+        return tokenize(column, row).fieldAsString(0);
+    }
+
+    /**
+     * 把字段按 CSV 中的原样追加到 out
+     */
+    public void append(int column, long row, ByteSink out) {
+        switch (types[column]) {
+            case TIME -> {
+                long time = data.getLong(position(column, row, 8));
+                if (time != TimeDecoder.INVALID) {
+                    templates[column].append(time, out);
+                }
+            }
+            case LONG -> out.append(Long.toString(data.getLong(position(column, row, 8))));
+            case DOUBLE -> VcolWriter.appendDouble(data.getDouble(position(column, row, 8)), out);
+            case DICT -> out.append(dictionaries[column][dictId(column, row)]);
+            case RAW -> {
+                int block = (int) (row / blockRows);
+                int index = (int) (row - (long) block * blockRows);
+                int ends = offsets[block * types.length + column];
+                int bytes = ends + blockRows(block) * 4;
+                int start = index == 0 ? 0 : data.getInt(ends + (index - 1) * 4);
+                int end = data.getInt(ends + index * 4);
+                byte[] buf = new byte[end - start];
+                data.get(bytes + start, buf);
+                out.append(buf);
+            }
+        }
+    }
+
+    /**
+     * 把整行按 CSV 中的原样追加到 out（不含换行符）
+     */
+    public void appendRow(long row, ByteSink out) {
+        for (int c = 0; c < types.length; c++) {
+            if (c > 0) {
+                out.append(',');
+            }
+            append(c, row, out);
+        }
+    }
+
+    // 其它类型的字段还原为文本后按 CSV 的规则解析
+    private CsvTokenizer tokenize(int column, long row) {
+        ByteSink field = new ByteSink(32);
+        append(column, row, field);
+        return new CsvTokenizer().reset(field.buffer(), 0, field.size(), 1);
+    }
+
+    // 与 CsvTokenizer.fieldEquals 相同：去掉字段中的引号后比较
+    private static boolean valueEquals(byte[] field, byte[] value) {
+        int k = 0;
+        for (byte b : field) {
+            if (b == '"') {
+                continue;
+            }
+            if (k == value.length || value[k] != b) {
+                return false;
+            }
+            k++;
+        }
+        return k == value.length;
+    }
+}
@@ -0,0 +1,442 @@
+package com.example.mcp.columnar;
+
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.CsvLineReader;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.TimeDecoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把单个 CSV 转换为列存文件（&lt;name&gt;.csv.vcol），格式见 VcolFile
+ * <p>
+ * 读两遍 CSV：第一遍确定每列的类型，每个值都要能原样还原（例如 "3.50" 还原为 "3.5" 时该列不按数字保存），
+ * 第二遍按块写入。行的列数与表头不一致、结果超过 2GB 或转换过程中 CSV 被修改时不生成列存文件，
+ * 查询继续读取 CSV。
+ */
+public final class VcolWriter {
+
+    static final int MAX_DICTIONARY = 4096;
+
+    private VcolWriter() {
+    }
+
+    /**
+     * 转换结果
+     */
+    public enum Result {
+        CONVERTED, UP_TO_DATE, SKIPPED
+    }
+
+    /**
+     * 转换 csv，已有的列存文件与 CSV 一致且 force 为 false 时不重新生成
+     */
+    public static Result write(Path csv, boolean force) {
+        if (!force && VcolFile.isCurrent(csv)) {
+            return Result.UP_TO_DATE;
+        }
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return Result.SKIPPED;
+        }
+        Path sidecar = Sidecars.path(csv, VcolFile.SUFFIX);
+        Path tmp = null;
+        try {
+            Layout layout = analyze(csv);
+            if (layout == null) {
+                return Result.SKIPPED;
+            }
+            // 同一个文件可能同时被转换，每次转换使用各自的临时文件
+            tmp = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+            if (!write(csv, version, layout, tmp) || !version.equals(Sidecars.version(csv))) {
+                System.err.println("列存转换已跳过: " + csv + " - 文件过大或转换时被修改");
+                return Result.SKIPPED;
+            }
+            Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            return Result.CONVERTED;
+        } catch (IOException e) {
+            System.err.println("列存转换失败: " + csv + " - " + e.getMessage());
+            return Result.SKIPPED;
+        } finally {
+            Sidecars.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * DOUBLE 列的输出写法：Double.toString 的最短表示，去掉 ".0"，不使用科学计数法；NaN 输出空字段
+     */
+    static void appendDouble(double value, ByteSink out) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        String text = Double.toString(value);
+        if (text.indexOf('E') >= 0) {
+            text = new BigDecimal(text).stripTrailingZeros().toPlainString();
+        } else if (text.endsWith(".0")) {
+            text = text.substring(0, text.length() - 2);
+        }
+        out.append(text);
+    }
+
+    // ---------------------------------------------------------------- 第一遍：确定列类型
+
+    private record Layout(String header, long rowCount, Column[] columns) {
+    }
+
+    private static final class Column {
+        boolean time = true;
+        boolean integer = true;
+        boolean number = true;
+        TimeTemplate template;
+        Map<String, Integer> dictionary = new HashMap<>();
+        final List<byte[]> entries = new ArrayList<>();
+        VcolFile.Type type;
+
+        void check(byte[] b, int off, int len) {
+            if (time && len > 0) {
+                if (template == null) {
+                    template = TimeTemplate.of(b, off, len);
+                }
+                time = template != null && template.matches(b, off, len);
+            }
+            if (integer) {
+                integer = isLong(b, off, len);
+            }
+            if (number && len > 0) {
+                number = isDouble(b, off, len);
+            }
+            if (dictionary != null) {
+                Integer id = dictionary.putIfAbsent(new String(b, off, len, StandardCharsets.ISO_8859_1), entries.size());
+                if (id == null) {
+                    byte[] entry = new byte[len];
+                    System.arraycopy(b, off, entry, 0, len);
+                    entries.add(entry);
+                    if (entries.size() > MAX_DICTIONARY) {
+                        dictionary = null;
+                        entries.clear();
+                    }
+                }
+            }
+        }
+
+        VcolFile.Type resolve() {
+            if (time && template != null) {
+                type = VcolFile.Type.TIME;
+            } else if (integer) {
+                type = VcolFile.Type.LONG;
+            } else if (number) {
+                type = VcolFile.Type.DOUBLE;
+            } else if (dictionary != null) {
+                type = VcolFile.Type.DICT;
+            } else {
+                type = VcolFile.Type.RAW;
+            }
+            return type;
+        }
+
+        int id(byte[] b, int off, int len) {
+            return dictionary.get(new String(b, off, len, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    // 写法与 Long.toString 相同的整数，最多 18 位
+    private static boolean isLong(byte[] b, int off, int len) {
+        int p = off;
+        int end = off + len;
+        if (p < end && b[p] == '-') {
+            p++;
+        }
+        int digits = end - p;
+        if (digits == 0 || digits > 18 || (b[p] == '0' && (digits > 1 || p > off))) {
+            return false;
+        }
+        for (; p < end; p++) {
+            if (b[p] < '0' || b[p] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDouble(byte[] b, int off, int len) {
+        String text = new String(b, off, len, StandardCharsets.ISO_8859_1);
+        double value;
+        try {
+            value = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        ByteSink rendered = new ByteSink(len + 8);
+        appendDouble(value, rendered);
+        return rendered.toString().equals(text);
+    }
+
+    private static Layout analyze(Path csv) throws IOException {
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        try (CsvLineReader reader = CsvLineReader.open(csv)) {
+            if (!reader.next()) {
+                System.err.println("列存转换已跳过: " + csv + " - 空文件");
+                return null;
+            }
+            String header = reader.line();
+            int columnCount = tokenizer.reset(reader.buffer(), reader.start(), reader.length()).fieldCount();
+            Column[] columns = new Column[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                columns[c] = new Column();
+            }
+            long rows = 0;
+            while (reader.next()) {
+                tokenizer.reset(reader.buffer(), reader.start(), reader.length());
+                if (tokenizer.fieldCount() != columnCount) {
+                    System.err.println("列存转换已跳过: " + csv + " - 第" + (rows + 1) + "行的列数与表头不一致");
+                    return null;
+                }
+                for (int c = 0; c < columnCount; c++) {
+                    columns[c].check(tokenizer.buffer(), tokenizer.start(c), tokenizer.length(c));
+                }
+                rows++;
+            }
+            for (Column column : columns) {
+                column.resolve();
+            }
+            return new Layout(header, rows, columns);
+        }
+    }
+
+    // ---------------------------------------------------------------- 第二遍：按块写入
+
+    private static boolean write(Path csv, Sidecars.Version version, Layout layout, Path tmp) throws IOException {
+        Column[] columns = layout.columns();
+        int columnCount = columns.length;
+        int blockRows = VcolFile.BLOCK_ROWS;
+        try (Output out = new Output(tmp)) {
+            out.putInt(VcolFile.MAGIC);
+            out.putInt(VcolFile.VERSION);
+            out.putLong(version.size());
+            out.putLong(version.mtime());
+            out.putLong(layout.rowCount());
+            out.putInt(blockRows);
+            out.putInt(columnCount);
+            out.putBytes(layout.header().getBytes(StandardCharsets.UTF_8));
+            for (Column column : columns) {
+                out.put((byte) column.type.ordinal());
+                if (column.type == VcolFile.Type.TIME) {
+                    out.putBytes(column.template.bytes());
+                } else if (column.type == VcolFile.Type.DICT) {
+                    out.putInt(column.entries.size());
+                    for (byte[] entry : column.entries) {
+                        out.putBytes(entry);
+                    }
+                }
+            }
+
+            // 每块每列: offset, min, max, nulls
+            List<long[]> footer = new ArrayList<>();
+            long[][] values = new long[columnCount][blockRows];
+            ByteSink[] raw = new ByteSink[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                if (columns[c].type == VcolFile.Type.RAW) {
+                    raw[c] = new ByteSink();
+                }
+            }
+            CsvTokenizer tokenizer = new CsvTokenizer();
+            int count = 0;
+            long rows = 0;
+            try (CsvLineReader reader = CsvLineReader.open(csv)) {
+                reader.next();
+                while (reader.next()) {
+                    tokenizer.reset(reader.buffer(), reader.start(), reader.length());
+                    if (tokenizer.fieldCount() != columnCount) {
+                        return false;
+                    }
+                    for (int c = 0; c < columnCount; c++) {
+                        byte[] b = tokenizer.buffer();
+                        int off = tokenizer.start(c);
+                        int len = tokenizer.length(c);
+                        values[c][count] = switch (columns[c].type) {
+                            case TIME -> TimeDecoder.decode(b, off, len);
+                            case LONG -> Long.parseLong(new String(b, off, len, StandardCharsets.ISO_8859_1));
+                            case DOUBLE -> Double.doubleToRawLongBits(len == 0 ? Double.NaN
+                                    : Double.parseDouble(new String(b, off, len, StandardCharsets.ISO_8859_1)));
+                            case DICT -> columns[c].id(b, off, len);
+                            case RAW -> {
+                                raw[c].append(b, off, len);
+                                yield raw[c].size();
+                            }
+                        };
+                    }
+                    rows++;
+                    if (++count == blockRows) {
+                        flush(out, columns, values, raw, count, footer);
+                        count = 0;
+                    }
+                }
+            }
+            if (count > 0) {
+                flush(out, columns, values, raw, count, footer);
+            }
+            if (rows != layout.rowCount()) {
+                return false;
+            }
+
+            long footerOffset = out.position();
+            out.putInt(footer.size() / columnCount);
+            for (long[] entry : footer) {
+                out.putInt((int) entry[0]);
+                out.putLong(entry[1]);
+                out.putLong(entry[2]);
+                out.putInt((int) entry[3]);
+            }
+            out.putLong(footerOffset);
+            out.putInt(VcolFile.MAGIC);
+            return out.position() <= Integer.MAX_VALUE;
+        }
+    }
+
+    private static void flush(Output out, Column[] columns, long[][] values, ByteSink[] raw, int count,
+                              List<long[]> footer) throws IOException {
+        for (int c = 0; c < columns.length; c++) {
+            long[] block = values[c];
+            long min = 0;
+            long max = 0;
+            int nulls = 0;
+            long offset = out.position();
+            switch (columns[c].type) {
+                case TIME, LONG -> {
+                    min = TimeDecoder.INVALID;
+                    max = TimeDecoder.INVALID;
+                    for (int k = 0; k < count; k++) {
+                        long v = block[k];
+                        out.putLong(v);
+                        if (v == TimeDecoder.INVALID) {
+                            nulls++;
+                        } else {
+                            min = min == TimeDecoder.INVALID ? v : Math.min(min, v);
+                            max = max == TimeDecoder.INVALID ? v : Math.max(max, v);
+                        }
+                    }
+                }
+                case DOUBLE -> {
+                    double lo = Double.NaN;
+                    double hi = Double.NaN;
+                    for (int k = 0; k < count; k++) {
+                        out.putLong(block[k]);
+                        double v = Double.longBitsToDouble(block[k]);
+                        if (Double.isNaN(v)) {
+                            nulls++;
+                        } else {
+                            lo = Double.isNaN(lo) ? v : Math.min(lo, v);
+                            hi = Double.isNaN(hi) ? v : Math.max(hi, v);
+                        }
+                    }
+                    min = Double.doubleToLongBits(lo);
+                    max = Double.doubleToLongBits(hi);
+                }
+                case DICT -> {
+                    min = Integer.MAX_VALUE;
+                    max = 0;
+                    for (int k = 0; k < count; k++) {
+                        out.putInt((int) block[k]);
+                        min = Math.min(min, block[k]);
+                        max = Math.max(max, block[k]);
+                    }
+                }
+                case RAW -> {
+                    for (int k = 0; k < count; k++) {
+                        out.putInt((int) block[k]);
+                    }
+                    out.putRaw(raw[c].buffer(), raw[c].size());
+                    raw[c].reset();
+                }
+            }
+            footer.add(new long[]{offset, min, max, nulls});
+        }
+    }
+
+    /**
+     * 带缓冲的小端写入
+     */
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void put(byte b) throws IOException {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        void putInt(int v) throws IOException {
+            ensure(4);
+            buffer.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            ensure(8);
+            buffer.putLong(v);
+        }
+
+        // 长度 + 内容
+        void putBytes(byte[] b) throws IOException {
+            putInt(b.length);
+            putRaw(b, b.length);
+        }
+
+        void putRaw(byte[] b, int length) throws IOException {
+            for (int off = 0; off < length; ) {
+                ensure(1);
+                int n = Math.min(length - off, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mcp.cursor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 保存分页游标，按 token 取回，超过 TTL 未使用的游标自动过期
+ * <p>
+ * 每一页返回新的 token，token 对应一个固定的位置：响应丢失后用同一个 token 重试得到的是同一页，
+ * 同一个 token 的并发请求也互不影响。从 token 取回的游标保存下一页时，原来的 token 只再保留一个宽限期，
+ * 所以一次查询同时只有少量记录；记录数超过上限时淘汰最久未使用的游标。
+ */
+@Component
+public class CursorStore {
+
+    private static final char[] ALPHABET = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final int TOKEN_LENGTH = 12;
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    public static final long DEFAULT_GRACE_SECONDS = 30;
+
+    // 按访问顺序排列，所有访问都在 cursors 上同步
+    private final LinkedHashMap<String, Entry> cursors;
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final long graceMillis;
+    private long lastSweep = System.currentTimeMillis();   // 由 cursors 的锁保护
+
+    /**
+     * @param retired 已经保存过下一页，有效期不再延长
+     */
+    private record Entry(ScanCursor cursor, long expiresAt, boolean retired) {
+    }
+
+    public CursorStore(long ttlSeconds) {
+        this(ttlSeconds, DEFAULT_MAX_ENTRIES, DEFAULT_GRACE_SECONDS);
+    }
+
+    /**
+     * @param ttlSeconds   游标的有效期
+     * @param maxEntries   同时保存的游标数量上限
+     * @param graceSeconds 保存下一页后，上一页的 token 还能使用的时间
+     */
+    @Autowired
+    public CursorStore(@Value("${vvtr.cursor.ttl-seconds:600}") long ttlSeconds,
+                       @Value("${vvtr.cursor.max-entries:10000}") int maxEntries,
+                       @Value("${vvtr.cursor.grace-seconds:30}") long graceSeconds) {
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.graceMillis = Math.min(Math.max(graceSeconds, 0L), ttlSeconds) * 1000L;
+        int limit = Math.max(maxEntries, 1);
+        this.cursors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > limit;
+            }
+        };
+    }
+
+    /**
+     * 保存游标，返回新的 token；游标由 {@link #get} 取回时，原来的 token 在宽限期后过期
+     *
+     * @return 游标 token
+     */
+    public String save(ScanCursor cursor) {
+        long now = System.currentTimeMillis();
+        synchronized (cursors) {
+            sweep(now);
+            String previous = cursor.getToken();
+            Entry used = previous == null ? null : cursors.get(previous);
+            if (used != null && !used.retired()) {
+                cursors.put(previous, new Entry(used.cursor(), Math.min(used.expiresAt(), now + graceMillis), true));
+            }
+            String token;
+            do {
+                token = newToken();
+            } while (cursors.containsKey(token));
+            cursors.put(token, new Entry(cursor.toBuilder().token(token).build(), now + ttlMillis, false));
+            return token;
+        }
+    }
+
+    /**
+     * 取回游标，并延长其有效期；已经保存过下一页的游标不延长
+     *
+     * @throws IllegalArgumentException 游标不存在或已过期
+     */
+    public ScanCursor get(String token) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (cursors) {
+            entry = cursors.get(token);
+            if (entry == null || entry.expiresAt() < now) {
+                cursors.remove(token);
+                throw new IllegalArgumentException("游标不存在或已过期: " + token);
+            }
+            if (!entry.retired()) {
+                cursors.put(token, new Entry(entry.cursor(), now + ttlMillis, false));
+            }
+        }
+        // 返回副本，避免调用方修改已保存的状态
+        return entry.cursor().toBuilder().build();
+    }
+
+    public int size() {
+        synchronized (cursors) {
+            return cursors.size();
+        }
+    }
+
+    // 每隔一个宽限期（至少 1 秒）清理一次过期的游标，调用方持有 cursors 的锁
+    private void sweep(long now) {
+        if (now - lastSweep < Math.max(graceMillis, 1000L)) {
+            return;
+        }
+        lastSweep = now;
+        cursors.values().removeIf(e -> e.expiresAt() < now);
+    }
+
+    private String newToken() {
+        char[] chars = new char[TOKEN_LENGTH];
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+}
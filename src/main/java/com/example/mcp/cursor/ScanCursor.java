@@ -0,0 +1,32 @@
+package com.example.mcp.cursor;
+
+import com.example.mcp.util.WireFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 分页查询的服务端状态，客户端只持有对应的 token
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+public class ScanCursor {
+    private String kind;          // min / day / tick
+    private List<Path> paths;     // 本次查询的全部文件
+    private int fileIndex;        // 当前文件在 paths 中的位置
+    private long offset;          // 当前文件下一行的字节偏移，0 表示从表头之后开始
+    private long row;             // 当前文件下一行的行号（不含表头，从 0 开始）
+    private String startTime;
+    private String endTime;
+    private String symbol;
+    private List<String> columns; // 返回的列，为空时返回整行
+    private WireFormat format;    // 返回格式，为空时为 CSV
+    private int maxBytes;         // 每页的目标字节数，0 表示使用默认值
+    private String token;         // 取回时使用的 token，保存下一页后该 token 进入宽限期
+}
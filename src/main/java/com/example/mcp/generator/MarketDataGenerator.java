@@ -0,0 +1,521 @@
+package com.example.mcp.generator;
+
+import com.example.mcp.startup.FolderInitializer;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.Decimals;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 生成模拟行情数据，目录结构与 FolderInitializer 创建的一致：
+ * <pre>
+ * root/A-shares/1m/202009/20200904/SHSE.600000.csv
+ * root/A-shares/15m/202009/20200904/SHSE.600000.csv
+ * root/A-shares/tick/202009/20200904/SHSE.600000.csv
+ * root/A-shares/1d/202009/20200904/20200904.csv      （当天全部代码）
+ * </pre>
+ * 表头与实际数据相同，1d/1m/15m 为 {@link #BAR_HEADER}，tick 为 {@link #TICK_HEADER}。
+ * <p>
+ * 每个代码每天的数据只由 seed、目录、代码序号和日期决定，与线程数、生成顺序无关，
+ * 同样的参数总是生成同样的文件。1d/15m 由同一组 1m 数据合成，三者相互一致；
+ * tick 在每分钟的最高价和最低价之间生成，最后一笔为该分钟的收盘价。
+ * <p>
+ * 命令行（参数均可省略，root 默认为 -Dapi.data.path）：
+ * <pre>
+ * java -cp mcp.jar -Dloader.main=com.example.mcp.generator.MarketDataGenerator \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --root=/data --types=A-shares,Funds --frequencies=1d,1m,tick --symbols=100 \
+ *     --start=2020-01-02 --days=250 --ticks-per-minute=20 --seed=42 --threads=8
+ * </pre>
+ */
+@Builder
+public class MarketDataGenerator {
+
+    public static final String BAR_HEADER = "symbol,frequency,open,close,high,low,amount,volume,position,bob,eob";
+    public static final String TICK_HEADER = "symbol,open,high,low,price,cum_volume,cum_amount,cum_position,"
+            + "last_amount,last_volume,trade_type,created_at";
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int AMOUNT_SCALE = 2;
+    private static final long BAR_SALT = 0x5DEECE66DL;
+    private static final long TICK_SALT = 0x2545F4914F6CDD1DL;
+
+    private final Path root;
+    @Builder.Default
+    private final List<String> types = FolderInitializer.FOLDERS;
+    @Builder.Default
+    private final List<String> frequencies = FolderInitializer.FREQUENCIES;
+    @Builder.Default
+    private final int symbols = 20;             // 每类产品的代码数量
+    @Builder.Default
+    private final LocalDate startDate = LocalDate.of(2020, 1, 2);
+    @Builder.Default
+    private final int days = 20;                // 交易日数量，加密币每天都交易
+    @Builder.Default
+    private final int ticksPerMinute = 20;      // 每个代码每分钟的平均 tick 数
+    @Builder.Default
+    private final long seed = 42L;
+    @Builder.Default
+    private final int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 生成结果
+     */
+    public record Summary(long files, long bytes, long millis) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        MarketDataGeneratorBuilder builder = builder();
+        String root = System.getProperty("api.data.path");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("参数格式为 --name=value: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "root" -> root = value;
+                case "types" -> builder.types(List.of(value.split(",")));
+                case "frequencies" -> builder.frequencies(List.of(value.split(",")));
+                case "symbols" -> builder.symbols(Integer.parseInt(value));
+                case "start" -> builder.startDate(LocalDate.parse(value));
+                case "days" -> builder.days(Integer.parseInt(value));
+                case "ticks-per-minute" -> builder.ticksPerMinute(Integer.parseInt(value));
+                case "seed" -> builder.seed(Long.parseLong(value));
+                case "threads" -> builder.threads(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("不支持的参数: " + name);
+            }
+        }
+        if (root == null || root.isEmpty()) {
+            throw new IllegalArgumentException("请通过 --root 或 -Dapi.data.path 指定数据目录");
+        }
+        Summary summary = builder.root(Path.of(root)).build().generate();
+        System.out.printf("生成 %d 个文件, %.1f MB, 用时 %d ms%n",
+                summary.files(), summary.bytes() / 1048576.0, summary.millis());
+    }
+
+    /**
+     * type 目录下第 index 个代码，与生成的文件名相同
+     */
+    public static String symbol(String type, int index) {
+        return MarketProfile.of(type).symbol(index);
+    }
+
+    /**
+     * type 目录从 start 开始生成的交易日
+     */
+    public static List<LocalDate> tradingDays(String type, LocalDate start, int days) {
+        return MarketProfile.of(type).tradingDays(start, days);
+    }
+
+    /**
+     * 生成全部文件，已存在的文件会被覆盖
+     *
+     * @throws IllegalArgumentException 参数无效
+     */
+    public Summary generate() throws IOException {
+        if (root == null) {
+            throw new IllegalArgumentException("数据目录不能为空");
+        }
+        if (symbols <= 0 || days <= 0 || ticksPerMinute < 0) {
+            throw new IllegalArgumentException("symbols、days 必须大于0, ticksPerMinute 不能小于0");
+        }
+        for (String frequency : frequencies) {
+            if (!FolderInitializer.FREQUENCIES.contains(frequency)) {
+                throw new IllegalArgumentException("不支持的频率: " + frequency + ", 可选 " + FolderInitializer.FREQUENCIES);
+            }
+        }
+        long begin = System.nanoTime();
+        LongAdder files = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        boolean intraday = frequencies.contains("1m") || frequencies.contains("15m") || frequencies.contains("tick");
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (String type : types) {
+            MarketProfile market = MarketProfile.of(type);
+            List<LocalDate> tradingDays = market.tradingDays(startDate, days);
+            if (frequencies.contains("1d")) {
+                tasks.add(() -> {
+                    writeDaily(type, market, tradingDays, files, bytes);
+                    return null;
+                });
+            }
+            // 每个代码一个任务，按日期顺序生成，价格在相邻交易日之间连续
+            for (int s = 0; intraday && s < symbols; s++) {
+                int symbol = s;
+                tasks.add(() -> {
+                    writeIntraday(type, market, symbol, tradingDays, files, bytes);
+                    return null;
+                });
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(tasks.size());
+            for (Callable<Void> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("生成数据被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("生成数据失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(files.sum(), bytes.sum(), (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    private void writeDaily(String type, MarketProfile market, List<LocalDate> tradingDays,
+                            LongAdder files, LongAdder bytes) throws IOException {
+        SymbolState[] states = new SymbolState[symbols];
+        for (int s = 0; s < symbols; s++) {
+            states[s] = initialState(type, market, s);
+        }
+        ByteSink out = new ByteSink(symbols * 160 + 256);
+        byte[] zone = bytes(market.zone);
+        for (LocalDate day : tradingDays) {
+            byte[] date = datePrefix(day);
+            out.reset();
+            out.append(BAR_HEADER).append('\n');
+            for (SymbolState state : states) {
+                DayBars bars = dayBars(market, state, day);
+                int last = bars.size - 1;
+                double high = bars.high[0];
+                double low = bars.low[0];
+                long volume = 0;
+                double amount = 0;
+                for (int k = 0; k <= last; k++) {
+                    high = Math.max(high, bars.high[k]);
+                    low = Math.min(low, bars.low[k]);
+                    volume += bars.volume[k];
+                    amount += bars.amount[k];
+                }
+                appendBar(out, market, state.symbol, "1d", bars.open[0], bars.close[last], high, low, amount, volume,
+                        bars.position[last]);
+                appendTime(out, date, 0, -1, zone);
+                out.append(',');
+                appendTime(out, date, 0, -1, zone);
+                out.append('\n');
+            }
+            write(file(type, "1d", day, day.format(DAY)), out, files, bytes);
+        }
+    }
+
+    private void writeIntraday(String type, MarketProfile market, int symbol, List<LocalDate> tradingDays,
+                               LongAdder files, LongAdder bytes) throws IOException {
+        SymbolState state = initialState(type, market, symbol);
+        ByteSink out = new ByteSink(1 << 16);
+        byte[] zone = bytes(market.zone);
+        for (int d = 0; d < tradingDays.size(); d++) {
+            LocalDate day = tradingDays.get(d);
+            byte[] date = datePrefix(day);
+            byte[] nextDate = datePrefix(day.plusDays(1));
+            DayBars bars = dayBars(market, state, day);
+            if (frequencies.contains("1m")) {
+                out.reset();
+                out.append(BAR_HEADER).append('\n');
+                for (int k = 0; k < bars.size; k++) {
+                    appendBar(out, market, state.symbol, "60s", bars.open[k], bars.close[k], bars.high[k], bars.low[k],
+                            bars.amount[k], bars.volume[k], bars.position[k]);
+                    appendRange(out, date, nextDate, bars.minute[k], bars.minute[k] + 1, zone);
+                }
+                write(file(type, "1m", day, state.symbol), out, files, bytes);
+            }
+            if (frequencies.contains("15m")) {
+                out.reset();
+                out.append(BAR_HEADER).append('\n');
+                append15m(out, market, state.symbol, bars, date, nextDate, zone);
+                write(file(type, "15m", day, state.symbol), out, files, bytes);
+            }
+            if (frequencies.contains("tick") && ticksPerMinute > 0) {
+                out.reset();
+                out.append(TICK_HEADER).append('\n');
+                appendTicks(out, market, state, bars, day, date, zone);
+                write(file(type, "tick", day, state.symbol), out, files, bytes);
+            }
+        }
+    }
+
+    // 每个交易时段内按 15 分钟合并
+    private void append15m(ByteSink out, MarketProfile market, String symbol, DayBars bars,
+                           byte[] date, byte[] nextDate, byte[] zone) {
+        int k = 0;
+        for (int[] session : market.sessions) {
+            for (int bob = session[0]; bob < session[1]; bob += 15) {
+                int eob = Math.min(bob + 15, session[1]);
+                int first = k;
+                double high = bars.high[k];
+                double low = bars.low[k];
+                long volume = 0;
+                double amount = 0;
+                for (; k < bars.size && bars.minute[k] < eob; k++) {
+                    high = Math.max(high, bars.high[k]);
+                    low = Math.min(low, bars.low[k]);
+                    volume += bars.volume[k];
+                    amount += bars.amount[k];
+                }
+                appendBar(out, market, symbol, "900s", bars.open[first], bars.close[k - 1], high, low, amount, volume,
+                        bars.position[k - 1]);
+                appendRange(out, date, nextDate, bob, eob, zone);
+            }
+        }
+    }
+
+    private void appendTicks(ByteSink out, MarketProfile market, SymbolState state, DayBars bars, LocalDate day,
+                             byte[] date, byte[] zone) {
+        SplittableRandom random = random(state.seed, day, TICK_SALT);
+        int[] offsets = new int[ticksPerMinute * 3 / 2 + 1];
+        double dayOpen = bars.open[0];
+        double dayHigh = dayOpen;
+        double dayLow = dayOpen;
+        double previous = dayOpen;
+        long cumVolume = 0;
+        double cumAmount = 0;
+        for (int k = 0; k < bars.size; k++) {
+            int n = ticksPerMinute == 1 ? 1 : ticksPerMinute / 2 + random.nextInt(ticksPerMinute + 1);
+            for (int j = 0; j < n; j++) {
+                offsets[j] = random.nextInt(60_000);
+            }
+            Arrays.sort(offsets, 0, n);
+            long lotsPerTick = Math.max(bars.volume[k] / market.lot / Math.max(n, 1), 1L);
+            for (int j = 0; j < n; j++) {
+                double price;
+                if (j == n - 1) {
+                    price = bars.close[k];
+                } else if (j == 0) {
+                    price = bars.open[k];
+                } else {
+                    double path = bars.open[k] + (bars.close[k] - bars.open[k]) * j / (n - 1);
+                    double noise = random.nextGaussian() * (bars.high[k] - bars.low[k]) / 4;
+                    price = market.round(Math.max(bars.low[k], Math.min(bars.high[k], path + noise)));
+                }
+                long volume = market.lot * (1 + random.nextLong(2 * lotsPerTick));
+                double amount = price * volume;
+                cumVolume += volume;
+                cumAmount += amount;
+                dayHigh = Math.max(dayHigh, price);
+                dayLow = Math.min(dayLow, price);
+                // 1 主动买入，2 主动卖出，0 价格不变
+                int tradeType = price > previous ? 1 : price < previous ? 2 : 0;
+                previous = price;
+
+                out.append(state.symbol).append(',');
+                Decimals.append(out, dayOpen, market.priceScale);
+                out.append(',');
+                Decimals.append(out, dayHigh, market.priceScale);
+                out.append(',');
+                Decimals.append(out, dayLow, market.priceScale);
+                out.append(',');
+                Decimals.append(out, price, market.priceScale);
+                out.append(',').append(Long.toString(cumVolume)).append(',');
+                Decimals.append(out, cumAmount, AMOUNT_SCALE);
+                out.append(',').append(Long.toString(bars.position[k])).append(',');
+                Decimals.append(out, amount, AMOUNT_SCALE);
+                out.append(',').append(Long.toString(volume)).append(',').append((char) ('0' + tradeType)).append(',');
+                appendTime(out, date, bars.minute[k], offsets[j], zone);
+                out.append('\n');
+            }
+        }
+    }
+
+    /**
+     * 一个代码一天的 1m K 线，开盘价在前一天收盘价的基础上加一个小的跳空，之后按对数正态随机游走
+     * <p>
+     * 成交量在开盘和收盘附近较大。调用后 state 更新为当天收盘。
+     */
+    private DayBars dayBars(MarketProfile market, SymbolState state, LocalDate day) {
+        SplittableRandom random = random(state.seed, day, BAR_SALT);
+        int n = market.minutesPerDay();
+        DayBars bars = new DayBars(n);
+        double sigma = market.dailyVolatility / Math.sqrt(n);
+        double price = state.close * Math.exp(random.nextGaussian() * market.dailyVolatility * 0.2);
+        double activity = Math.exp(random.nextGaussian() * 0.3);
+        long position = state.position;
+        int k = 0;
+        for (int[] session : market.sessions) {
+            for (int minute = session[0]; minute < session[1]; minute++, k++) {
+                double open = market.round(price);
+                double close = market.round(price * Math.exp(random.nextGaussian() * sigma));
+                double high = market.round(Math.max(open, close) * (1 + Math.abs(random.nextGaussian()) * sigma / 2));
+                double low = market.round(Math.min(open, close) * (1 - Math.abs(random.nextGaussian()) * sigma / 2));
+                double t = (double) k / n - 0.5;
+                double lots = market.minuteLots * activity * (0.5 + 4 * t * t) * Math.exp(random.nextGaussian() * 0.5);
+                long volume = market.lot * Math.max(Math.round(lots), 1L);
+                if (market.hasPosition) {
+                    position = Math.max(position + Math.round(random.nextGaussian() * volume * 0.05), 0L);
+                }
+                bars.minute[k] = minute;
+                bars.open[k] = open;
+                bars.close[k] = close;
+                bars.high[k] = Math.max(high, Math.max(open, close));
+                bars.low[k] = Math.min(low, Math.min(open, close));
+                bars.volume[k] = volume;
+                bars.amount[k] = volume * (open + high + low + close) / 4;
+                bars.position[k] = position;
+                price = close;
+            }
+        }
+        state.close = price;
+        state.position = position;
+        return bars;
+    }
+
+    private SymbolState initialState(String type, MarketProfile market, int index) {
+        long symbolSeed = mix(seed ^ mix(type.hashCode()) ^ mix(index + 1L));
+        SplittableRandom random = new SplittableRandom(symbolSeed);
+        double logMin = Math.log(market.minPrice);
+        double logMax = Math.log(market.maxPrice);
+        double close = market.round(Math.exp(logMin + random.nextDouble() * (logMax - logMin)));
+        long position = market.hasPosition ? 10_000 + random.nextInt(90_000) : 0L;
+        return new SymbolState(market.symbol(index), symbolSeed, close, position);
+    }
+
+    private static SplittableRandom random(long symbolSeed, LocalDate day, long salt) {
+        return new SplittableRandom(mix(symbolSeed + day.toEpochDay() * 0x9E3779B97F4A7C15L + salt));
+    }
+
+    // SplitMix64 的混合函数
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void appendBar(ByteSink out, MarketProfile market, String symbol, String frequency,
+                                  double open, double close, double high, double low,
+                                  double amount, long volume, long position) {
+        out.append(symbol).append(',').append(frequency).append(',');
+        Decimals.append(out, open, market.priceScale);
+        out.append(',');
+        Decimals.append(out, close, market.priceScale);
+        out.append(',');
+        Decimals.append(out, high, market.priceScale);
+        out.append(',');
+        Decimals.append(out, low, market.priceScale);
+        out.append(',');
+        Decimals.append(out, amount, AMOUNT_SCALE);
+        out.append(',').append(Long.toString(volume)).append(',').append(Long.toString(position)).append(',');
+    }
+
+    // bob,eob，eob 为 24:00 时写为第二天的 00:00
+    private static void appendRange(ByteSink out, byte[] date, byte[] nextDate, int bob, int eob, byte[] zone) {
+        appendTime(out, date, bob, -1, zone);
+        out.append(',');
+        if (eob >= 1440) {
+            appendTime(out, nextDate, eob - 1440, -1, zone);
+        } else {
+            appendTime(out, date, eob, -1, zone);
+        }
+        out.append('\n');
+    }
+
+    // yyyy-MM-dd HH:mm:ss[.SSS]+08:00，millis 小于 0 时不输出毫秒
+    private static void appendTime(ByteSink out, byte[] date, int minuteOfDay, int millis, byte[] zone) {
+        out.append(date);
+        appendTwoDigits(out, minuteOfDay / 60);
+        out.append(':');
+        appendTwoDigits(out, minuteOfDay % 60);
+        out.append(':');
+        if (millis < 0) {
+            out.append('0').append('0');
+        } else {
+            appendTwoDigits(out, millis / 1000);
+            out.append('.');
+            out.append((char) ('0' + millis % 1000 / 100));
+            out.append((char) ('0' + millis % 100 / 10));
+            out.append((char) ('0' + millis % 10));
+        }
+        out.append(zone);
+    }
+
+    private static void appendTwoDigits(ByteSink out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static byte[] datePrefix(LocalDate day) {
+        return bytes(day + " ");
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Path file(String type, String frequency, LocalDate day, String name) throws IOException {
+        Path dir = root.resolve(type).resolve(frequency).resolve(day.format(MONTH)).resolve(day.format(DAY));
+        Files.createDirectories(dir);
+        return dir.resolve(name + ".csv");
+    }
+
+    private static void write(Path path, ByteSink data, LongAdder files, LongAdder bytes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(data.buffer(), 0, data.size());
+        }
+        files.increment();
+        bytes.add(data.size());
+    }
+
+    private static final class SymbolState {
+        final String symbol;
+        final long seed;
+        double close;
+        long position;
+
+        SymbolState(String symbol, long seed, double close, long position) {
+            this.symbol = symbol;
+            this.seed = seed;
+            this.close = close;
+            this.position = position;
+        }
+    }
+
+    private static final class DayBars {
+        final int size;
+        final int[] minute;     // bob，当天的分钟数
+        final double[] open;
+        final double[] high;
+        final double[] low;
+        final double[] close;
+        final long[] volume;
+        final double[] amount;
+        final long[] position;
+
+        DayBars(int size) {
+            this.size = size;
+            this.minute = new int[size];
+            this.open = new double[size];
+            this.high = new double[size];
+            this.low = new double[size];
+            this.close = new double[size];
+            this.volume = new long[size];
+            this.amount = new double[size];
+            this.position = new long[size];
+        }
+    }
+}
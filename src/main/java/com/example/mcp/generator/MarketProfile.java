@@ -0,0 +1,124 @@
+package com.example.mcp.generator;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 各类产品生成数据时使用的交易时段、代码写法和价格范围
+ * <p>
+ * 交易时段为当天的分钟数区间 [开始, 结束)，每段的长度都是 15 的倍数，便于合成 15m K 线。
+ */
+enum MarketProfile {
+
+    A_SHARES("A-shares", new int[][]{{570, 690}, {780, 900}}, false, 5, 50, 2, 0.02, 100, 200, false, "+08:00"),
+    FUTURES("Futures", new int[][]{{540, 615}, {630, 690}, {810, 900}}, false, 2000, 6000, 0, 0.015, 1, 300, true, "+08:00"),
+    FUNDS("Funds", new int[][]{{570, 690}, {780, 900}}, false, 1, 4, 3, 0.012, 100, 500, false, "+08:00"),
+    INDICES("Indices", new int[][]{{570, 690}, {780, 900}}, false, 1000, 5000, 2, 0.01, 100, 50000, false, "+08:00"),
+    US_STOCKS("US-Stocks", new int[][]{{570, 960}}, false, 20, 300, 2, 0.02, 1, 2000, false, "-05:00"),
+    OPTIONS("Options", new int[][]{{570, 960}}, false, 1, 20, 2, 0.05, 1, 50, true, "-05:00"),
+    CRYPTO("Crypto", new int[][]{{0, 1440}}, true, 0.1, 50000, 4, 0.04, 1, 100, false, "+00:00"),
+    /**
+     * 不在 FolderInitializer 中的目录，按 A 股的时段生成
+     */
+    OTHER("", new int[][]{{570, 690}, {780, 900}}, false, 5, 50, 2, 0.02, 100, 200, false, "+08:00");
+
+    final String folder;
+    final int[][] sessions;
+    final boolean weekends;         // 周末是否交易
+    final double minPrice;          // 初始价格在 [minPrice, maxPrice] 内按对数均匀分布
+    final double maxPrice;
+    final int priceScale;           // 价格的小数位数
+    final double dailyVolatility;   // 日收益率的标准差
+    final int lot;                  // 成交量的最小单位
+    final int minuteLots;           // 平均每分钟成交的手数
+    final boolean hasPosition;      // 是否有持仓量
+    final String zone;              // 时间后缀
+
+    private final double tick;
+
+    MarketProfile(String folder, int[][] sessions, boolean weekends, double minPrice, double maxPrice, int priceScale,
+                  double dailyVolatility, int lot, int minuteLots, boolean hasPosition, String zone) {
+        this.folder = folder;
+        this.sessions = sessions;
+        this.weekends = weekends;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.priceScale = priceScale;
+        this.dailyVolatility = dailyVolatility;
+        this.lot = lot;
+        this.minuteLots = minuteLots;
+        this.hasPosition = hasPosition;
+        this.zone = zone;
+        this.tick = Math.pow(10, -priceScale);
+    }
+
+    static MarketProfile of(String folder) {
+        for (MarketProfile profile : values()) {
+            if (profile.folder.equalsIgnoreCase(folder)) {
+                return profile;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * 每个交易日的分钟数
+     */
+    int minutesPerDay() {
+        int minutes = 0;
+        for (int[] session : sessions) {
+            minutes += session[1] - session[0];
+        }
+        return minutes;
+    }
+
+    /**
+     * 从 start 开始（包含）的 count 个交易日，不考虑节假日
+     */
+    List<LocalDate> tradingDays(LocalDate start, int count) {
+        List<LocalDate> days = new ArrayList<>(count);
+        for (LocalDate day = start; days.size() < count; day = day.plusDays(1)) {
+            if (weekends || (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY)) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * 按最小价格变动取整，不小于一个最小变动
+     */
+    double round(double price) {
+        return Math.max(Math.round(price / tick), 1L) * tick;
+    }
+
+    /**
+     * 第 index 个代码
+     */
+    String symbol(int index) {
+        return switch (this) {
+            case A_SHARES -> index % 2 == 0
+                    ? String.format(Locale.ROOT, "SHSE.%06d", 600000 + index / 2)
+                    : String.format(Locale.ROOT, "SZSE.%06d", 1 + index / 2);
+            case FUTURES -> "SHFE." + letters(index).toLowerCase(Locale.ROOT) + "2101";
+            case FUNDS -> String.format(Locale.ROOT, "SHSE.%06d", 510000 + index);
+            case INDICES -> String.format(Locale.ROOT, "SHSE.%06d", 1 + index);
+            case US_STOCKS -> "NASDAQ." + letters(index);
+            case OPTIONS -> "NASDAQ." + letters(index) + "210115C00100000";
+            case CRYPTO -> "BINANCE." + letters(index) + "USDT";
+            case OTHER -> String.format(Locale.ROOT, "SYM.%06d", index);
+        };
+    }
+
+    // 0 -> A，25 -> Z，26 -> AA
+    private static String letters(int index) {
+        StringBuilder sb = new StringBuilder();
+        for (int n = index; n >= 0; n = n / 26 - 1) {
+            sb.append((char) ('A' + n % 26));
+        }
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mcp.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV 表头：列名到列号的映射
+ * <p>
+ * 相同的表头只解析一次，由 SchemaRegistry 复用同一个实例，可以直接用 == 比较两个文件的列布局是否一致。
+ */
+public final class CsvSchema {
+
+    public static final String SYMBOL = "symbol";
+    public static final String BOB = "bob";
+    public static final String EOB = "eob";
+    public static final String CREATED_AT = "created_at";
+
+    /**
+     * 空文件或无法读取的文件
+     */
+    public static final CsvSchema EMPTY = new CsvSchema("");
+
+    private final String header;
+    private final List<String> columns;
+    private final Map<String, Integer> indexes;
+
+    CsvSchema(String header) {
+        this.header = header;
+        String[] names = header.isEmpty() ? new String[0] : header.split(",", -1);
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+            // 与原来的 getBobIndex 一样，重复的列名取第一个
+            map.putIfAbsent(names[i].toLowerCase(Locale.ROOT), i);
+        }
+        this.columns = List.of(names);
+        this.indexes = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 原始表头行
+     */
+    public String header() {
+        return header;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * 列号，不区分大小写，不存在时返回 -1
+     */
+    public int indexOf(String column) {
+        Integer index = indexes.get(column.toLowerCase(Locale.ROOT));
+        return index == null ? -1 : index;
+    }
+
+    public int symbolIndex() {
+        return indexOf(SYMBOL);
+    }
+
+    public int bobIndex() {
+        return indexOf(BOB);
+    }
+
+    public int eobIndex() {
+        return indexOf(EOB);
+    }
+
+    public int createdAtIndex() {
+        return indexOf(CREATED_AT);
+    }
+
+    @Override
+    public String toString() {
+        return "CsvSchema" + columns;
+    }
+}
@@ -0,0 +1,615 @@
+package com.example.mcp.index;
+
+import com.example.mcp.model.Partition;
+import com.example.mcp.util.CsvMerger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分区目录：(种类, 数据类型, 日期, 代码) → 文件路径、大小、修改时间
+ * <p>
+ * 启动时从 ROOT 下的 .vvtr-catalog 文件加载，之后增量更新，
+ * 日期范围和代码查询都是有序 key 的范围扫描，不再每次 Files.walk 整棵目录树。
+ * 目录未就绪（首次构建中）时回退到 CsvMerger.findAllCsvFiles。
+ * <p>
+ * WatchService 监听种类、数据类型和月份目录，以及最近的日期目录：最近 {@value #RECENT_DAYS} 天的日期目录
+ * 和运行期间新建的日期目录，最多 {@value #MAX_WATCHED_DATE_DIRS} 个，超过时取消最早开始监听的目录。
+ * 日期目录数量太多，全部监听会超过系统的监听数量上限；更早的日期目录一般不再变化。
+ * <p>
+ * 每 {@value #RECONCILE_INTERVAL_MINUTES} 分钟在低优先级线程中遍历一次目录树作为兜底，
+ * 只比较目录的修改时间：修改过的日期目录重新列出文件，不逐个检查其余文件。
+ */
+@Component
+public class PartitionCatalog implements ApplicationRunner {
+
+    private static final String CATALOG_FILE = ".vvtr-catalog";
+    private static final String MAGIC = "#vvtr-catalog";
+    private static final int VERSION = 1;
+    // key 分隔符，比任何可见字符都小，保证 type/freq/date 前缀有序
+    private static final char SEP = '\u0001';
+    private static final long FLUSH_INTERVAL_SECONDS = 30;
+    private static final long RECONCILE_INTERVAL_MINUTES = 30;
+    private static final int RECENT_DAYS = 7;
+    private static final int MAX_WATCHED_DATE_DIRS = 256;
+    // 文件系统的时间戳精度较粗（有的为 1～2 秒），比较目录修改时间时留出余量
+    private static final long MTIME_SLACK_MILLIS = 2000;
+
+    private final Path root;
+    private final Path catalogFile;
+
+    // type SEP freq SEP date SEP symbol → 分区
+    private final ConcurrentSkipListMap<String, Partition> byDate = new ConcurrentSkipListMap<>();
+    // type SEP freq SEP symbol SEP date → 分区
+    private final ConcurrentSkipListMap<String, Partition> bySymbol = new ConcurrentSkipListMap<>();
+    // byDate 与 bySymbol 的所有修改都在这个锁内进行，两个索引保持一致
+    private final Object indexLock = new Object();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    // 正在监听的日期目录，按开始监听的顺序排列；由自身加锁
+    private final LinkedHashMap<Path, WatchKey> watchedDateDirs = new LinkedHashMap<>();
+
+    private volatile boolean ready;
+    private volatile boolean dirty;
+    private long savedAt;
+    private final Object reconcileLock = new Object();
+    private long reconciledAt;      // 上一次校对开始的时间，之后修改的日期目录需要重新列出文件
+    private WatchService watchService;
+    private ScheduledExecutorService flusher;
+
+    public PartitionCatalog() {
+        this(Paths.get(CsvMerger.ROOT));
+    }
+
+    public PartitionCatalog(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.catalogFile = this.root.resolve(CATALOG_FILE);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        start();
+    }
+
+    /**
+     * 加载已保存的目录，然后在后台线程中校对并监听文件变化
+     */
+    public synchronized void start() {
+        if (watchService != null) {
+            return;
+        }
+        if (!Files.isDirectory(root)) {
+            System.err.println("数据目录不存在，分区目录不可用: " + root);
+            return;
+        }
+        boolean loaded = load();
+        ready = loaded;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            System.err.println("无法监听数据目录，只通过定期校对更新分区目录: " + e.getMessage());
+        }
+        Thread watcher = new Thread(() -> {
+            // 停止期间最近的日期目录中可能有原地改写的文件，全部重新列出
+            reconcile(!loaded, true);
+            ready = true;
+            flush();
+            watchLoop();
+        }, "partition-catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "partition-catalog-flusher");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        flusher.scheduleWithFixedDelay(() -> {
+            if (ready) {
+                reconcile(false, false);
+            }
+        }, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+        }
+        flush();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return byDate.size();
+    }
+
+    /**
+     * 按日期范围、代码查询分区
+     *
+     * @param type      金融产品种类
+     * @param freq      数据类型(1d,1m,15m,tick)
+     * @param startDate 开始日期（包含），yyyyMMdd
+     * @param endDate   结束日期（包含），yyyyMMdd
+     * @param symbol    种类代码，为空则返回所有代码
+     * @return 按日期、代码排序的分区列表
+     */
+    public List<Partition> find(String type, String freq, String startDate, String endDate, String symbol) throws IOException {
+        if (!ready) {
+            return walk(type, freq, startDate, endDate, symbol);
+        }
+        String prefix = type + SEP + freq + SEP;
+        List<Partition> result = new ArrayList<>();
+        if (symbol == null || symbol.isEmpty()) {
+            // 直接放在 type/freq 下、没有日期目录的文件总是返回
+            result.addAll(byDate.subMap(prefix + SEP, true, prefix + (char) (SEP + 1), false).values());
+            result.addAll(byDate.subMap(prefix + startDate, true, prefix + endDate + (char) (SEP + 1), false).values());
+        } else {
+            String symbolPrefix = prefix + symbol + SEP;
+            Partition undated = bySymbol.get(symbolPrefix);
+            if (undated != null) {
+                result.add(undated);
+            }
+            result.addAll(bySymbol.subMap(symbolPrefix + startDate, true, symbolPrefix + endDate, true).values());
+        }
+        return result;
+    }
+
+    public List<Path> findPaths(String type, String freq, String startDate, String endDate, String symbol) throws IOException {
+        return find(type, freq, startDate, endDate, symbol).stream()
+                .map(Partition::path)
+                .toList();
+    }
+
+    // 目录未就绪时的后备实现，结果与目录查询保持相同的顺序
+    private List<Partition> walk(String type, String freq, String startDate, String endDate, String symbol) throws IOException {
+        Path rootDir = root.resolve(type).resolve(freq);
+        if (!Files.isDirectory(rootDir)) {
+            return List.of();
+        }
+        List<Path> paths = symbol == null || symbol.isEmpty()
+                ? CsvMerger.findAllCsvFiles(rootDir, startDate, endDate)
+                : CsvMerger.findAllCsvFiles(rootDir, startDate, endDate, symbol);
+        ConcurrentSkipListMap<String, Partition> sorted = new ConcurrentSkipListMap<>();
+        for (Path path : paths) {
+            Partition partition = stat(path.toAbsolutePath().normalize());
+            if (partition != null) {
+                sorted.put(dateKey(partition), partition);
+            }
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    // ---------------------------------------------------------------- 持久化
+
+    private boolean load() {
+        if (!Files.isRegularFile(catalogFile)) {
+            return false;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(catalogFile, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return false;
+            }
+            String[] head = header.split("\t");
+            if (head.length < 3 || !head[0].equals(MAGIC) || Integer.parseInt(head[1]) != VERSION) {
+                System.err.println("分区目录文件的格式不支持，重新构建: " + header);
+                return false;
+            }
+            savedAt = Long.parseLong(head[2]);
+            reconciledAt = savedAt;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] f = line.split("\t", -1);
+                if (f.length < 7) {
+                    continue;
+                }
+                put(new Partition(f[0], f[1], f[2], f[3], root.resolve(f[6]),
+                        Long.parseLong(f[4]), Long.parseLong(f[5])));
+            }
+            dirty = false;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("加载分区目录失败，重新构建: " + e.getMessage());
+            synchronized (indexLock) {
+                byDate.clear();
+                bySymbol.clear();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 有变化时写回磁盘，先写临时文件再原子替换
+     */
+    public synchronized void flush() {
+        if (!dirty || !Files.isDirectory(root)) {
+            return;
+        }
+        dirty = false;
+        long now = System.currentTimeMillis();
+        Path tmp = catalogFile.resolveSibling(CATALOG_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(MAGIC + "\t" + VERSION + "\t" + now);
+            writer.newLine();
+            for (Partition p : byDate.values()) {
+                writer.write(p.type() + "\t" + p.freq() + "\t" + p.date() + "\t" + p.symbol() + "\t"
+                        + p.size() + "\t" + p.mtime() + "\t"
+                        + root.relativize(p.path()).toString().replace('\\', '/'));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("写入分区目录失败: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            savedAt = now;
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("替换分区目录文件失败: " + e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- 校对与监听
+
+    /**
+     * 遍历目录并注册监听，只读取目录的属性：自上次校对后修改过的日期目录重新列出文件，
+     * 其余日期目录不检查（原地改写的文件只在监听中的日期目录里被发现）
+     *
+     * @param full   是否重新列出所有日期目录（首次构建）
+     * @param recent 是否重新列出正在监听的日期目录（启动时或监听事件溢出后）
+     */
+    void reconcile(boolean full, boolean recent) {
+        synchronized (reconcileLock) {
+            long startedAt = System.currentTimeMillis();
+            if (reconcile(full, recent, reconciledAt - MTIME_SLACK_MILLIS)) {
+                reconciledAt = startedAt;
+            }
+        }
+    }
+
+    private boolean reconcile(boolean full, boolean recent, long since) {
+        String cutoff = LocalDate.now().minusDays(RECENT_DAYS).format(DateTimeFormatter.BASIC_ISO_DATE);
+        Set<Path> seenDateDirs = new HashSet<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && dir.getFileName().toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    boolean watched = register(dir, cutoff);
+                    if (isDateDir(dir)) {
+                        seenDateDirs.add(dir);
+                        if (full || attrs.lastModifiedTime().toMillis() >= since || (recent && watched)) {
+                            rescanDirectory(dir);
+                        }
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    // 直接位于 type/freq 下的文件
+                    if (isCsv(file)) {
+                        Partition partition = toPartition(file, attrs.size(), attrs.lastModifiedTime().toMillis());
+                        if (partition != null) {
+                            put(partition);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("扫描数据目录失败: " + root + " " + e.getMessage());
+            return false;
+        }
+        // 整个日期目录被删除的情况；遍历之后才新建的目录仍然存在
+        for (Partition p : byDate.values()) {
+            Path dir = p.path().getParent();
+            if (!p.date().isEmpty() && !seenDateDirs.contains(dir) && !Files.isDirectory(dir)) {
+                remove(p);
+            }
+        }
+        return true;
+    }
+
+    private void watchLoop() {
+        if (watchService == null) {
+            return;
+        }
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    reconcile(false, true);
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    removeUnder(child);
+                } else if (Files.isDirectory(child)) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        scanNewDirectory(child);
+                    }
+                } else if (isCsv(child)) {
+                    Partition partition = stat(child);
+                    if (partition != null) {
+                        put(partition);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+                synchronized (watchedDateDirs) {
+                    watchedDateDirs.remove(dir, key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 注册监听；日期目录只在不早于 cutoff 或新建（cutoff 为 null）时监听，超过上限时取消最早开始监听的目录
+     *
+     * @return 是否正在监听该目录
+     */
+    private boolean register(Path dir, String cutoff) {
+        if (watchService == null) {
+            return false;
+        }
+        boolean dateDir = isDateDir(dir);
+        if (dateDir) {
+            synchronized (watchedDateDirs) {
+                if (watchedDateDirs.containsKey(dir)) {
+                    return true;
+                }
+            }
+            if (cutoff != null && dir.getFileName().toString().compareTo(cutoff) < 0) {
+                return false;
+            }
+        }
+        WatchKey key;
+        try {
+            key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.err.println("监听目录失败，该目录的变化由定期校对发现: " + dir + " " + e.getMessage());
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            // 已关闭
+            return false;
+        }
+        watchedDirs.put(key, dir);
+        if (dateDir) {
+            synchronized (watchedDateDirs) {
+                watchedDateDirs.put(dir, key);
+                Iterator<Map.Entry<Path, WatchKey>> it = watchedDateDirs.entrySet().iterator();
+                while (watchedDateDirs.size() > MAX_WATCHED_DATE_DIRS && it.hasNext()) {
+                    WatchKey eldest = it.next().getValue();
+                    it.remove();
+                    eldest.cancel();
+                    watchedDirs.remove(eldest);
+                }
+            }
+        }
+        return true;
+    }
+
+    // 新建的目录：先注册监听再扫描，避免遗漏注册前写入的文件
+    private void scanNewDirectory(Path dir) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    register(d, null);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (isCsv(file)) {
+                        Partition partition = toPartition(file, attrs.size(), attrs.lastModifiedTime().toMillis());
+                        if (partition != null) {
+                            put(partition);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("扫描新建目录失败: " + dir + " " + e.getMessage());
+        }
+    }
+
+    private void rescanDirectory(Path dir) {
+        String prefix = dateDirPrefix(dir);
+        Set<Path> existing = new HashSet<>();
+        try (var files = Files.list(dir)) {
+            files.filter(PartitionCatalog::isCsv).forEach(file -> {
+                Partition partition = stat(file);
+                if (partition != null) {
+                    existing.add(file);
+                    put(partition);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("列出目录失败: " + dir + " " + e.getMessage());
+            return;
+        }
+        for (Partition p : byDate.subMap(prefix, prefix + '\uffff').values()) {
+            if (!existing.contains(p.path())) {
+                remove(p);
+            }
+        }
+    }
+
+    private String dateDirPrefix(Path dir) {
+        Path relative = root.relativize(dir);
+        return relative.getName(0).toString() + SEP + relative.getName(1) + SEP + dir.getFileName() + SEP;
+    }
+
+    private void removeUnder(Path path) {
+        for (Partition p : byDate.values()) {
+            if (p.path().startsWith(path)) {
+                remove(p);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- 索引维护
+
+    private void put(Partition partition) {
+        synchronized (indexLock) {
+            Partition old = byDate.put(dateKey(partition), partition);
+            bySymbol.put(symbolKey(partition), partition);
+            if (!partition.equals(old)) {
+                dirty = true;
+            }
+        }
+    }
+
+    // 只在索引中仍是同一个分区时删除，不会删掉期间由其他线程更新的记录
+    private void remove(Partition partition) {
+        synchronized (indexLock) {
+            if (byDate.remove(dateKey(partition), partition)) {
+                bySymbol.remove(symbolKey(partition));
+                dirty = true;
+            }
+        }
+    }
+
+    private static String dateKey(Partition p) {
+        return p.type() + SEP + p.freq() + SEP + p.date() + SEP + p.symbol();
+    }
+
+    private static String symbolKey(Partition p) {
+        return p.type() + SEP + p.freq() + SEP + p.symbol() + SEP + p.date();
+    }
+
+    private Partition stat(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) {
+                return null;
+            }
+            return toPartition(file, attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("读取文件属性失败: " + file + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 由路径解析分区：type/freq/[yyyyMM/]yyyyMMdd/symbol.csv 或 type/freq/symbol.csv
+     */
+    private Partition toPartition(Path file, long size, long mtime) {
+        Path relative = root.relativize(file);
+        int count = relative.getNameCount();
+        if (count < 3) {
+            return null;
+        }
+        String fileName = relative.getFileName().toString();
+        String symbol = fileName.substring(0, fileName.lastIndexOf('.'));
+        String date;
+        if (count == 3) {
+            date = "";
+        } else {
+            date = relative.getName(count - 2).toString();
+            if (!isDate(date)) {
+                return null;
+            }
+        }
+        return new Partition(relative.getName(0).toString(), relative.getName(1).toString(),
+                date, symbol, file, size, mtime);
+    }
+
+    private boolean isDateDir(Path dir) {
+        return root.relativize(dir).getNameCount() >= 3 && isDate(dir.getFileName().toString());
+    }
+
+    private static boolean isDate(String name) {
+        if (name.length() != 8) {
+            return false;
+        }
+        for (int i = 0; i < 8; i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCsv(Path path) {
+        return path.getFileName().toString().toLowerCase().endsWith(".csv");
+    }
+}
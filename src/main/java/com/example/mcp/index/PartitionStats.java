@@ -0,0 +1,259 @@
+package com.example.mcp.index;
+
+import com.example.mcp.util.CsvLineReader;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.TimeDecoder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 单个 CSV 分区的精确统计：行数、bob/eob/created_at 的最小最大值、每个代码的行数
+ * <p>
+ * 第一次使用时扫描一遍文件生成，保存在 CSV 旁边的 .stats 文件中，
+ * CSV 的大小或修改时间变化后重新生成。之后的计数只读元数据，不再读取数据。
+ */
+public final class PartitionStats {
+
+    public static final String SUFFIX = ".stats";
+
+    private static final int MAGIC = 0x56535453; // "VSTS"
+    private static final int VERSION = 1;
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<Path, PartitionStats> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, PartitionStats> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final long csvSize;
+    private final long csvMtime;
+    private final long rowCount;
+    // 0/1: bob 最小/最大, 2/3: eob, 4/5: created_at；列不存在时为 TimeDecoder.INVALID
+    private final long[] timeRange;
+    private final Map<String, Long> symbolCounts;
+
+    private PartitionStats(long csvSize, long csvMtime, long rowCount, long[] timeRange, Map<String, Long> symbolCounts) {
+        this.csvSize = csvSize;
+        this.csvMtime = csvMtime;
+        this.rowCount = rowCount;
+        this.timeRange = timeRange;
+        this.symbolCounts = Collections.unmodifiableMap(symbolCounts);
+    }
+
+    /**
+     * 获取 CSV 分区的统计信息，优先使用内存和磁盘上的结果，失效时重新扫描
+     *
+     * @return 文件无法读取时返回 null
+     */
+    public static PartitionStats of(Path csv) {
+        return lookup(csv, true);
+    }
+
+    /**
+     * 取已经生成的统计信息，不存在或已失效时返回 null（不会扫描文件）
+     */
+    public static PartitionStats get(Path csv) {
+        return lookup(csv, false);
+    }
+
+    private static PartitionStats lookup(Path csv, boolean build) {
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return null;
+        }
+        PartitionStats stats;
+        synchronized (CACHE) {
+            stats = CACHE.get(csv);
+        }
+        if (stats != null && stats.matches(version)) {
+            return stats;
+        }
+        Path sidecar = Sidecars.path(csv, SUFFIX);
+        stats = read(sidecar);
+        if (stats == null || !stats.matches(version)) {
+            if (!build) {
+                return null;
+            }
+            try {
+                stats = build(csv, version);
+            } catch (IOException e) {
+                System.err.println("统计CSV文件失败: " + e.getMessage());
+                return null;
+            }
+            write(sidecar, stats);
+        }
+        synchronized (CACHE) {
+            CACHE.put(csv, stats);
+        }
+        return stats;
+    }
+
+    private boolean matches(Sidecars.Version version) {
+        return csvSize == version.size() && csvMtime == version.mtime();
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 指定代码的行数，代码为空时返回总行数
+     */
+    public long rowCount(String symbol) {
+        if (symbol == null || symbol.isEmpty()) {
+            return rowCount;
+        }
+        return symbolCounts.getOrDefault(symbol, 0L);
+    }
+
+    public Map<String, Long> symbolCounts() {
+        return symbolCounts;
+    }
+
+    public boolean containsSymbol(String symbol) {
+        return symbolCounts.containsKey(symbol);
+    }
+
+    public long minBob() {
+        return timeRange[0];
+    }
+
+    public long maxBob() {
+        return timeRange[1];
+    }
+
+    public long minEob() {
+        return timeRange[2];
+    }
+
+    public long maxEob() {
+        return timeRange[3];
+    }
+
+    public long minCreatedAt() {
+        return timeRange[4];
+    }
+
+    public long maxCreatedAt() {
+        return timeRange[5];
+    }
+
+    // ---------------------------------------------------------------- 构建
+
+    static PartitionStats build(Path csv, Sidecars.Version version) throws IOException {
+        long[] timeRange = new long[6];
+        Arrays.fill(timeRange, TimeDecoder.INVALID);
+        Map<String, Long> counts = new TreeMap<>();
+        long rows = 0;
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        try (CsvLineReader reader = CsvLineReader.open(csv)) {
+            if (!reader.next()) {
+                return new PartitionStats(version.size(), version.mtime(), 0, timeRange, counts);
+            }
+            CsvSchema schema = SchemaRegistry.intern(reader.line());
+            int symbolIndex = schema.symbolIndex();
+            int[] timeColumns = {schema.bobIndex(), schema.eobIndex(), schema.createdAtIndex()};
+            int lastIndex = Math.max(symbolIndex, Math.max(timeColumns[0], Math.max(timeColumns[1], timeColumns[2])));
+
+            // 同一代码的行通常是连续的，只在代码变化时才创建 String
+            byte[] lastSymbol = new byte[0];
+            long lastCount = 0;
+            String lastKey = null;
+            while (reader.next()) {
+                rows++;
+                tokenizer.reset(reader.buffer(), reader.start(), reader.length(), lastIndex + 1);
+                for (int c = 0; c < 3; c++) {
+                    int column = timeColumns[c];
+                    if (column < 0 || column >= tokenizer.fieldCount()) {
+                        continue;
+                    }
+                    long time = TimeDecoder.decode(tokenizer, column);
+                    if (time == TimeDecoder.INVALID) {
+                        continue;
+                    }
+                    if (timeRange[c * 2] == TimeDecoder.INVALID || time < timeRange[c * 2]) {
+                        timeRange[c * 2] = time;
+                    }
+                    if (timeRange[c * 2 + 1] == TimeDecoder.INVALID || time > timeRange[c * 2 + 1]) {
+                        timeRange[c * 2 + 1] = time;
+                    }
+                }
+                if (symbolIndex < 0 || symbolIndex >= tokenizer.fieldCount()) {
+                    continue;
+                }
+                if (lastKey != null && tokenizer.fieldEquals(symbolIndex, lastSymbol)) {
+                    lastCount++;
+                    continue;
+                }
+                if (lastKey != null) {
+                    counts.merge(lastKey, lastCount, Long::sum);
+                }
+                lastKey = tokenizer.fieldAsString(symbolIndex);
+                lastSymbol = lastKey.getBytes(StandardCharsets.UTF_8);
+                lastCount = 1;
+            }
+            if (lastKey != null) {
+                counts.merge(lastKey, lastCount, Long::sum);
+            }
+        }
+        return new PartitionStats(version.size(), version.mtime(), rows, timeRange, counts);
+    }
+
+    // ---------------------------------------------------------------- 读写 .stats
+
+    private static PartitionStats read(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long csvSize = in.readLong();
+            long csvMtime = in.readLong();
+            long rowCount = in.readLong();
+            long[] timeRange = new long[6];
+            for (int i = 0; i < timeRange.length; i++) {
+                timeRange[i] = in.readLong();
+            }
+            int symbols = in.readInt();
+            Map<String, Long> counts = new TreeMap<>();
+            for (int i = 0; i < symbols; i++) {
+                counts.put(in.readUTF(), in.readLong());
+            }
+            return new PartitionStats(csvSize, csvMtime, rowCount, timeRange, counts);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path sidecar, PartitionStats stats) {
+        Sidecars.write(sidecar, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stats.csvSize);
+            out.writeLong(stats.csvMtime);
+            out.writeLong(stats.rowCount);
+            for (long value : stats.timeRange) {
+                out.writeLong(value);
+            }
+            out.writeInt(stats.symbolCounts.size());
+            for (Map.Entry<String, Long> entry : stats.symbolCounts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        });
+    }
+}
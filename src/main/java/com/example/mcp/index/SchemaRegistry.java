@@ -0,0 +1,106 @@
+package com.example.mcp.index;
+
+import com.example.mcp.util.CsvLineReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表头缓存：每个目录下每个文件的表头只读取一次
+ * <p>
+ * 以目录为单位缓存文件名到表头的映射，文件大小或修改时间变化后重新读取；
+ * 缓存的文件总数超过 {@value #MAX_FILES} 时按目录淘汰最久未使用的目录。
+ * 内容相同的表头共用一个 CsvSchema 实例。同一范围内的文件可以有不同的列布局，
+ * 读取时按文件分别取列号，而不是假设与第一个文件一致。
+ */
+public final class SchemaRegistry {
+
+    private static final int MAX_SCHEMAS = 4096;
+    private static final int MAX_FILES = 65536;
+
+    // 访问顺序的 LinkedHashMap，最久未使用的目录在最前面；DIRECTORIES 和 fileCount 由 DIRECTORIES 加锁
+    private static final LinkedHashMap<Path, Map<String, Entry>> DIRECTORIES = new LinkedHashMap<>(64, 0.75f, true);
+    private static int fileCount;
+    private static final Map<String, CsvSchema> SCHEMAS = new ConcurrentHashMap<>();
+
+    private record Entry(long size, long mtime, CsvSchema schema) {
+    }
+
+    private SchemaRegistry() {
+    }
+
+    /**
+     * 文件的表头，文件不存在或无法读取时返回 CsvSchema.EMPTY
+     */
+    public static CsvSchema of(Path csv) {
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return CsvSchema.EMPTY;
+        }
+        Path dir = csv.toAbsolutePath().getParent();
+        String name = csv.getFileName().toString();
+        Entry entry;
+        synchronized (DIRECTORIES) {
+            Map<String, Entry> files = DIRECTORIES.get(dir);
+            entry = files == null ? null : files.get(name);
+        }
+        if (entry != null && entry.size() == version.size() && entry.mtime() == version.mtime()) {
+            return entry.schema();
+        }
+        CsvSchema schema;
+        try (CsvLineReader reader = CsvLineReader.open(csv)) {
+            schema = reader.next() ? intern(reader.line()) : CsvSchema.EMPTY;
+        } catch (IOException e) {
+            System.err.println("读取CSV表头时出错: " + e.getMessage());
+            return CsvSchema.EMPTY;
+        }
+        put(dir, name, new Entry(version.size(), version.mtime(), schema));
+        return schema;
+    }
+
+    private static void put(Path dir, String name, Entry entry) {
+        synchronized (DIRECTORIES) {
+            Map<String, Entry> files = DIRECTORIES.computeIfAbsent(dir, d -> new HashMap<>());
+            if (files.put(name, entry) == null) {
+                fileCount++;
+            }
+            Iterator<Map<String, Entry>> it = DIRECTORIES.values().iterator();
+            while (fileCount > MAX_FILES && it.hasNext()) {
+                Map<String, Entry> eldest = it.next();
+                if (eldest == files) {
+                    // 当前目录最后使用，前面的目录都已淘汰
+                    break;
+                }
+                fileCount -= eldest.size();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 解析表头行，相同内容返回同一个实例
+     */
+    public static CsvSchema intern(String header) {
+        if (header == null || header.isEmpty()) {
+            return CsvSchema.EMPTY;
+        }
+        // UTF-8 BOM 不属于列名
+        if (header.charAt(0) == '\ufeff') {
+            header = header.substring(1);
+        }
+        CsvSchema schema = SCHEMAS.get(header);
+        if (schema != null) {
+            return schema;
+        }
+        if (SCHEMAS.size() >= MAX_SCHEMAS) {
+            // 不同表头不应该这么多，超过时不再缓存，防止异常数据撑满内存
+            return new CsvSchema(header);
+        }
+        return SCHEMAS.computeIfAbsent(header, CsvSchema::new);
+    }
+}
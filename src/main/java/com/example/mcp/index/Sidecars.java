@@ -0,0 +1,83 @@
+package com.example.mcp.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * CSV 旁边的元数据文件（索引、统计等）的公共操作
+ * <p>
+ * 元数据文件命名为 &lt;name&gt;.csv&lt;suffix&gt;，内部记录生成时 CSV 的大小和修改时间，
+ * 不一致时视为失效。
+ */
+public final class Sidecars {
+
+    private Sidecars() {
+    }
+
+    @FunctionalInterface
+    public interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * CSV 文件的大小和修改时间
+     */
+    public record Version(long size, long mtime) {
+    }
+
+    public static Path path(Path csv, String suffix) {
+        return csv.resolveSibling(csv.getFileName() + suffix);
+    }
+
+    /**
+     * @return 文件不存在或无法读取时返回 null
+     */
+    public static Version version(Path csv) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(csv, BasicFileAttributes.class);
+            return new Version(attrs.size(), attrs.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            System.err.println("读取文件属性失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换；数据目录只读时写入失败，元数据只保留在内存中
+     * <p>
+     * 多个线程可能同时为同一个 CSV 生成元数据，每次写入使用各自的临时文件，后替换的结果生效
+     */
+    public static void write(Path sidecar, Writer writer) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                writer.write(out);
+            }
+            Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException e) {
+            System.err.println("写入元数据文件失败: " + sidecar + " - " + e.getMessage());
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * 删除写入失败时留下的临时文件
+     */
+    public static void deleteQuietly(Path tmp) {
+        if (tmp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException ignored) {
+        }
+    }
+}
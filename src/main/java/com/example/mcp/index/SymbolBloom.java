@@ -0,0 +1,241 @@
+package com.example.mcp.index;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个 CSV 分区中出现过的种类代码的 Bloom 过滤器
+ * <p>
+ * 1d 文件包含当天所有代码，按代码查询时先检查过滤器，确定不包含该代码的文件不再读取。
+ * 过滤器在文件第一次被完整扫描时顺便生成（见 Builder），保存在 CSV 旁边的 .sym 文件中，
+ * CSV 的大小或修改时间变化后失效。每个代码约 10 位，误判率约 1%，不会漏判。
+ */
+public final class SymbolBloom {
+
+    public static final String SUFFIX = ".sym";
+
+    private static final int MAGIC = 0x5653594D; // "VSYM"
+    private static final int VERSION = 1;
+    private static final int HASHES = 7;
+    private static final int BITS_PER_SYMBOL = 10;
+    private static final int CACHE_SIZE = 4096;
+
+    private static final Map<Path, SymbolBloom> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, SymbolBloom> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final long csvSize;
+    private final long csvMtime;
+    private final int symbols;
+    private final long[] words;
+
+    private SymbolBloom(long csvSize, long csvMtime, int symbols, long[] words) {
+        this.csvSize = csvSize;
+        this.csvMtime = csvMtime;
+        this.symbols = symbols;
+        this.words = words;
+    }
+
+    /**
+     * 取已经生成的过滤器，不存在或已失效时返回 null（不会扫描文件）
+     */
+    public static SymbolBloom get(Path csv) {
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return null;
+        }
+        SymbolBloom bloom;
+        synchronized (CACHE) {
+            bloom = CACHE.get(csv);
+        }
+        if (bloom != null && bloom.matches(version)) {
+            return bloom;
+        }
+        bloom = read(Sidecars.path(csv, SUFFIX));
+        if (bloom == null || !bloom.matches(version)) {
+            return null;
+        }
+        synchronized (CACHE) {
+            CACHE.put(csv, bloom);
+        }
+        return bloom;
+    }
+
+    /**
+     * 确定文件中没有该代码时返回 true；没有可用的过滤器时返回 false
+     */
+    public static boolean definitelyAbsent(Path csv, String symbol) {
+        if (symbol == null || symbol.isEmpty()) {
+            return false;
+        }
+        SymbolBloom bloom = get(csv);
+        return bloom != null && !bloom.mightContain(symbol);
+    }
+
+    private boolean matches(Sidecars.Version version) {
+        return csvSize == version.size() && csvMtime == version.mtime();
+    }
+
+    public boolean mightContain(String symbol) {
+        return mightContain(symbol.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param symbol UTF-8 编码的代码
+     */
+    public boolean mightContain(byte[] symbol) {
+        return mightContain(hash(symbol, 0, symbol.length));
+    }
+
+    private boolean mightContain(long hash) {
+        long bits = (long) words.length * 64;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成过滤器时统计到的不同代码数量
+     */
+    public int symbolCount() {
+        return symbols;
+    }
+
+    // 64 位 FNV-1a，再做一次混合让高低 32 位都足够分散
+    static long hash(byte[] b, int off, int len) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = off; i < off + len; i++) {
+            h ^= b[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 扫描文件时逐行加入代码，扫描完整个文件后调用 save 保存
+     */
+    public static final class Builder {
+
+        private final Sidecars.Version version;
+        private long[] hashes = new long[256];
+        private int count;
+        private long last;
+
+        /**
+         * @param version 开始扫描前的文件版本，扫描期间文件发生变化时不会保存
+         */
+        public Builder(Sidecars.Version version) {
+            this.version = version;
+        }
+
+        public void add(byte[] b, int off, int len) {
+            long h = hash(b, off, len);
+            // 同一代码的行通常是连续的
+            if (count > 0 && h == last) {
+                return;
+            }
+            if (count == hashes.length) {
+                // 去重后仍然放不下时再扩容
+                count = distinct(hashes, count);
+                if (count > hashes.length / 2) {
+                    hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                }
+            }
+            hashes[count++] = h;
+            last = h;
+        }
+
+        /**
+         * 生成过滤器并保存到 .sym 文件
+         */
+        public SymbolBloom save(Path csv) {
+            if (version == null || !version.equals(Sidecars.version(csv))) {
+                return null;
+            }
+            int n = distinct(hashes, count);
+            int words = (int) Math.max(1, ((long) n * BITS_PER_SYMBOL + 63) / 64);
+            SymbolBloom bloom = new SymbolBloom(version.size(), version.mtime(), n, new long[words]);
+            long bits = (long) words * 64;
+            for (int i = 0; i < n; i++) {
+                int h1 = (int) hashes[i];
+                int h2 = (int) (hashes[i] >>> 32);
+                for (int k = 1; k <= HASHES; k++) {
+                    long bit = Integer.toUnsignedLong(h1 + k * h2) % bits;
+                    bloom.words[(int) (bit >>> 6)] |= 1L << bit;
+                }
+            }
+            write(Sidecars.path(csv, SUFFIX), bloom);
+            synchronized (CACHE) {
+                CACHE.put(csv, bloom);
+            }
+            return bloom;
+        }
+
+        private static int distinct(long[] values, int count) {
+            Arrays.sort(values, 0, count);
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (n == 0 || values[n - 1] != values[i]) {
+                    values[n++] = values[i];
+                }
+            }
+            return n;
+        }
+    }
+
+    // ---------------------------------------------------------------- 读写 .sym
+
+    private static SymbolBloom read(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long csvSize = in.readLong();
+            long csvMtime = in.readLong();
+            int symbols = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new SymbolBloom(csvSize, csvMtime, symbols, words);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path sidecar, SymbolBloom bloom) {
+        Sidecars.write(sidecar, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(bloom.csvSize);
+            out.writeLong(bloom.csvMtime);
+            out.writeInt(bloom.symbols);
+            out.writeInt(bloom.words.length);
+            for (long word : bloom.words) {
+                out.writeLong(word);
+            }
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.mcp.index;
+
+import com.example.mcp.util.CsvLineReader;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.TimeDecoder;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * tick 文件的稀疏索引：每 STRIDE 行记录一次 (行号, 字节偏移, created_at)
+ * <p>
+ * 索引保存在 CSV 旁边的 .idx 文件中，CSV 的大小或修改时间变化后自动重建。
+ * 翻页时先定位到不超过目标行/目标时间的检查点，再用 FileChannel 从该偏移处读取，
+ * 每次只需读取约 count + STRIDE 行，而不是从文件开头重新扫描。
+ */
+public final class TickIndex {
+
+    public static final String SUFFIX = ".idx";
+    public static final int STRIDE = 256;
+
+    private static final int MAGIC = 0x56544958; // "VTIX"
+    private static final int VERSION = 2;     // 2：检查点的时间为截至该行最后一个有效时间
+    private static final int CACHE_SIZE = 1024;
+
+    // 最近使用的索引，避免每一页都重新读取 .idx
+    private static final Map<Path, TickIndex> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, TickIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final long csvSize;
+    private final long csvMtime;
+    private final int timeColumn;
+    private final long rowCount;
+    private final boolean sorted;     // created_at 是否单调不减，只有有序时才能按时间定位
+    private final long[] offsets;     // 第 k 个检查点（第 k * STRIDE 行）的字节偏移
+    private final long[] times;       // 截至第 k 个检查点（含）最后一个有效的时间，之前都无效时为 INVALID
+
+    private TickIndex(long csvSize, long csvMtime, int timeColumn, long rowCount, boolean sorted,
+                      long[] offsets, long[] times) {
+        this.csvSize = csvSize;
+        this.csvMtime = csvMtime;
+        this.timeColumn = timeColumn;
+        this.rowCount = rowCount;
+        this.sorted = sorted;
+        this.offsets = offsets;
+        this.times = times;
+    }
+
+    /**
+     * 定位结果：从 offset 处开始读取，读到的第一行是第 row 行（数据行，从 0 开始，不含表头）
+     */
+    public record Checkpoint(long row, long offset) {
+    }
+
+    /**
+     * 获取 tick 文件的索引，优先使用内存和磁盘上的索引，失效时重建
+     *
+     * @param csv        tick 文件
+     * @param timeColumn created_at 所在列
+     * @return 索引，文件无法读取时返回 null
+     */
+    public static TickIndex of(Path csv, int timeColumn) {
+        Sidecars.Version version = Sidecars.version(csv);
+        if (version == null) {
+            return null;
+        }
+        long size = version.size();
+        long mtime = version.mtime();
+
+        TickIndex index;
+        synchronized (CACHE) {
+            index = CACHE.get(csv);
+        }
+        if (index != null && index.matches(size, mtime, timeColumn)) {
+            return index;
+        }
+        Path sidecar = sidecar(csv);
+        index = read(sidecar);
+        if (index == null || !index.matches(size, mtime, timeColumn)) {
+            try {
+                index = build(csv, timeColumn, size, mtime);
+            } catch (IOException e) {
+                System.err.println("构建tick索引失败: " + e.getMessage());
+                return null;
+            }
+            write(sidecar, index);
+        }
+        synchronized (CACHE) {
+            CACHE.put(csv, index);
+        }
+        return index;
+    }
+
+    public static Path sidecar(Path csv) {
+        return Sidecars.path(csv, SUFFIX);
+    }
+
+    private boolean matches(long size, long mtime, int column) {
+        return csvSize == size && csvMtime == mtime && timeColumn == column;
+    }
+
+    public long rowCount() {
+        return rowCount;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * 定位到第 row 行之前最近的检查点
+     */
+    public Checkpoint seekRow(long row) {
+        int k = (int) Math.min(Math.max(row, 0) / STRIDE, offsets.length - 1);
+        return new Checkpoint((long) k * STRIDE, offsets[k]);
+    }
+
+    /**
+     * 定位到时间早于 epochMillis 的最后一个检查点（相同时间可能跨越多个检查点），
+     * 文件无序时返回第一个检查点
+     */
+    public Checkpoint seekTime(long epochMillis) {
+        if (!sorted) {
+            return new Checkpoint(0, offsets[0]);
+        }
+        int lo = 0;
+        int hi = times.length - 1;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < epochMillis) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return new Checkpoint((long) found * STRIDE, offsets[found]);
+    }
+
+    /**
+     * 同时满足行号和时间条件时，取两个检查点中靠后的一个
+     */
+    public Checkpoint seek(long row, long epochMillis) {
+        Checkpoint byRow = seekRow(row);
+        if (epochMillis == TimeDecoder.INVALID) {
+            return byRow;
+        }
+        Checkpoint byTime = seekTime(epochMillis);
+        return byTime.row() > byRow.row() ? byTime : byRow;
+    }
+
+    // ---------------------------------------------------------------- 构建
+
+    static TickIndex build(Path csv, int timeColumn, long size, long mtime) throws IOException {
+        long[] offsets = new long[16];
+        long[] times = new long[16];
+        int entries = 0;
+        long row = 0;
+        boolean sorted = true;
+        long previous = Long.MIN_VALUE;
+        long firstRowOffset = 0;
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        try (CsvLineReader reader = CsvLineReader.open(csv)) {
+            // 跳过表头
+            if (reader.next()) {
+                firstRowOffset = reader.nextOffset();
+            }
+            while (reader.next()) {
+                tokenizer.reset(reader.buffer(), reader.start(), reader.length(), timeColumn + 1);
+                long time = tokenizer.fieldCount() > timeColumn
+                        ? TimeDecoder.decode(tokenizer, timeColumn)
+                        : TimeDecoder.INVALID;
+                if (time != TimeDecoder.INVALID) {
+                    if (time < previous) {
+                        sorted = false;
+                    }
+                    previous = time;
+                }
+                if (row % STRIDE == 0) {
+                    if (entries == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, entries * 2);
+                        times = Arrays.copyOf(times, entries * 2);
+                    }
+                    offsets[entries] = reader.offset();
+                    // 检查点的时间无法解析时沿用之前最后一个有效时间，二分查找时不会被当作最早的时间而跳到后面
+                    times[entries] = previous;
+                    entries++;
+                }
+                row++;
+            }
+        }
+        if (entries == 0) {
+            // 空文件：唯一的检查点指向表头之后
+            offsets[0] = firstRowOffset;
+            times[0] = TimeDecoder.INVALID;
+            entries = 1;
+        }
+        return new TickIndex(size, mtime, timeColumn, row, sorted,
+                Arrays.copyOf(offsets, entries), Arrays.copyOf(times, entries));
+    }
+
+    // ---------------------------------------------------------------- 读写 .idx
+
+    private static TickIndex read(Path sidecar) {
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long csvSize = in.readLong();
+            long csvMtime = in.readLong();
+            int timeColumn = in.readInt();
+            long rowCount = in.readLong();
+            boolean sorted = in.readBoolean();
+            int entries = in.readInt();
+            long[] offsets = new long[entries];
+            long[] times = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                offsets[i] = in.readLong();
+                times[i] = in.readLong();
+            }
+            return new TickIndex(csvSize, csvMtime, timeColumn, rowCount, sorted, offsets, times);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path sidecar, TickIndex index) {
+        Sidecars.write(sidecar, out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(index.csvSize);
+            out.writeLong(index.csvMtime);
+            out.writeInt(index.timeColumn);
+            out.writeLong(index.rowCount);
+            out.writeBoolean(index.sorted);
+            out.writeInt(index.offsets.length);
+            for (int i = 0; i < index.offsets.length; i++) {
+                out.writeLong(index.offsets[i]);
+                out.writeLong(index.times[i]);
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "TickIndex[rows=" + rowCount + ", checkpoints=" + offsets.length + ", sorted=" + sorted + "]";
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.mcp.indicator;
+
+/**
+ * 指数移动平均的状态，前 n 个值用简单平均作为初值
+ */
+final class EmaState {
+
+    private final int period;
+    private final double alpha;
+    private int count;
+    private double value;
+
+    /**
+     * @param period 周期
+     * @param alpha  平滑系数，EMA 为 2 / (n + 1)，Wilder 平滑为 1 / n
+     */
+    EmaState(int period, double alpha) {
+        this.period = period;
+        this.alpha = alpha;
+    }
+
+    static EmaState ema(int period) {
+        return new EmaState(period, 2.0 / (period + 1));
+    }
+
+    static EmaState wilder(int period) {
+        return new EmaState(period, 1.0 / period);
+    }
+
+    /**
+     * @return 当前值，不足 period 个值时返回 NaN
+     */
+    double update(double x) {
+        count++;
+        if (count < period) {
+            value += x;
+            return Double.NaN;
+        }
+        if (count == period) {
+            value = (value + x) / period;
+        } else {
+            value += alpha * (x - value);
+        }
+        return value;
+    }
+
+    double value() {
+        return count >= period ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.mcp.indicator;
+
+/**
+ * 增量计算的技术指标：每根 K 线更新一次，状态大小与序列长度无关
+ */
+public interface Indicator {
+
+    /**
+     * 输出的列名，一个指标可以输出多列（如 MACD 的 dif、dea、macd）
+     */
+    String[] names();
+
+    /**
+     * 得到第一个有效值之前需要的 K 线根数
+     */
+    int lookback();
+
+    /**
+     * 加入一根 K 线，把各列的当前值写入 out[offset..offset + names().length)，尚无有效值时写入 NaN
+     */
+    void update(double high, double low, double close, double amount, double volume, long eob,
+                double[] out, int offset);
+}
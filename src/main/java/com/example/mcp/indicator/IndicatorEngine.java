@@ -0,0 +1,79 @@
+package com.example.mcp.indicator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 同时计算多个指标，每根 K 线输出一行
+ */
+public class IndicatorEngine {
+
+    private final List<Indicator> indicators = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final int[] offsets;
+    private int lookback;
+    private boolean started;    // 已经加入过有效的 K 线
+
+    /**
+     * @param specs 指标写法，见 Indicators
+     * @throws IllegalArgumentException 没有指标或指标写法错误
+     */
+    public IndicatorEngine(List<String> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个指标");
+        }
+        offsets = new int[specs.size()];
+        for (String spec : specs) {
+            Indicator indicator = Indicators.parse(spec);
+            offsets[indicators.size()] = names.size();
+            indicators.add(indicator);
+            names.addAll(List.of(indicator.names()));
+            lookback = Math.max(lookback, indicator.lookback());
+        }
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * 每行的列数
+     */
+    public int width() {
+        return names.size();
+    }
+
+    /**
+     * 所有指标都得到有效值之前需要的 K 线根数
+     */
+    public int lookback() {
+        return lookback;
+    }
+
+    /**
+     * 加入一根 K 线，把各指标的当前值写入 row
+     * <p>
+     * 空字段解析为 NaN，NaN 进入环形缓冲区、EMA 或 VWAP 的累计值后会一直传播，所以在这里过滤：
+     * 最高、最低或收盘价为空的缺口行不参与计算，row 保持上一根 K 线的值（还没有 K 线时为 NaN）；
+     * 成交额、成交量为空时按 0 计算。
+     */
+    public void update(double high, double low, double close, double amount, double volume, long eob, double[] row) {
+        if (Double.isNaN(high) || Double.isNaN(low) || Double.isNaN(close)) {
+            if (!started) {
+                Arrays.fill(row, 0, names.size(), Double.NaN);
+            }
+            return;
+        }
+        started = true;
+        if (Double.isNaN(amount)) {
+            amount = 0;
+        }
+        if (Double.isNaN(volume)) {
+            volume = 0;
+        }
+        for (int i = 0; i < indicators.size(); i++) {
+            indicators.get(i).update(high, low, close, amount, volume, eob, row, offsets[i]);
+        }
+    }
+}
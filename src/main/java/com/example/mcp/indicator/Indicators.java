@@ -0,0 +1,327 @@
+package com.example.mcp.indicator;
+
+import com.example.mcp.util.TimeDecoder;
+
+import java.util.Locale;
+
+/**
+ * 指标的实现和解析
+ * <p>
+ * 指标写法为 名称[:参数[:参数...]]，参数省略时使用常用默认值：
+ * <ul>
+ *     <li>sma:20、ema:20：简单/指数移动平均</li>
+ *     <li>rsi:14：相对强弱指标，Wilder 平滑</li>
+ *     <li>macd:12:26:9：输出 dif、dea、macd，macd 柱按国内习惯为 2 * (dif - dea)</li>
+ *     <li>boll:20:2：输出 mid、upper、lower，使用总体标准差</li>
+ *     <li>atr:14：平均真实波幅，Wilder 平滑</li>
+ *     <li>vwap：成交量加权均价，日内数据每个交易日重新累计；vwap:n 为最近 n 根的滚动 VWAP</li>
+ * </ul>
+ */
+public final class Indicators {
+
+    private Indicators() {
+    }
+
+    /**
+     * 解析一个指标
+     *
+     * @throws IllegalArgumentException 不支持的指标或参数
+     */
+    public static Indicator parse(String spec) {
+        String[] parts = spec.trim().toLowerCase(Locale.ROOT).split("[:(),\\s]+");
+        String name = parts[0];
+        return switch (name) {
+            case "sma", "ma" -> new Sma(param(spec, parts, 1, 20));
+            case "ema" -> new Ema(param(spec, parts, 1, 20));
+            case "rsi" -> new Rsi(param(spec, parts, 1, 14));
+            case "macd" -> new Macd(param(spec, parts, 1, 12), param(spec, parts, 2, 26), param(spec, parts, 3, 9));
+            case "boll", "bollinger" -> new Bollinger(param(spec, parts, 1, 20), decimal(spec, parts, 2, 2.0));
+            case "atr" -> new Atr(param(spec, parts, 1, 14));
+            case "vwap" -> new Vwap(parts.length > 1 ? param(spec, parts, 1, 0) : 0);
+            default -> throw new IllegalArgumentException("不支持的指标: " + spec + ", 可选 sma,ema,rsi,macd,boll,atr,vwap");
+        };
+    }
+
+    private static int param(String spec, String[] parts, int index, int defaultValue) {
+        if (parts.length <= index) {
+            return defaultValue;
+        }
+        try {
+            int value = Integer.parseInt(parts[index]);
+            if (value <= 0 || value > 10_000) {
+                throw new IllegalArgumentException("指标参数超出范围: " + spec);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("指标参数不是整数: " + spec);
+        }
+    }
+
+    private static double decimal(String spec, String[] parts, int index, double defaultValue) {
+        if (parts.length <= index) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(parts[index]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("指标参数不是数字: " + spec);
+        }
+    }
+
+    static final class Sma implements Indicator {
+        private final RingBuffer window;
+        private final String[] names;
+
+        Sma(int period) {
+            this.window = new RingBuffer(period);
+            this.names = new String[]{"sma" + period};
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return window.capacity();
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            window.add(close);
+            out[offset] = window.isFull() ? window.mean() : Double.NaN;
+        }
+    }
+
+    static final class Ema implements Indicator {
+        private final int period;
+        private final EmaState ema;
+        private final String[] names;
+
+        Ema(int period) {
+            this.period = period;
+            this.ema = EmaState.ema(period);
+            this.names = new String[]{"ema" + period};
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return period;
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            out[offset] = ema.update(close);
+        }
+    }
+
+    static final class Rsi implements Indicator {
+        private final int period;
+        private final EmaState gain;
+        private final EmaState loss;
+        private final String[] names;
+        private double previous = Double.NaN;
+
+        Rsi(int period) {
+            this.period = period;
+            this.gain = EmaState.wilder(period);
+            this.loss = EmaState.wilder(period);
+            this.names = new String[]{"rsi" + period};
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return period + 1;
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            if (Double.isNaN(previous)) {
+                previous = close;
+                out[offset] = Double.NaN;
+                return;
+            }
+            double change = close - previous;
+            previous = close;
+            double avgGain = gain.update(Math.max(change, 0.0));
+            double avgLoss = loss.update(Math.max(-change, 0.0));
+            if (Double.isNaN(avgGain)) {
+                out[offset] = Double.NaN;
+            } else if (avgLoss == 0.0) {
+                out[offset] = avgGain == 0.0 ? 50.0 : 100.0;
+            } else {
+                out[offset] = 100.0 - 100.0 / (1.0 + avgGain / avgLoss);
+            }
+        }
+    }
+
+    static final class Macd implements Indicator {
+        private final int slowPeriod;
+        private final int signalPeriod;
+        private final EmaState fast;
+        private final EmaState slow;
+        private final EmaState signal;
+        private final String[] names = {"dif", "dea", "macd"};
+
+        Macd(int fastPeriod, int slowPeriod, int signalPeriod) {
+            this.slowPeriod = slowPeriod;
+            this.signalPeriod = signalPeriod;
+            this.fast = EmaState.ema(fastPeriod);
+            this.slow = EmaState.ema(slowPeriod);
+            this.signal = EmaState.ema(signalPeriod);
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return slowPeriod + signalPeriod - 1;
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            double dif = fast.update(close) - slow.update(close);
+            double dea = Double.isNaN(dif) ? Double.NaN : signal.update(dif);
+            out[offset] = dif;
+            out[offset + 1] = dea;
+            out[offset + 2] = 2.0 * (dif - dea);
+        }
+    }
+
+    static final class Bollinger implements Indicator {
+        private final RingBuffer window;
+        private final double width;
+        private final String[] names = {"boll_mid", "boll_upper", "boll_lower"};
+
+        Bollinger(int period, double width) {
+            this.window = new RingBuffer(period);
+            this.width = width;
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return window.capacity();
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            window.add(close);
+            if (!window.isFull()) {
+                out[offset] = out[offset + 1] = out[offset + 2] = Double.NaN;
+                return;
+            }
+            double mid = window.mean();
+            double band = width * window.stdDev();
+            out[offset] = mid;
+            out[offset + 1] = mid + band;
+            out[offset + 2] = mid - band;
+        }
+    }
+
+    static final class Atr implements Indicator {
+        private final int period;
+        private final EmaState average;
+        private final String[] names;
+        private double previousClose = Double.NaN;
+
+        Atr(int period) {
+            this.period = period;
+            this.average = EmaState.wilder(period);
+            this.names = new String[]{"atr" + period};
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return period;
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            double range = high - low;
+            if (!Double.isNaN(previousClose)) {
+                range = Math.max(range, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+            }
+            previousClose = close;
+            out[offset] = average.update(range);
+        }
+    }
+
+    static final class Vwap implements Indicator {
+        private final RingBuffer amounts;   // 滚动窗口时使用
+        private final RingBuffer volumes;
+        private final String[] names;
+        private double cumulativeAmount;
+        private double cumulativeVolume;
+        private long day = Long.MIN_VALUE;
+
+        Vwap(int period) {
+            this.amounts = period > 0 ? new RingBuffer(period) : null;
+            this.volumes = period > 0 ? new RingBuffer(period) : null;
+            this.names = new String[]{period > 0 ? "vwap" + period : "vwap"};
+        }
+
+        @Override
+        public String[] names() {
+            return names;
+        }
+
+        @Override
+        public int lookback() {
+            return amounts == null ? 1 : amounts.capacity();
+        }
+
+        @Override
+        public void update(double high, double low, double close, double amount, double volume, long eob,
+                           double[] out, int offset) {
+            // 没有成交额时用典型价估算
+            double value = amount > 0 ? amount : (high + low + close) / 3.0 * volume;
+            if (amounts != null) {
+                amounts.add(value);
+                volumes.add(volume);
+                double sum = volumes.mean();
+                out[offset] = amounts.isFull() && sum > 0 ? amounts.mean() / sum : Double.NaN;
+                return;
+            }
+            // eob 为次日 0 点的日内 K 线仍属于前一天
+            long barDay = TimeDecoder.day(eob - 1);
+            if (barDay != day) {
+                day = barDay;
+                cumulativeAmount = 0.0;
+                cumulativeVolume = 0.0;
+            }
+            cumulativeAmount += value;
+            cumulativeVolume += volume;
+            out[offset] = cumulativeVolume > 0 ? cumulativeAmount / cumulativeVolume : Double.NaN;
+        }
+    }
+}
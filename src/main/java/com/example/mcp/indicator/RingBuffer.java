@@ -0,0 +1,54 @@
+package com.example.mcp.indicator;
+
+/**
+ * 定长 double 环形缓冲区，同时维护窗口内的和与平方和
+ */
+final class RingBuffer {
+
+    private final double[] values;
+    private int next;
+    private int size;
+    private double sum;
+    private double sumOfSquares;
+
+    RingBuffer(int capacity) {
+        this.values = new double[capacity];
+    }
+
+    /**
+     * 加入一个值，缓冲区已满时挤出最早的值
+     */
+    void add(double value) {
+        if (size == values.length) {
+            double old = values[next];
+            sum -= old;
+            sumOfSquares -= old * old;
+        } else {
+            size++;
+        }
+        values[next] = value;
+        next = (next + 1) % values.length;
+        sum += value;
+        sumOfSquares += value * value;
+    }
+
+    boolean isFull() {
+        return size == values.length;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    double mean() {
+        return sum / size;
+    }
+
+    /**
+     * 总体标准差
+     */
+    double stdDev() {
+        double mean = mean();
+        return Math.sqrt(Math.max(sumOfSquares / size - mean * mean, 0.0));
+    }
+}
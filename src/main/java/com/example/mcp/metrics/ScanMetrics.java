@@ -0,0 +1,107 @@
+package com.example.mcp.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取数据的静态计量入口，CsvLineReader、PartitionCache、CsvMerger、VvtrData 等静态或底层代码直接调用
+ * <p>
+ * 指标注册在 Micrometer 的全局注册表上，VvtrMetrics 启动后把自己的注册表加入其中；
+ * 没有加入任何注册表时（单元测试、基准测试）所有记录都是空操作。
+ * <ul>
+ *     <li>vvtr.io.files.opened / vvtr.io.bytes.read：从磁盘打开的文件数和读取的字节数，缓存命中不计入</li>
+ *     <li>vvtr.scan.latency：每个读取方法的耗时，tag operation 为方法名</li>
+ *     <li>vvtr.scan.rows.scanned / vvtr.scan.rows.returned：读取的数据行数和返回的行数</li>
+ *     <li>vvtr.scan.files.pruned：通过 sidecar 判断不需要读取而跳过的文件数</li>
+ * </ul>
+ */
+public final class ScanMetrics {
+
+    public static final String FILES_OPENED = "vvtr.io.files.opened";
+    public static final String BYTES_READ = "vvtr.io.bytes.read";
+    public static final String SCAN_LATENCY = "vvtr.scan.latency";
+    public static final String ROWS_SCANNED = "vvtr.scan.rows.scanned";
+    public static final String ROWS_RETURNED = "vvtr.scan.rows.returned";
+    public static final String FILES_PRUNED = "vvtr.scan.files.pruned";
+    public static final String OPERATION_TAG = "operation";
+
+    private static final Counter FILES_OPENED_COUNTER = Metrics.counter(FILES_OPENED);
+    private static final Counter BYTES_READ_COUNTER = Metrics.counter(BYTES_READ);
+    private static final Map<String, Operation> OPERATIONS = new ConcurrentHashMap<>();
+
+    private ScanMetrics() {
+    }
+
+    public static void fileOpened() {
+        FILES_OPENED_COUNTER.increment();
+    }
+
+    public static void bytesRead(long bytes) {
+        if (bytes > 0) {
+            BYTES_READ_COUNTER.increment(bytes);
+        }
+    }
+
+    /**
+     * 开始一次读取，close 时记录耗时
+     */
+    public static Scan start(String operation) {
+        return new Scan(OPERATIONS.computeIfAbsent(operation, Operation::new), System.nanoTime());
+    }
+
+    private static final class Operation {
+        final Timer latency;
+        final Counter scanned;
+        final Counter returned;
+        final Counter pruned;
+
+        Operation(String name) {
+            this.latency = Timer.builder(SCAN_LATENCY)
+                    .tag(OPERATION_TAG, name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(Metrics.globalRegistry);
+            this.scanned = Metrics.counter(ROWS_SCANNED, OPERATION_TAG, name);
+            this.returned = Metrics.counter(ROWS_RETURNED, OPERATION_TAG, name);
+            this.pruned = Metrics.counter(FILES_PRUNED, OPERATION_TAG, name);
+        }
+    }
+
+    /**
+     * 一次读取，可以在多个扫描线程中同时记录
+     */
+    public static final class Scan implements AutoCloseable {
+        private final Operation operation;
+        private final long startNanos;
+
+        private Scan(Operation operation, long startNanos) {
+            this.operation = operation;
+            this.startNanos = startNanos;
+        }
+
+        public void scanned(long rows) {
+            if (rows > 0) {
+                operation.scanned.increment(rows);
+            }
+        }
+
+        public void returned(long rows) {
+            if (rows > 0) {
+                operation.returned.increment(rows);
+            }
+        }
+
+        public void pruned() {
+            operation.pruned.increment();
+        }
+
+        @Override
+        public void close() {
+            operation.latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mcp.metrics;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * 记录工具耗时的 ToolCallback，其余行为与被包装的工具相同
+ */
+public class TimedToolCallback implements ToolCallback {
+
+    private final ToolCallback delegate;
+    private final VvtrMetrics metrics;
+
+    public TimedToolCallback(ToolCallback delegate, VvtrMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return call(toolInput, null);
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            String result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+            error = false;
+            return result;
+        } finally {
+            metrics.recordTool(getToolDefinition().name(), System.nanoTime() - start, error);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.mcp.metrics;
+
+import com.example.mcp.cache.PartitionCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务的运行指标：工具耗时、读取的文件、字节和行数、分区缓存命中率
+ * <p>
+ * 指标保存在进程内的 SimpleMeterRegistry 中，启动时加入 Micrometer 的全局注册表，ScanMetrics 的记录也会出现在这里。
+ * 以 JSON 形式作为 MCP 资源 {@value #RESOURCE_URI} 提供；配置了 vvtr.metrics.prometheus-file 时，
+ * 每隔 vvtr.metrics.dump-interval-seconds 秒以 Prometheus 文本格式写入该文件（先写临时文件再替换）。
+ * <p>
+ * 耗时的 p50/p99 为最近几分钟内的值，count、计数器为启动以来的累计值。
+ */
+@Component
+public class VvtrMetrics {
+
+    public static final String RESOURCE_URI = "vvtr://metrics";
+    public static final String TOOL_LATENCY = "vvtr.tool.latency";
+    public static final String TOOL_ERRORS = "vvtr.tool.errors";
+    public static final String TOOL_TAG = "tool";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PartitionCache partitionCache;
+    private final Path prometheusFile;
+    private final ScheduledExecutorService dumper;
+
+    public VvtrMetrics(PartitionCache partitionCache,
+                       @Value("${vvtr.metrics.prometheus-file:}") String prometheusFile,
+                       @Value("${vvtr.metrics.dump-interval-seconds:60}") long dumpIntervalSeconds) {
+        this.partitionCache = partitionCache;
+        Metrics.addRegistry(registry);
+        FunctionCounter.builder("vvtr.cache.hits", partitionCache, PartitionCache::hitCount).register(registry);
+        FunctionCounter.builder("vvtr.cache.misses", partitionCache, PartitionCache::missCount).register(registry);
+        FunctionCounter.builder("vvtr.cache.loads", partitionCache, PartitionCache::loadCount).register(registry);
+        FunctionCounter.builder("vvtr.cache.evictions", partitionCache, PartitionCache::evictionCount).register(registry);
+        Gauge.builder("vvtr.cache.bytes", partitionCache, PartitionCache::weight).register(registry);
+        Gauge.builder("vvtr.cache.entries", partitionCache, PartitionCache::size).register(registry);
+        Gauge.builder("vvtr.cache.hit.ratio", partitionCache, VvtrMetrics::hitRatio).register(registry);
+
+        if (prometheusFile == null || prometheusFile.isBlank()) {
+            this.prometheusFile = null;
+            this.dumper = null;
+        } else {
+            this.prometheusFile = Path.of(prometheusFile);
+            long interval = Math.max(dumpIntervalSeconds, 1);
+            this.dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "vvtr-metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleWithFixedDelay(this::dumpQuietly, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * 记录一次工具调用
+     *
+     * @param error 是否抛出了异常
+     */
+    public void recordTool(String tool, long nanos, boolean error) {
+        Timer.builder(TOOL_LATENCY)
+                .tag(TOOL_TAG, tool)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (error) {
+            Counter.builder(TOOL_ERRORS).tag(TOOL_TAG, tool).register(registry).increment();
+        }
+    }
+
+    /**
+     * 当前指标，tools、operations 按名称排序，耗时单位为毫秒
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> tools = new TreeMap<>();
+        for (Timer timer : registry.find(TOOL_LATENCY).timers()) {
+            String tool = timer.getId().getTag(TOOL_TAG);
+            Map<String, Object> values = latency(timer);
+            Counter errors = registry.find(TOOL_ERRORS).tag(TOOL_TAG, tool).counter();
+            values.put("errors", errors == null ? 0L : (long) errors.count());
+            tools.put(tool, values);
+        }
+
+        Map<String, Object> operations = new TreeMap<>();
+        for (Timer timer : registry.find(ScanMetrics.SCAN_LATENCY).timers()) {
+            String operation = timer.getId().getTag(ScanMetrics.OPERATION_TAG);
+            Map<String, Object> values = latency(timer);
+            long scanned = count(ScanMetrics.ROWS_SCANNED, operation);
+            long returned = count(ScanMetrics.ROWS_RETURNED, operation);
+            values.put("rowsScanned", scanned);
+            values.put("rowsReturned", returned);
+            values.put("returnedRatio", scanned == 0 ? null : round((double) returned / scanned));
+            values.put("filesPruned", count(ScanMetrics.FILES_PRUNED, operation));
+            operations.put(operation, values);
+        }
+
+        Map<String, Object> io = new LinkedHashMap<>();
+        io.put("filesOpened", count(ScanMetrics.FILES_OPENED, null));
+        io.put("bytesRead", count(ScanMetrics.BYTES_READ, null));
+
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hits", partitionCache.hitCount());
+        cache.put("misses", partitionCache.missCount());
+        cache.put("hitRatio", round(hitRatio(partitionCache)));
+        cache.put("loads", partitionCache.loadCount());
+        cache.put("evictions", partitionCache.evictionCount());
+        cache.put("bytes", partitionCache.weight());
+        cache.put("entries", partitionCache.size());
+        cache.put("maxBytes", partitionCache.maxBytes());
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("tools", tools);
+        snapshot.put("operations", operations);
+        snapshot.put("io", io);
+        snapshot.put("cache", cache);
+        return snapshot;
+    }
+
+    public String json() {
+        try {
+            return MAPPER.writeValueAsString(snapshot());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("指标序列化失败", e);
+        }
+    }
+
+    /**
+     * Prometheus 文本格式：计时器为 summary（单位秒），计数器加 _total 后缀
+     */
+    public String prometheus() {
+        Map<String, StringBuilder> families = new TreeMap<>();
+        List<Meter> meters = registry.getMeters().stream()
+                .sorted(Comparator.comparing((Meter m) -> m.getId().getName()).thenComparing(m -> m.getId().getTags().toString()))
+                .toList();
+        for (Meter meter : meters) {
+            String name = meter.getId().getName().replace('.', '_');
+            String labels = labels(meter.getId().getTags(), null);
+            if (meter instanceof Timer timer) {
+                String base = name + "_seconds";
+                StringBuilder family = family(families, base, "summary");
+                for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                    family.append(base).append(labels(meter.getId().getTags(), percentile.percentile()))
+                            .append(' ').append(number(percentile.value(TimeUnit.SECONDS))).append('\n');
+                }
+                family.append(base).append("_count").append(labels).append(' ').append(timer.count()).append('\n');
+                family.append(base).append("_sum").append(labels).append(' ')
+                        .append(number(timer.totalTime(TimeUnit.SECONDS))).append('\n');
+                family(families, base + "_max", "gauge").append(base).append("_max").append(labels).append(' ')
+                        .append(number(timer.max(TimeUnit.SECONDS))).append('\n');
+            } else if (meter instanceof Counter || meter instanceof FunctionCounter) {
+                double value = meter instanceof Counter counter ? counter.count() : ((FunctionCounter) meter).count();
+                family(families, name + "_total", "counter")
+                        .append(name).append("_total").append(labels).append(' ').append(number(value)).append('\n');
+            } else if (meter instanceof Gauge gauge) {
+                family(families, name, "gauge").append(name).append(labels).append(' ').append(number(gauge.value())).append('\n');
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        families.values().forEach(out::append);
+        return out.toString();
+    }
+
+    /**
+     * 把 Prometheus 文本写入 vvtr.metrics.prometheus-file，未配置时不做任何事
+     */
+    public void dump() throws IOException {
+        if (prometheusFile == null) {
+            return;
+        }
+        Path dir = prometheusFile.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, prometheusFile.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, prometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, prometheusFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("写入指标文件失败: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumpQuietly();
+        }
+        Metrics.removeRegistry(registry);
+    }
+
+    private static Map<String, Object> latency(Timer timer) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", timer.count());
+        values.put("meanMs", round(timer.mean(TimeUnit.MILLISECONDS)));
+        values.put("maxMs", round(timer.max(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100) + "Ms", round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return values;
+    }
+
+    // 所有 tag 的计数器之和，operation 不为空时只取该 operation
+    private long count(String name, String operation) {
+        var search = registry.find(name);
+        if (operation != null) {
+            search = search.tag(ScanMetrics.OPERATION_TAG, operation);
+        }
+        double total = 0;
+        for (Counter counter : search.counters()) {
+            total += counter.count();
+        }
+        return (long) total;
+    }
+
+    private static double hitRatio(PartitionCache cache) {
+        long hits = cache.hitCount();
+        long total = hits + cache.missCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static StringBuilder family(Map<String, StringBuilder> families, String name, String type) {
+        return families.computeIfAbsent(name, n -> new StringBuilder("# TYPE ").append(n).append(' ').append(type).append('\n'));
+    }
+
+    private static String labels(List<Tag> tags, Double quantile) {
+        if (tags.isEmpty() && quantile == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (Tag tag : tags) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(tag.getKey().replace('.', '_')).append("=\"").append(escape(tag.getValue())).append('"');
+        }
+        if (quantile != null) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("quantile=\"").append(quantile).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%s", value);
+    }
+}
@@ -12,5 +12,6 @@ import java.util.List;
 @NoArgsConstructor
 public class DataBack {
     private String data;
-    private List<Path> nextPaths;
+    private List<Path> nextPaths;   // 返回游标时为空,继续查询使用游标
+    private String cursor;    // 继续查询的游标,为空即查完
 }
@@ -15,5 +15,6 @@ import java.util.List;
 public class DataLabel {
     private String returnedData;
     private int nextData;
-    private List<Path> paths;
+    private List<Path> paths;       // 返回游标时为空,继续查询使用游标
+    private String cursor;    // 继续查询的游标,为空即查完
 }
@@ -1,16 +1,11 @@
 package com.example.mcp.model;
 
-import com.example.mcp.util.CsvMerger;
+import com.example.mcp.util.TimeDecoder;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.io.IOException;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Arrays;
-import java.util.List;
 import java.util.stream.Collectors;
 
 
@@ -27,19 +22,15 @@ public record KLineData(
         LocalDateTime eob,
         int type
 ) {
-    private static final DateTimeFormatter[] CSV_FORMATTERS = new DateTimeFormatter[]{
-            DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm"),
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-    };
-
+    /**
+     * 解析 yyyy/MM/dd HH:mm、yyyy-MM-dd HH:mm:ss[+0800]、yyyy-MM-dd 格式的时间
+     */
     public static LocalDateTime parseDate(String text) {
-        for (DateTimeFormatter fmt : CSV_FORMATTERS) {
-            try {
-                return LocalDateTime.parse(text, fmt);
-            } catch (DateTimeParseException ignored) {
-            }
+        long millis = TimeDecoder.decode(text);
+        if (millis == TimeDecoder.INVALID) {
+            throw new IllegalArgumentException("无法解析日期: " + text);
         }
-        throw new IllegalArgumentException("无法解析日期: " + text);
+        return TimeDecoder.toLocalDateTime(millis);
     }
 
     /**
@@ -85,6 +76,7 @@ public record KLineData(
 
     /**
      * 解析多行文本（支持 \r?\n 分隔），过滤空行后生成 KLineData 数组。
+     * 数据量较大时使用 KLineSeries.parseCsvLines，按列保存，不为每行创建对象。
      */
     public static KLineData[] parseCsvLines(String lines) {
         return Arrays.stream(lines.split("\\r?\\n"))
@@ -92,10 +84,5 @@ public record KLineData(
                 .map(KLineData::fromCsv)
                 .toArray(KLineData[]::new);
     }
-    public static void main(String[] args) throws IOException {
-        String csvFiles = CsvMerger.mergeCsvFiles(Path.of(CsvMerger.ROOT));
-        List<KLineData> allData = List.of(KLineData.parseCsvLines(csvFiles));
-        System.out.println(allData);
-    }
 
 }
@@ -0,0 +1,385 @@
+package com.example.mcp.model;
+
+import com.example.mcp.util.TimeDecoder;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 按列存放的一组 K 线：每一列是一个基本类型数组，代码保存为编号
+ * <p>
+ * 与 KLineData[] 相比每根 K 线不再有对象、两个 LocalDateTime 和代码字符串的引用，
+ * 每根约 72 字节（KLineData 约 150 字节以上），顺序遍历时数据是连续的。
+ * 时间为 TimeDecoder 的毫秒数；需要 KLineData 时用 {@link #get} 或 {@link #asList} 按需生成。
+ */
+public final class KLineSeries {
+
+    private final String[] symbols;     // 编号到代码
+    private final int size;
+    private final int[] symbolIds;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] amount;
+    private final double[] volume;
+    private final long[] bob;
+    private final long[] eob;
+    private final int[] type;
+
+    private KLineSeries(String[] symbols, int size, int[] symbolIds, double[] open, double[] high, double[] low,
+                        double[] close, double[] amount, double[] volume, long[] bob, long[] eob, int[] type) {
+        this.symbols = symbols;
+        this.size = size;
+        this.symbolIds = symbolIds;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.amount = amount;
+        this.volume = volume;
+        this.bob = bob;
+        this.eob = eob;
+        this.type = type;
+    }
+
+    public static Builder builder() {
+        return new Builder(64);
+    }
+
+    public static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    /**
+     * 与 KLineData.parseCsvLines 相同的输入和校验，结果保存为列
+     *
+     * @throws IllegalArgumentException 字段不足或无法解析
+     */
+    public static KLineSeries parseCsvLines(String lines) {
+        Builder builder = new Builder(64);
+        int[] bounds = new int[20];
+        int length = lines.length();
+        for (int start = 0; start < length; ) {
+            int end = lines.indexOf('\n', start);
+            if (end < 0) {
+                end = length;
+            }
+            int next = end + 1;
+            if (end > start && lines.charAt(end - 1) == '\r') {
+                end--;
+            }
+            if (!isBlank(lines, start, end)) {
+                builder.addCsv(lines, start, end, bounds);
+            }
+            start = next;
+        }
+        return builder.build();
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (!Character.isWhitespace(text.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 不同代码的数量，编号为 0 到 symbolCount() - 1
+     */
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    public String symbolOf(int id) {
+        return symbols[id];
+    }
+
+    public int symbolId(int i) {
+        return symbolIds[i];
+    }
+
+    public String symbol(int i) {
+        return symbols[symbolIds[i]];
+    }
+
+    public double open(int i) {
+        return open[i];
+    }
+
+    public double high(int i) {
+        return high[i];
+    }
+
+    public double low(int i) {
+        return low[i];
+    }
+
+    public double close(int i) {
+        return close[i];
+    }
+
+    public double amount(int i) {
+        return amount[i];
+    }
+
+    public double volume(int i) {
+        return volume[i];
+    }
+
+    public long bob(int i) {
+        return bob[i];
+    }
+
+    public long eob(int i) {
+        return eob[i];
+    }
+
+    public int type(int i) {
+        return type[i];
+    }
+
+    /**
+     * 第 i 根 K 线，每次调用生成新的对象
+     */
+    public KLineData get(int i) {
+        return new KLineData(symbol(i), open[i], high[i], low[i], close[i], amount[i], volume[i],
+                TimeDecoder.toLocalDateTime(bob[i]), TimeDecoder.toLocalDateTime(eob[i]), type[i]);
+    }
+
+    /**
+     * 只读的 KLineData 视图，遍历时逐个生成，不保留对象（例如序列化为 JSON 时）
+     */
+    public List<KLineData> asList() {
+        return new View();
+    }
+
+    /**
+     * 按代码、bob 排序后的结果，相同的行保持原来的顺序
+     */
+    public KLineSeries sorted() {
+        // 代码按字符串排序后的名次
+        Integer[] byName = new Integer[symbols.length];
+        for (int id = 0; id < byName.length; id++) {
+            byName[id] = id;
+        }
+        Arrays.sort(byName, (a, b) -> symbols[a].compareTo(symbols[b]));
+        int[] rank = new int[symbols.length];
+        for (int r = 0; r < byName.length; r++) {
+            rank[byName[r]] = r;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] work = new int[size];
+        mergeSort(order, work, 0, size, rank);
+
+        Builder sorted = new Builder(size);
+        for (String symbol : symbols) {
+            sorted.symbolId(symbol);
+        }
+        for (int i : order) {
+            sorted.add(symbolIds[i], open[i], high[i], low[i], close[i], amount[i], volume[i], bob[i], eob[i], type[i]);
+        }
+        return sorted.build();
+    }
+
+    private int compare(int a, int b, int[] rank) {
+        int c = Integer.compare(rank[symbolIds[a]], rank[symbolIds[b]]);
+        return c != 0 ? c : Long.compare(bob[a], bob[b]);
+    }
+
+    // 稳定的归并排序，已经有序时只比较一遍
+    private void mergeSort(int[] order, int[] work, int from, int to, int[] rank) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(order, work, from, mid, rank);
+        mergeSort(order, work, mid, to, rank);
+        if (compare(order[mid - 1], order[mid], rank) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, work, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compare(work[i], work[j], rank) <= 0)) {
+                order[k] = work[i++];
+            } else {
+                order[k] = work[j++];
+            }
+        }
+    }
+
+    private final class View extends AbstractList<KLineData> implements RandomAccess {
+        @Override
+        public KLineData get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return KLineSeries.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * 逐根追加 K 线，数组按需扩容，不为每根 K 线创建对象
+     */
+    public static final class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] symbols = new String[4];
+        private int size;
+        private int[] symbolIds;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private double[] amount;
+        private double[] volume;
+        private long[] bob;
+        private long[] eob;
+        private int[] type;
+
+        private Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            symbolIds = new int[capacity];
+            open = new double[capacity];
+            high = new double[capacity];
+            low = new double[capacity];
+            close = new double[capacity];
+            amount = new double[capacity];
+            volume = new double[capacity];
+            bob = new long[capacity];
+            eob = new long[capacity];
+            type = new int[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 代码的编号，第一次出现时分配
+         */
+        public int symbolId(String symbol) {
+            Integer id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            int next = ids.size();
+            if (next == symbols.length) {
+                symbols = Arrays.copyOf(symbols, next * 2);
+            }
+            symbols[next] = symbol;
+            ids.put(symbol, next);
+            return next;
+        }
+
+        public Builder add(String symbol, double open, double high, double low, double close,
+                           double amount, double volume, long bob, long eob, int type) {
+            return add(symbolId(symbol), open, high, low, close, amount, volume, bob, eob, type);
+        }
+
+        /**
+         * @param symbolId {@link #symbolId} 返回的编号
+         */
+        public Builder add(int symbolId, double open, double high, double low, double close,
+                           double amount, double volume, long bob, long eob, int type) {
+            if (size == symbolIds.length) {
+                grow();
+            }
+            this.symbolIds[size] = symbolId;
+            this.open[size] = open;
+            this.high[size] = high;
+            this.low[size] = low;
+            this.close[size] = close;
+            this.amount[size] = amount;
+            this.volume[size] = volume;
+            this.bob[size] = bob;
+            this.eob[size] = eob;
+            this.type[size] = type;
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            int capacity = symbolIds.length * 2;
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            amount = Arrays.copyOf(amount, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+            bob = Arrays.copyOf(bob, capacity);
+            eob = Arrays.copyOf(eob, capacity);
+            type = Arrays.copyOf(type, capacity);
+        }
+
+        // 与 KLineData.fromCsv 相同：逗号或 Tab 分隔，至少 10 列
+        private void addCsv(String text, int start, int end, int[] bounds) {
+            int fields = 0;
+            int fieldStart = start;
+            for (int p = start; p <= end && fields < 10; p++) {
+                if (p == end || text.charAt(p) == ',' || text.charAt(p) == '\t') {
+                    bounds[fields * 2] = fieldStart;
+                    bounds[fields * 2 + 1] = p;
+                    fields++;
+                    fieldStart = p + 1;
+                }
+            }
+            if (fields < 10) {
+                throw new IllegalArgumentException("CSV 字段不足（至少 10 列），出错行：" + text.substring(start, end));
+            }
+            add(text.substring(bounds[0], bounds[1]),
+                    number(text, bounds, 1), number(text, bounds, 2), number(text, bounds, 3),
+                    number(text, bounds, 4), number(text, bounds, 5), number(text, bounds, 6),
+                    time(text, bounds, 7), time(text, bounds, 8),
+                    Integer.parseInt(text.substring(bounds[18], bounds[19])));
+        }
+
+        private static double number(String text, int[] bounds, int field) {
+            return Double.parseDouble(text.substring(bounds[field * 2], bounds[field * 2 + 1]));
+        }
+
+        private static long time(String text, int[] bounds, int field) {
+            String value = text.substring(bounds[field * 2], bounds[field * 2 + 1]);
+            long millis = TimeDecoder.decode(value);
+            if (millis == TimeDecoder.INVALID) {
+                throw new IllegalArgumentException("无法解析日期: " + value);
+            }
+            return millis;
+        }
+
+        /**
+         * 生成 KLineSeries，数组按实际行数截断
+         */
+        public KLineSeries build() {
+            return new KLineSeries(Arrays.copyOf(symbols, ids.size()), size,
+                    Arrays.copyOf(symbolIds, size), Arrays.copyOf(open, size), Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size), Arrays.copyOf(close, size), Arrays.copyOf(amount, size),
+                    Arrays.copyOf(volume, size), Arrays.copyOf(bob, size), Arrays.copyOf(eob, size),
+                    Arrays.copyOf(type, size));
+        }
+    }
+}
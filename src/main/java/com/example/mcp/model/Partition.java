@@ -0,0 +1,25 @@
+package com.example.mcp.model;
+
+import java.nio.file.Path;
+
+/**
+ * 数据分区：一个 CSV 文件在目录树中的位置信息
+ *
+ * @param type   金融产品种类,eg:A-shares
+ * @param freq   数据类型,eg:1d,1m,15m,tick
+ * @param date   所在日期目录(yyyyMMdd),直接位于 type/freq 下的文件为空字符串
+ * @param symbol 文件名(不含扩展名),1d 为日期,其他为种类代码
+ * @param path   文件路径
+ * @param size   文件大小(字节)
+ * @param mtime  最后修改时间(毫秒)
+ */
+public record Partition(
+        String type,
+        String freq,
+        String date,
+        String symbol,
+        Path path,
+        long size,
+        long mtime
+) {
+}
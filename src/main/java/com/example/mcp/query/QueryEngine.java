@@ -0,0 +1,544 @@
+package com.example.mcp.query;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.columnar.VcolFile;
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.PartitionStats;
+import com.example.mcp.index.SchemaRegistry;
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.index.SymbolBloom;
+import com.example.mcp.index.TickIndex;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.CsvLineReader;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.TimeDecoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * min/day/tick 查询共用的分区扫描
+ * <p>
+ * 每个文件先做计划：已有的 .sym/.stats 能确定没有匹配行时直接跳过（不会为此扫描文件生成 sidecar），
+ * 缺少过滤需要的列时跳过；有 .idx 的 tick 文件按行号和开始时间定位（seek），其它文件从表头之后或游标处顺序读取（scan）。
+ * 之后在同一个循环中完成代码、时间过滤和列投影，每行只切分到需要的最后一列，不需要过滤和投影时不切分。
+ * <p>
+ * 有列存文件（.vcol）的分区改为读取列存：先按块统计跳过整块，再按类型比较代码和时间，只把输出的行还原为 CSV 文本；
+ * 这类分区的位置只记录行号（offset 为 0），列存文件失效后按行号从 CSV 继续，结果不变。
+ * <p>
+ * 计划和扫描都在 ScanPool 上按文件并行执行，结果按文件顺序交给 RowSink，输出与逐个文件扫描一致。
+ * 第一个文件单独扫描（一页通常在这里就已满），读完后再同时扫描多个文件。
+ */
+public class QueryEngine {
+
+    private final PartitionCache partitionCache;
+    private final ScanPool scanPool;
+
+    public QueryEngine(PartitionCache partitionCache, ScanPool scanPool) {
+        this.partitionCache = partitionCache;
+        this.scanPool = scanPool;
+    }
+
+    /**
+     * 单个文件的读取计划
+     *
+     * @param fileSchema 文件的表头
+     * @param schema     输出的表头，没有投影时与 fileSchema 相同
+     * @param projection 输出的列号，为 null 时输出整行
+     * @param offset     开始读取的字节偏移，0 表示从表头之后开始
+     * @param row        offset 处的行号（不含表头，从 0 开始）
+     * @param firstRow   从该行开始输出，之前的行只跳过
+     * @param sorted     created_at 有序，超过结束时间后不再读取
+     * @param columnar   列存文件，为 null 时读取 CSV
+     */
+    public record Partition(int index, Path path, CsvSchema fileSchema, CsvSchema schema, int[] projection,
+                            long offset, long row, long firstRow, boolean sorted, VcolFile columnar) {
+    }
+
+    /**
+     * 按 spec 依次读取文件，把匹配的行交给 sink，直到读完或 sink 已满、达到 limit
+     *
+     * @return 停止的位置（第一条没有输出的行），读完时返回 null
+     * @throws IllegalArgumentException 文件中没有要返回的列
+     */
+    public ScanSpec.Position scan(ScanSpec spec, RowSink sink, ScanMetrics.Scan scan) {
+        List<Path> paths = spec.getPartitions();
+        long limit = spec.getLimit();
+        long emitted = 0;
+        // 同时最多扫描 window 个文件，按顺序取结果，取够后不再提交新的文件
+        int window = 1;
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        int submitted = spec.getFileIndex();
+        try {
+            for (int i = spec.getFileIndex(); i < paths.size(); i++) {
+                while (submitted < paths.size() && submitted - i < window) {
+                    int index = submitted;
+                    pending.add(scanPool.submit(() -> scanPartition(spec, index, scan)));
+                    submitted++;
+                }
+                Chunk chunk = await(pending.poll());
+                if (chunk.partition != null) {
+                    sink.schema(chunk.partition.schema());
+                    while (true) {
+                        int start = 0;
+                        for (int k = 0; k < chunk.count; k++) {
+                            if (emitted >= limit || !sink.row(chunk.rows.buffer(), start, chunk.ends[k] - 1 - start)) {
+                                return new ScanSpec.Position(i, chunk.offsets[k], chunk.rowNumbers[k]);
+                            }
+                            emitted++;
+                            start = chunk.ends[k];
+                        }
+                        if (chunk.nextOffset < 0) {
+                            break;
+                        }
+                        if (emitted >= limit) {
+                            return new ScanSpec.Position(i, chunk.nextOffset, chunk.nextRow);
+                        }
+                        // 文件中还有匹配的行，接着读取
+                        chunk = scanRows(spec, chunk.partition, chunk.nextOffset, chunk.nextRow, chunk.nextRow, scan);
+                    }
+                }
+                window = scanPool.parallelism() * 2;
+            }
+        } finally {
+            pending.forEach(f -> f.cancel(true));
+        }
+        return null;
+    }
+
+    /**
+     * 第 index 个文件的读取计划
+     *
+     * @return 可以跳过的文件返回 null
+     * @throws IllegalArgumentException 文件中没有要返回的列
+     */
+    public Partition plan(ScanSpec spec, int index, ScanMetrics.Scan scan) {
+        Path path = spec.getPartitions().get(index);
+        boolean tick = spec.getTimeColumn() == ScanSpec.TimeColumn.TICK;
+        if (spec.filtersSymbol() && SymbolBloom.definitelyAbsent(path, spec.getSymbol())) {
+            scan.pruned();
+            return null;
+        }
+        if (spec.filtersSymbol() || spec.filtersTime()) {
+            PartitionStats stats = PartitionStats.get(path);
+            if (stats != null && excludes(spec, stats)) {
+                scan.pruned();
+                return null;
+            }
+        }
+        CsvSchema schema = SchemaRegistry.of(path);
+        if (spec.filtersSymbol() && schema.symbolIndex() < 0) {
+            System.err.println("文件缺少symbol列，已跳过: " + path);
+            return null;
+        }
+        int timeIndex = tick ? schema.createdAtIndex() : schema.bobIndex();
+        if (spec.filtersTime() && timeIndex < 0) {
+            System.err.println("文件缺少" + (tick ? CsvSchema.CREATED_AT : CsvSchema.BOB) + "列，已跳过: " + path);
+            return null;
+        }
+        int[] projection = project(path, schema, spec.getColumns());
+        CsvSchema output = projection == null ? schema : SchemaRegistry.intern(header(schema, projection));
+
+        boolean resume = index == spec.getFileIndex();
+        long firstRow = resume ? spec.getRow() : 0L;
+        VcolFile columnar = VcolFile.open(path);
+        // 没有 eob 列且 bob 是最后一列时没有匹配的行，交给 CSV 的逐行读取处理
+        if (columnar != null && (tick || !spec.filtersTime() || eobIndex(schema) < columnar.schema().size())) {
+            if (excludes(spec, columnar)) {
+                scan.pruned();
+                return null;
+            }
+            return new Partition(index, path, schema, output, projection, 0L, firstRow, firstRow, false, columnar);
+        }
+        long offset = resume ? spec.getOffset() : 0L;
+        long row = offset > 0 ? firstRow : 0L;
+        boolean sorted = false;
+        if (tick && timeIndex >= 0) {
+            TickIndex tickIndex = TickIndex.of(path, timeIndex);
+            if (tickIndex != null) {
+                sorted = tickIndex.isSorted();
+                if (offset == 0L) {
+                    // 不限制开始时间时 startTime 为 TimeDecoder.INVALID，只按行号定位
+                    TickIndex.Checkpoint checkpoint = tickIndex.seek(firstRow, spec.getStartTime());
+                    offset = checkpoint.offset();
+                    row = checkpoint.row();
+                }
+            }
+        }
+        return new Partition(index, path, schema, output, projection, offset, row, firstRow, sorted, null);
+    }
+
+    // 统计信息能确定文件中没有匹配的行
+    private static boolean excludes(ScanSpec spec, PartitionStats stats) {
+        if (stats.rowCount() == 0) {
+            return true;
+        }
+        if (spec.filtersSymbol() && !stats.containsSymbol(spec.getSymbol())) {
+            return true;
+        }
+        if (!spec.filtersTime()) {
+            return false;
+        }
+        boolean tick = spec.getTimeColumn() == ScanSpec.TimeColumn.TICK;
+        long min = tick ? stats.minCreatedAt() : stats.minBob();
+        long max = tick ? stats.maxCreatedAt() : stats.maxEob();
+        return (min != TimeDecoder.INVALID && min > spec.getEndTime())
+                || (max != TimeDecoder.INVALID && max < spec.getStartTime());
+    }
+
+    // 列存文件的每一块都没有匹配的行
+    private static boolean excludes(ScanSpec spec, VcolFile file) {
+        if (!spec.filtersSymbol() && !spec.filtersTime()) {
+            return file.rowCount() == 0;
+        }
+        boolean[] symbols = symbols(spec, file);
+        for (int block = 0; block < file.blockCount(); block++) {
+            if (!skips(spec, file, block, symbols)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 列存文件中代码等于 spec.symbol 的字典编号，不过滤代码或代码列不是字典列时返回 null
+     */
+    public static boolean[] symbols(ScanSpec spec, VcolFile file) {
+        if (!spec.filtersSymbol()) {
+            return null;
+        }
+        return file.matching(file.schema().symbolIndex(), spec.getSymbol().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 块统计能确定块内没有匹配的行
+     *
+     * @param symbols {@link #symbols} 的结果
+     */
+    public static boolean skips(ScanSpec spec, VcolFile file, int block, boolean[] symbols) {
+        CsvSchema schema = file.schema();
+        if (symbols != null && !file.containsAny(block, schema.symbolIndex(), symbols)) {
+            return true;
+        }
+        if (!spec.filtersTime()) {
+            return false;
+        }
+        if (spec.getTimeColumn() == ScanSpec.TimeColumn.TICK) {
+            // 时间无法解析的行照常返回
+            int timeIndex = schema.createdAtIndex();
+            if (file.type(timeIndex) != VcolFile.Type.TIME || file.nulls(block, timeIndex) > 0) {
+                return false;
+            }
+            return file.min(block, timeIndex) > spec.getEndTime() || file.max(block, timeIndex) < spec.getStartTime();
+        }
+        int bobIndex = schema.bobIndex();
+        int eobIndex = eobIndex(schema);
+        // 没有有效时间时 min/max 为 TimeDecoder.INVALID，这些行本来就不返回
+        return (file.type(bobIndex) == VcolFile.Type.TIME && file.min(block, bobIndex) > spec.getEndTime())
+                || (file.type(eobIndex) == VcolFile.Type.TIME && file.max(block, eobIndex) < spec.getStartTime());
+    }
+
+    private static int[] project(Path path, CsvSchema schema, List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return null;
+        }
+        int[] projection = new int[columns.size()];
+        for (int k = 0; k < projection.length; k++) {
+            projection[k] = schema.indexOf(columns.get(k));
+            if (projection[k] < 0) {
+                throw new IllegalArgumentException("文件中没有列" + columns.get(k) + ": " + path + ", 可用的列: " + schema.header());
+            }
+        }
+        return projection;
+    }
+
+    private static String header(CsvSchema schema, int[] projection) {
+        StringBuilder header = new StringBuilder();
+        for (int k = 0; k < projection.length; k++) {
+            if (k > 0) {
+                header.append(',');
+            }
+            header.append(schema.columns().get(projection[k]));
+        }
+        return header.toString();
+    }
+
+    private Chunk scanPartition(ScanSpec spec, int index, ScanMetrics.Scan scan) {
+        Partition partition = plan(spec, index, scan);
+        if (partition == null) {
+            return new Chunk(null);
+        }
+        return scanRows(spec, partition, partition.offset(), partition.row(), partition.firstRow(), scan);
+    }
+
+    /**
+     * 单个文件中匹配的行
+     */
+    private static final class Chunk {
+        final Partition partition;      // 为 null 时文件被跳过
+        final ByteSink rows = new ByteSink();
+        int[] ends = new int[16];       // 每一行在 rows 中的结束位置（含换行符）
+        long[] offsets = new long[16];  // 每一行在文件中的行首偏移
+        long[] rowNumbers = new long[16];
+        int count;
+        long nextOffset = -1;           // 匹配的行超过 chunkBytes 或 limit 时，下一条匹配行的偏移和行号
+        long nextRow;
+
+        Chunk(Partition partition) {
+            this.partition = partition;
+        }
+
+        // 已经把一行的内容追加到 rows
+        void end(long offset, long row) {
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                rowNumbers = Arrays.copyOf(rowNumbers, count * 2);
+            }
+            rows.append('\n');
+            ends[count] = rows.size();
+            offsets[count] = offset;
+            rowNumbers[count] = row;
+            count++;
+        }
+    }
+
+    // 从 offset 处（第 row 行）开始读取，最多保留 chunkBytes 字节、limit 行，一页一般不会用到更多
+    private Chunk scanRows(ScanSpec spec, Partition partition, long offset, long row, long firstRow, ScanMetrics.Scan scan) {
+        if (partition.columnar() != null) {
+            return scanColumns(spec, partition, firstRow, scan);
+        }
+        Chunk chunk = new Chunk(partition);
+        Path path = partition.path();
+        CsvSchema schema = partition.fileSchema();
+        boolean tick = spec.getTimeColumn() == ScanSpec.TimeColumn.TICK;
+        byte[] symbol = spec.filtersSymbol() ? spec.getSymbol().getBytes(StandardCharsets.UTF_8) : null;
+        boolean filterTime = spec.filtersTime();
+        long startTime = spec.getStartTime();
+        long endTime = spec.getEndTime();
+        int symbolIndex = schema.symbolIndex();
+        int timeIndex = tick ? schema.createdAtIndex() : schema.bobIndex();
+        int eobIndex = tick ? -1 : eobIndex(schema);
+        int[] projection = partition.projection();
+
+        // 只切分到过滤和投影需要的最后一列
+        int lastIndex = symbol != null ? symbolIndex : -1;
+        if (filterTime) {
+            lastIndex = Math.max(lastIndex, Math.max(timeIndex, eobIndex));
+        }
+        if (projection != null) {
+            for (int column : projection) {
+                lastIndex = Math.max(lastIndex, column);
+            }
+        }
+        // 需要切分且读取整个文件时顺便生成代码过滤器
+        SymbolBloom.Builder bloom = null;
+        if (lastIndex >= 0 && symbolIndex >= 0 && offset == 0L && firstRow == 0L && SymbolBloom.get(path) == null) {
+            bloom = new SymbolBloom.Builder(Sidecars.version(path));
+            lastIndex = Math.max(lastIndex, symbolIndex);
+        }
+
+        long limit = spec.getLimit();
+        int chunkBytes = spec.getChunkBytes();
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        // 从头扫描；被行数或页大小截断的扫描没有读到文件末尾，不会让文件进入缓存
+        boolean wholeFile = offset == 0L && firstRow == 0L;
+        try (CsvLineReader reader = open(path, offset, wholeFile, scan)) {
+            long next = row;
+            while (reader.next()) {
+                long current = next++;
+                if (current < firstRow) {
+                    continue;
+                }
+                if (lastIndex >= 0) {
+                    tokenizer.reset(reader.buffer(), reader.start(), reader.length(), lastIndex + 1);
+                    // 列数不足以过滤或投影的行同样有代码，先加入过滤器，否则过滤器会漏掉它
+                    if (bloom != null && tokenizer.fieldCount() > symbolIndex) {
+                        int start = tokenizer.valueStart(symbolIndex);
+                        bloom.add(tokenizer.buffer(), start, tokenizer.valueEnd(symbolIndex) - start);
+                    }
+                    if (tokenizer.fieldCount() <= lastIndex) {
+                        continue;
+                    }
+                    // 先比较代码，再解码时间
+                    if (symbol != null && !tokenizer.fieldEquals(symbolIndex, symbol)) {
+                        continue;
+                    }
+                    if (filterTime) {
+                        if (tick) {
+                            long time = TimeDecoder.decode(tokenizer, timeIndex);
+                            if (time != TimeDecoder.INVALID) {
+                                if (time > endTime) {
+                                    if (partition.sorted()) {
+                                        bloom = null;
+                                        break;
+                                    }
+                                    continue;
+                                }
+                                if (time < startTime) {
+                                    continue;
+                                }
+                            }
+                        } else {
+                            long bob = TimeDecoder.decode(tokenizer, timeIndex);
+                            long eob = TimeDecoder.decode(tokenizer, eobIndex);
+                            if (bob == TimeDecoder.INVALID || eob == TimeDecoder.INVALID || bob > endTime || eob < startTime) {
+                                continue;
+                            }
+                        }
+                    }
+                }
+                if (chunk.count >= limit || chunk.rows.size() >= chunkBytes) {
+                    chunk.nextOffset = reader.offset();
+                    chunk.nextRow = current;
+                    bloom = null; // 没有扫描完整个文件
+                    break;
+                }
+                if (projection == null) {
+                    chunk.rows.append(reader.buffer(), reader.start(), reader.length());
+                } else {
+                    for (int k = 0; k < projection.length; k++) {
+                        if (k > 0) {
+                            chunk.rows.append(',');
+                        }
+                        int column = projection[k];
+                        chunk.rows.append(tokenizer.buffer(), tokenizer.start(column), tokenizer.length(column));
+                    }
+                }
+                chunk.end(reader.offset(), current);
+            }
+            if (bloom != null) {
+                bloom.save(path);
+            }
+        } catch (IOException e) {
+            System.err.println("读取文件失败: " + e.getMessage());
+        }
+        return chunk;
+    }
+
+    // 列存文件从 firstRow 开始读取，与 scanRows 的过滤和输出相同
+    private static Chunk scanColumns(ScanSpec spec, Partition partition, long firstRow, ScanMetrics.Scan scan) {
+        Chunk chunk = new Chunk(partition);
+        VcolFile file = partition.columnar();
+        CsvSchema schema = partition.fileSchema();
+        boolean tick = spec.getTimeColumn() == ScanSpec.TimeColumn.TICK;
+        byte[] symbol = spec.filtersSymbol() ? spec.getSymbol().getBytes(StandardCharsets.UTF_8) : null;
+        boolean[] symbols = symbols(spec, file);
+        boolean filterTime = spec.filtersTime();
+        long startTime = spec.getStartTime();
+        long endTime = spec.getEndTime();
+        int symbolIndex = schema.symbolIndex();
+        int timeIndex = tick ? schema.createdAtIndex() : schema.bobIndex();
+        int eobIndex = tick ? -1 : eobIndex(schema);
+        int[] projection = partition.projection();
+        long limit = spec.getLimit();
+        int chunkBytes = spec.getChunkBytes();
+
+        long scanned = 0;
+        scan:
+        for (int block = file.block(firstRow); block < file.blockCount(); block++) {
+            if (skips(spec, file, block, symbols)) {
+                continue;
+            }
+            ScanMetrics.bytesRead(file.blockBytes(block));
+            long end = file.blockStart(block) + file.blockRows(block);
+            for (long current = Math.max(firstRow, file.blockStart(block)); current < end; current++) {
+                scanned++;
+                if (symbol != null && !(symbols != null ? symbols[file.dictId(symbolIndex, current)]
+                        : file.equals(symbolIndex, current, symbol))) {
+                    continue;
+                }
+                if (filterTime) {
+                    if (tick) {
+                        long time = file.time(timeIndex, current);
+                        if (time != TimeDecoder.INVALID && (time > endTime || time < startTime)) {
+                            continue;
+                        }
+                    } else {
+                        long bob = file.time(timeIndex, current);
+                        long eob = file.time(eobIndex, current);
+                        if (bob == TimeDecoder.INVALID || eob == TimeDecoder.INVALID || bob > endTime || eob < startTime) {
+                            continue;
+                        }
+                    }
+                }
+                if (chunk.count >= limit || chunk.rows.size() >= chunkBytes) {
+                    chunk.nextOffset = 0L;
+                    chunk.nextRow = current;
+                    break scan;
+                }
+                if (projection == null) {
+                    file.appendRow(current, chunk.rows);
+                } else {
+                    for (int k = 0; k < projection.length; k++) {
+                        if (k > 0) {
+                            chunk.rows.append(',');
+                        }
+                        file.append(projection[k], current, chunk.rows);
+                    }
+                }
+                chunk.end(0L, current);
+            }
+        }
+        scan.scanned(scanned);
+        return chunk;
+    }
+
+    /**
+     * 打开文件并定位到 offset，offset 为 0 时跳过表头；只读取一部分时使用，文件已缓存时从缓存中读取
+     * <p>
+     * 之后读取的行在关闭时计入 scan
+     */
+    public CsvLineReader open(Path path, long offset, ScanMetrics.Scan scan) throws IOException {
+        return open(path, offset, false, scan);
+    }
+
+    /**
+     * 打开文件并定位到 offset，offset 为 0 时跳过表头
+     *
+     * @param wholeFile 从头扫描整个文件（可能被预算截断）；读到末尾的文件再次从头扫描时会放入缓存
+     */
+    public CsvLineReader open(Path path, long offset, boolean wholeFile, ScanMetrics.Scan scan) throws IOException {
+        CsvLineReader reader = partitionCache.open(path, offset, wholeFile);
+        if (offset == 0L) {
+            reader.next();
+        }
+        reader.countRows(scan);
+        return reader;
+    }
+
+    /**
+     * eob 列号，没有 eob 列时沿用原来的约定：eob 紧跟在 bob 之后
+     */
+    public static int eobIndex(CsvSchema schema) {
+        int eobIndex = schema.eobIndex();
+        return eobIndex >= 0 ? eobIndex : schema.bobIndex() + 1;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("查询被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // ForkJoinPool 在调用线程上重新创建同类型的异常，原始异常为其 cause
+            if (cause != null && cause.getCause() != null && cause.getClass() == cause.getCause().getClass()) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.mcp.query;
+
+import com.example.mcp.index.CsvSchema;
+
+/**
+ * 接收 QueryEngine 按文件顺序输出的行
+ */
+public interface RowSink {
+
+    /**
+     * 接下来的行属于该表头（已按 ScanSpec.columns 裁剪）
+     */
+    void schema(CsvSchema schema);
+
+    /**
+     * 加入一行数据（不含换行符）
+     *
+     * @return 已满、没有加入该行时返回 false，查询在该行处停止
+     */
+    boolean row(byte[] buf, int offset, int length);
+}
@@ -0,0 +1,71 @@
+package com.example.mcp.query;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 一次分区查询：读取哪些文件、按什么条件过滤、返回哪些列、最多多少行，以及从哪里继续
+ */
+@Value
+@Builder(toBuilder = true)
+public class ScanSpec {
+
+    public static final int DEFAULT_CHUNK_BYTES = 64 << 10;
+
+    List<Path> partitions;          // 按顺序读取的文件
+    @Builder.Default
+    TimeColumn timeColumn = TimeColumn.BAR;
+    @Builder.Default
+    long startTime = Long.MIN_VALUE; // 开始时间（epoch 毫秒，含），Long.MIN_VALUE 表示不限制
+    @Builder.Default
+    long endTime = Long.MAX_VALUE;   // 结束时间（含），Long.MAX_VALUE 表示不限制
+    String symbol;                  // 种类代码，为 null 时不过滤
+    List<String> columns;           // 返回的列，为 null 时返回整行
+    @Builder.Default
+    long limit = Long.MAX_VALUE;    // 最多返回的行数
+    @Builder.Default
+    int chunkBytes = DEFAULT_CHUNK_BYTES; // 单个文件一次最多缓存的匹配行字节数，一般取一页的大小
+
+    // 从哪里继续：第 fileIndex 个文件的 offset 字节处（0 表示表头之后），该处为第 row 行
+    int fileIndex;
+    long offset;
+    long row;
+
+    /**
+     * 按哪一列过滤时间
+     */
+    public enum TimeColumn {
+        /**
+         * K 线：[bob, eob] 与查询区间有交集，时间无法解析的行不返回
+         */
+        BAR,
+        /**
+         * tick：created_at 在查询区间内，时间无法解析的行照常返回；有序文件超过结束时间后不再读取
+         */
+        TICK
+    }
+
+    /**
+     * 查询停止的位置，下一次从这里继续
+     */
+    public record Position(int fileIndex, long offset, long row) {
+    }
+
+    public boolean filtersTime() {
+        return startTime != Long.MIN_VALUE || endTime != Long.MAX_VALUE;
+    }
+
+    public boolean filtersSymbol() {
+        return symbol != null && !symbol.isEmpty();
+    }
+
+    /**
+     * 从 position 处继续的查询
+     */
+    public ScanSpec resume(Position position) {
+        return toBuilder().fileIndex(position.fileIndex()).offset(position.offset()).row(position.row()).build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.mcp.repository;
+
+import com.example.mcp.model.KLineData;
+import com.example.mcp.model.KLineSeries;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 按文件顺序逐根返回 K 线，内存中最多只有一个文件的 K 线
+ * <p>
+ * 需要下一个文件时才读取，读完即关闭，不会在遍历中途保持文件打开；
+ * 并行流按文件边界拆分，拆出的前半部分包含当前已读入但尚未返回的 K 线。
+ */
+final class BarSpliterator implements Spliterator<KLineData> {
+
+    // 估算剩余行数时每个文件按一天的分钟线计
+    private static final long ROWS_PER_FILE = 240;
+
+    /**
+     * 读取一个文件的全部 K 线
+     */
+    @FunctionalInterface
+    interface Loader {
+        void load(Path path, KLineSeries.Builder bars);
+    }
+
+    private final List<Path> paths;
+    private final Loader loader;
+    private int next;       // 下一个要读取的文件
+    private int end;        // 不包含
+    private KLineSeries buffer;
+    private int position;
+
+    BarSpliterator(List<Path> paths, int from, int to, Loader loader) {
+        this.paths = paths;
+        this.next = from;
+        this.end = to;
+        this.loader = loader;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super KLineData> action) {
+        while (buffer == null || position >= buffer.size()) {
+            if (next >= end) {
+                buffer = null;
+                return false;
+            }
+            KLineSeries.Builder bars = KLineSeries.builder();
+            loader.load(paths.get(next++), bars);
+            buffer = bars.build();
+            position = 0;
+        }
+        action.accept(buffer.get(position++));
+        return true;
+    }
+
+    @Override
+    public Spliterator<KLineData> trySplit() {
+        int remaining = end - next;
+        if (remaining < 2) {
+            return null;
+        }
+        int mid = next + remaining / 2;
+        BarSpliterator prefix = new BarSpliterator(paths, next, mid, loader);
+        prefix.buffer = buffer;
+        prefix.position = position;
+        buffer = null;
+        next = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        long buffered = buffer == null ? 0 : buffer.size() - position;
+        return buffered + (long) (end - next) * ROWS_PER_FILE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
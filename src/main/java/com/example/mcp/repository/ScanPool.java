@@ -0,0 +1,52 @@
+package com.example.mcp.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 并行扫描分区用的线程池
+ * <p>
+ * 大小由 vvtr.scan.parallelism 配置，默认为 CPU 核数；配置为 1 时不创建线程池，直接在调用线程上执行。
+ */
+@Component
+public class ScanPool {
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public ScanPool(@Value("${vvtr.scan.parallelism:0}") int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 提交一个扫描任务，不使用线程池时立即执行
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        if (pool != null) {
+            return pool.submit(task);
+        }
+        try {
+            return CompletableFuture.completedFuture(task.call());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -1,78 +1,103 @@
 package com.example.mcp.repository;
 
+import com.example.mcp.bar.BarAggregator;
+import com.example.mcp.bar.BarConsumer;
+import com.example.mcp.bar.BarPeriod;
+import com.example.mcp.bar.TickBarBuilder;
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.columnar.VcolFile;
+import com.example.mcp.cursor.CursorStore;
+import com.example.mcp.cursor.ScanCursor;
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.SchemaRegistry;
+import com.example.mcp.indicator.IndicatorEngine;
+import com.example.mcp.metrics.ScanMetrics;
 import com.example.mcp.model.DataBack;
 import com.example.mcp.model.DataLabel;
+import com.example.mcp.model.KLineData;
+import com.example.mcp.model.KLineSeries;
+import com.example.mcp.query.QueryEngine;
+import com.example.mcp.query.RowSink;
+import com.example.mcp.query.ScanSpec;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.ColumnarEncoder;
+import com.example.mcp.util.CsvLineReader;
 import com.example.mcp.util.CsvMerger;
+import com.example.mcp.util.CsvTokenizer;
+import com.example.mcp.util.Decimals;
+import com.example.mcp.util.TimeDecoder;
+import com.example.mcp.util.WireFormat;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Repository
 public class VvtrData {
 
+    /**
+     * 单页大小的上限（字节），客户端请求更大的页时按该值返回
+     */
+    public static final int MAX_PAGE_BYTES = 4 << 20;
+    private static final DateTimeFormatter OUTPUT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final CursorStore cursorStore;
+    private final QueryEngine queryEngine;
+    private final int pageBytes;
+
+    public VvtrData(CursorStore cursorStore, PartitionCache partitionCache, ScanPool scanPool,
+                    @Value("${vvtr.page.max-bytes:65536}") int pageBytes) {
+        this.cursorStore = cursorStore;
+        this.queryEngine = new QueryEngine(partitionCache, scanPool);
+        this.pageBytes = Math.min(Math.max(pageBytes, 1), MAX_PAGE_BYTES);
+    }
+
+    /**
+     * 游标中的页大小，未指定时使用配置的默认值
+     */
+    private int pageBytes(ScanCursor cursor) {
+        int maxBytes = cursor.getMaxBytes();
+        return maxBytes > 0 ? Math.min(maxBytes, MAX_PAGE_BYTES) : pageBytes;
+    }
+
     /**
      * 获取数据
      *
      * @param paths     解析的文件路径
      * @param nextIndex 上一次的读取位置
-     * @param count     一共需要的读取条数
-     * @return 数据，下一次的读取位置，剩余文件路径
+     * @param count     一共需要的读取条数，同时不超过默认的页大小
+     * @return 数据，下一次的读取位置，游标
      */
     public DataLabel getMinuteData(List<Path> paths, int nextIndex, int count) {
-        StringBuilder allContent = new StringBuilder(); // 用于存储查询到的所有结果
-        StringBuilder resultData = new StringBuilder(); // 用于存储返回的结果
-        int totalLinesProcessed = 0; // 总的行数
-        int processedPathIndex = 0; // 文件索引
-        int line = 0;
-        int index = 0;
-        for (int i = 0; i < paths.size(); i++) {
-            Path path = paths.get(i);
-            String data = CsvMerger.parseCSVWithoutHeaderAsString(path);
-            allContent.append(data);
-            int lines = CsvMerger.countLines(data);
-            line = lines;
-            totalLinesProcessed += lines;
-            processedPathIndex = i;
-            if (i == 0 && (totalLinesProcessed - nextIndex) > count) {
-                break;
-            } else if (totalLinesProcessed > count) {
-                break;
-            }
-        }
-        // 将合并后的内容按行分割
-        String[] allLines = allContent.toString().split("\n");
-        int actualLimit = Math.min(count, allLines.length);
-        for (int i = nextIndex; i < actualLimit + nextIndex; i++) {
-            resultData.append(allLines[i]);
-            if (i < actualLimit + nextIndex - 1) {
-                resultData.append("\n");
-            }
-        }
-        //
-        if (count < allLines.length) {
-            index = nextIndex
-                    + actualLimit
-                    + line
-                    - totalLinesProcessed;
-            if (index < 0) {
-                int lines = CsvMerger.countLines(CsvMerger.parseCSVWithoutHeaderAsString(paths.get(0)));
-                index = lines + index;
-            }
-        }
+        ScanCursor cursor = ScanCursor.builder()
+                .kind("minute")
+                .paths(paths)
+                .row(Math.max(nextIndex, 0))
+                .build();
+        return getMinuteData(cursor, count);
+    }
 
-        List<Path> remainingPaths = new ArrayList<>();
-        for (int i = processedPathIndex; i < paths.size(); i++) {
-            remainingPaths.add(paths.get(i));
+    /**
+     * 从游标处继续获取数据，只读取本次返回的行
+     */
+    public DataLabel getMinuteData(ScanCursor cursor, int count) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("getMinuteData")) {
+            return getMinuteData(cursor, count, scan);
         }
-        return new DataLabel(resultData.toString(), index, remainingPaths);
+    }
+
+    private DataLabel getMinuteData(ScanCursor cursor, int count, ScanMetrics.Scan scan) {
+        ScanSpec spec = spec(cursor)
+                .limit(count > 0 ? count : Long.MAX_VALUE)
+                .build();
+        return label(cursor, spec, new Page(cursor.getFormat(), projected(cursor), pageBytes(cursor), scan), scan);
     }
 
     /**
@@ -92,132 +117,529 @@ public class VvtrData {
         int startIndex = Math.max(offset, 0);
         int endIndex = (limit > 0) ? Math.min(startIndex + limit, lines.length) : lines.length;
 
-        // 检查数据量是否超过3000条
-        if (endIndex - startIndex > 3000) {
-            endIndex = startIndex + 3000;
-        }
-
-        // 提取指定范围的数据
+        // 提取指定范围的数据，按 UTF-8 字节数不超过默认的页大小（至少返回一条）
+        long size = 0;
         for (int i = startIndex; i < endIndex; i++) {
-            if (i < lines.length) {
-                result.append(lines[i]).append("\n");
+            int lineBytes = bytes(lines[i]).length + 1;
+            if (i > startIndex && size + lineBytes > pageBytes) {
+                break;
             }
+            result.append(lines[i]).append("\n");
+            size += lineBytes;
         }
 
         return result.toString();
     }
 
-    public DataBack getDayData(List<Path> paths, String symbol, int symbolIndex, String startTime, String endTime, int bobIndex) {
-        int processedPathIndex = 0; // 文件索引
-        StringBuilder stringBuilder = new StringBuilder(); // 返回结果
-        int totalLine = 0;
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        // 开始时间
-        LocalDate startDateTime = null;
-        // 结束时间
-        LocalDate endDateTime = null;
+    public DataBack getDayData(List<Path> paths, String symbol, String startTime, String endTime) {
+        ScanCursor cursor = ScanCursor.builder()
+                .kind("day")
+                .paths(paths)
+                .symbol(symbol)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        return getDayData(cursor);
+    }
 
-        try {
-            startDateTime = LocalDate.parse(startTime, formatter);
-            endDateTime = LocalDate.parse(endTime, formatter);
-        } catch (Exception e) {
-            System.err.println("日期时间解析失败，将使用字符串比较: " + e.getMessage());
+    /**
+     * 获取日线数据，一页不超过游标中的页大小，未读完时返回游标
+     * <p>
+     * 各文件在 ScanPool 上并行扫描，结果按文件顺序合并，返回内容与逐个文件扫描一致。
+     */
+    public DataBack getDayData(ScanCursor cursor) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("getDayData")) {
+            return getDayData(cursor, scan);
+        }
+    }
+
+    private DataBack getDayData(ScanCursor cursor, ScanMetrics.Scan scan) {
+        ScanSpec.ScanSpecBuilder spec = spec(cursor).symbol(cursor.getSymbol());
+        // 按日期过滤：bob 所在日期不晚于结束日期，eob 所在日期不早于开始日期
+        long startTime = TimeDecoder.decode(cursor.getStartTime());
+        long endTime = TimeDecoder.decode(cursor.getEndTime());
+        if (startTime != TimeDecoder.INVALID && endTime != TimeDecoder.INVALID) {
+            spec.startTime(TimeDecoder.day(startTime) * TimeDecoder.MILLIS_PER_DAY)
+                    .endTime((TimeDecoder.day(endTime) + 1) * TimeDecoder.MILLIS_PER_DAY - 1);
+        } else if (hasText(cursor.getStartTime()) || hasText(cursor.getEndTime())) {
+            System.err.println("日期时间解析失败，将不按时间过滤: " + cursor.getStartTime() + " ~ " + cursor.getEndTime());
+        }
+        return back(cursor, spec.build(), new Page(cursor.getFormat(), projected(cursor), pageBytes(cursor), scan), scan);
+    }
+
+
+    public DataBack getMinData(List<Path> paths, String startTime, String endTime) {
+        ScanCursor cursor = ScanCursor.builder()
+                .kind("min")
+                .paths(paths)
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        return getMinData(cursor);
+    }
+
+    /**
+     * 获取分钟数据，一页不超过游标中的页大小，未读完时返回游标
+     */
+    public DataBack getMinData(ScanCursor cursor) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("getMinData")) {
+            return getMinData(cursor, scan);
+        }
+    }
+
+    private DataBack getMinData(ScanCursor cursor, ScanMetrics.Scan scan) {
+        ScanSpec.ScanSpecBuilder spec = spec(cursor);
+        // 解析开始和结束时间，只有两端都能解析时才按时间过滤
+        long startTime = TimeDecoder.decode(cursor.getStartTime());
+        long endTime = TimeDecoder.decode(cursor.getEndTime());
+        if (startTime != TimeDecoder.INVALID && endTime != TimeDecoder.INVALID) {
+            spec.startTime(startTime).endTime(endTime);
+        } else if (cursor.getStartTime() != null || cursor.getEndTime() != null) {
+            System.err.println("日期时间解析失败，将不按时间过滤: " + cursor.getStartTime() + " ~ " + cursor.getEndTime());
+        }
+        return back(cursor, spec.build(), new Page(cursor.getFormat(), projected(cursor), pageBytes(cursor), scan), scan);
+    }
+
+    /**
+     * 把分钟数据逐行合并为指定周期的 K 线，不在内存中保留原始数据
+     *
+     * @param paths     1m/15m 文件，按时间顺序
+     * @param startTime 开始时间，为空时不限制
+     * @param endTime   结束时间，为空时不限制
+     * @param period    目标周期，不能小于原始数据的周期
+     * @param maxBars   最多返回的 K 线数量，超过时抛出异常
+     * @throws IllegalArgumentException 周期小于原始数据周期，或结果超过 maxBars
+     */
+    public List<KLineData> resample(List<Path> paths, String startTime, String endTime, BarPeriod period, int maxBars) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("resample")) {
+            return resample(paths, startTime, endTime, period, maxBars, scan);
+        }
+    }
+
+    private List<KLineData> resample(List<Path> paths, String startTime, String endTime, BarPeriod period, int maxBars,
+                                     ScanMetrics.Scan scan) {
+        BarAggregator aggregator = new BarAggregator(period);
+        forEachBar(paths, null, startTime, endTime, (symbol, open, high, low, close, amount, volume, bob, eob) -> {
+            if (eob - bob > period.millis()) {
+                throw new IllegalArgumentException("目标周期" + period.label() + "小于原始数据的周期");
+            }
+            aggregator.add(symbol, open, high, low, close, amount, volume, bob, eob);
+            if (aggregator.completedCount() > maxBars) {
+                throw new IllegalArgumentException("结果超过" + maxBars + "根K线,请缩小时间范围或使用更大的周期");
+            }
+        }, scan);
+        KLineSeries bars = aggregator.finish();
+        if (bars.size() > maxBars) {
+            throw new IllegalArgumentException("结果超过" + maxBars + "根K线,请缩小时间范围或使用更大的周期");
+        }
+        scan.returned(bars.size());
+        // 返回时逐根生成 KLineData，序列化后即可回收
+        return bars.asList();
+    }
+
+    /**
+     * 计算一个代码的技术指标，只返回指标列
+     * <p>
+     * paths 可以包含 startTime 之前的数据用于预热，预热部分参与计算但不输出。
+     *
+     * @param paths     K 线文件，按时间顺序
+     * @param symbol    种类代码
+     * @param startTime 输出的开始时间，为空时不限制
+     * @param endTime   结束时间，为空时不限制
+     * @param engine    要计算的指标
+     * @param limit     只输出最后 limit 行
+     * @return CSV 文本，第一行为表头 eob,指标列...，尚无有效值的位置为空
+     */
+    public String indicators(List<Path> paths, String symbol, String startTime, String endTime,
+                             IndicatorEngine engine, int limit) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("indicators")) {
+            return indicators(paths, symbol, startTime, endTime, engine, limit, scan);
+        }
+    }
+
+    private String indicators(List<Path> paths, String symbol, String startTime, String endTime,
+                              IndicatorEngine engine, int limit, ScanMetrics.Scan scan) {
+        long start = parseBound(startTime, Long.MIN_VALUE);
+        int width = engine.width();
+        // 只保留最后 limit 行：eob 和指标值放在两个环形数组中
+        long[] times = new long[limit];
+        double[] values = new double[limit * width];
+        double[] row = new double[width];
+        long[] written = new long[1];
+        forEachBar(paths, symbol, null, endTime, (s, open, high, low, close, amount, volume, bob, eob) -> {
+            engine.update(high, low, close, amount, volume, eob, row);
+            if (eob < start) {
+                return;
+            }
+            int slot = (int) (written[0] % limit);
+            times[slot] = eob;
+            System.arraycopy(row, 0, values, slot * width, width);
+            written[0]++;
+        }, scan);
+
+        ByteSink out = new ByteSink();
+        out.append("eob");
+        for (String name : engine.names()) {
+            out.append(',').append(name);
+        }
+        out.append('\n');
+        long first = Math.max(written[0] - limit, 0L);
+        scan.returned(written[0] - first);
+        for (long n = first; n < written[0]; n++) {
+            int slot = (int) (n % limit);
+            out.append(TimeDecoder.toLocalDateTime(times[slot]).format(OUTPUT_TIME));
+            for (int c = 0; c < width; c++) {
+                out.append(',');
+                double value = values[slot * width + c];
+                if (!Double.isNaN(value)) {
+                    out.append(Decimals.format(value));
+                }
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * 把 tick 文件逐笔合并为 K 线，每个文件只读取一遍
+     * <p>
+     * 有序文件借助 TickIndex 直接定位到开始时间，超过结束时间后不再继续读取。
+     * 成交价不大于 0 的记录（开盘前的快照）不参与合并。
+     *
+     * @param paths     tick 文件，按时间顺序
+     * @param startTime 开始时间，为空时不限制
+     * @param endTime   结束时间，为空时不限制
+     * @param builder   K 线类型
+     * @param maxBars   最多返回的 K 线数量，超过时抛出异常
+     * @return CSV 文本，列见 TickBarBuilder.writeCsv
+     */
+    public String tickBars(List<Path> paths, String startTime, String endTime, TickBarBuilder builder, int maxBars) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("tickBars")) {
+            return tickBars(paths, startTime, endTime, builder, maxBars, scan);
         }
+    }
+
+    private String tickBars(List<Path> paths, String startTime, String endTime, TickBarBuilder builder, int maxBars,
+                            ScanMetrics.Scan scan) {
+        long start = parseBound(startTime, Long.MIN_VALUE);
+        long end = parseBound(endTime, Long.MAX_VALUE);
+        ScanSpec spec = ScanSpec.builder()
+                .partitions(paths)
+                .timeColumn(ScanSpec.TimeColumn.TICK)
+                .startTime(start)
+                .endTime(end)
+                .build();
+        CsvTokenizer tokenizer = new CsvTokenizer();
         for (int i = 0; i < paths.size(); i++) {
-            processedPathIndex = i;
-            Path path = paths.get(i);
-            String data = CsvMerger.parseCSVWithoutHeaderAsString(path);
-            String[] lines = data.split("\n");
-            for (String line : lines) {
-                String[] single = line.split(",");
-                if (single.length <= bobIndex) {
-                    continue;
+            // 跳过不在时间范围内的文件，有序文件直接定位到开始时间
+            QueryEngine.Partition partition = queryEngine.plan(spec, i, scan);
+            if (partition == null) {
+                continue;
+            }
+            Path path = partition.path();
+            CsvSchema schema = partition.fileSchema();
+            int symbolIndex = schema.symbolIndex();
+            int priceIndex = schema.indexOf("price");
+            int volumeIndex = schema.indexOf("last_volume");
+            int amountIndex = schema.indexOf("last_amount");
+            int timeIndex = schema.createdAtIndex();
+            if (symbolIndex < 0 || priceIndex < 0 || volumeIndex < 0 || amountIndex < 0 || timeIndex < 0) {
+                System.err.println("文件缺少tick列，已跳过: " + path);
+                continue;
+            }
+            if (partition.columnar() != null) {
+                try {
+                    tickBars(spec, partition.columnar(), new int[]{symbolIndex, priceIndex, volumeIndex, amountIndex, timeIndex},
+                            builder, maxBars, scan);
+                } catch (NumberFormatException e) {
+                    System.err.println("文件中有无法解析的数字，已跳过: " + path + " " + e.getMessage());
                 }
-                // 时间校验
-                String startDataTime = single[bobIndex].split(" ")[0];
-                String endDataTime = single[bobIndex + 1].split(" ")[0];
-                LocalDate startDateLocalTime = LocalDate.parse(startDataTime, formatter);
-                LocalDate endDateLocalTime = LocalDate.parse(endDataTime, formatter);
-                if (startDateTime != null && endDateTime != null && symbol != null) {
-                    if (!startDateLocalTime.isAfter(endDateTime) &&
-                            !endDateLocalTime.isBefore(startDateTime) &&
-                            // 区别
-                            single[symbolIndex].equals(symbol)) {
-                        stringBuilder.append(line).append("\n");
+                continue;
+            }
+            int lastIndex = Math.max(Math.max(symbolIndex, priceIndex), Math.max(Math.max(volumeIndex, amountIndex), timeIndex));
+            boolean sorted = partition.sorted();
+            String symbol = null;
+            byte[] symbolBytes = null;
+            try (CsvLineReader reader = queryEngine.open(path, partition.offset(), true, scan)) {
+                while (reader.next()) {
+                    tokenizer.reset(reader.buffer(), reader.start(), reader.length(), lastIndex + 1);
+                    if (tokenizer.fieldCount() <= lastIndex) {
+                        continue;
+                    }
+                    long time = TimeDecoder.decode(tokenizer, timeIndex);
+                    if (time == TimeDecoder.INVALID || time < start) {
+                        continue;
+                    }
+                    if (time > end) {
+                        if (sorted) {
+                            break;
+                        }
+                        continue;
                     }
-                } else if (symbol != null) {
-                    if (single[symbolIndex].equals(symbol)) {
-                        stringBuilder.append(line).append("\n");
+                    double price = tokenizer.fieldAsDouble(priceIndex);
+                    if (!(price > 0)) {
+                        continue;
+                    }
+                    if (symbolBytes == null || !tokenizer.fieldEquals(symbolIndex, symbolBytes)) {
+                        symbol = tokenizer.fieldAsString(symbolIndex);
+                        symbolBytes = bytes(symbol);
+                    }
+                    double volume = tokenizer.fieldAsDouble(volumeIndex);
+                    double amount = tokenizer.fieldAsDouble(amountIndex);
+                    builder.add(symbol, time, price, Double.isNaN(volume) ? 0 : volume, Double.isNaN(amount) ? 0 : amount);
+                    if (builder.size() > maxBars) {
+                        throw new IllegalArgumentException("结果超过" + maxBars + "根K线,请缩小时间范围或使用更大的K线");
                     }
-                } else {
-                    stringBuilder.append(line).append("\n");
                 }
+            } catch (IOException e) {
+                System.err.println("读取文件失败: " + e.getMessage());
+            } catch (NumberFormatException e) {
+                System.err.println("文件中有无法解析的数字，已跳过: " + path + " " + e.getMessage());
             }
         }
-        List<Path> remainingPaths = new ArrayList<>();
-        for (int i = processedPathIndex + 1; i < paths.size(); i++) {
-            remainingPaths.add(paths.get(i));
+        builder.finish();
+        if (builder.size() > maxBars) {
+            throw new IllegalArgumentException("结果超过" + maxBars + "根K线,请缩小时间范围或使用更大的K线");
+        }
+        scan.returned(builder.size());
+        ByteSink out = new ByteSink();
+        builder.writeCsv(out);
+        return out.toString();
+    }
+
+    // 列存文件直接读取时间和数值列，按块统计跳过不在时间范围内的块
+    private static void tickBars(ScanSpec spec, VcolFile file, int[] columns, TickBarBuilder builder, int maxBars,
+                                 ScanMetrics.Scan scan) {
+        long start = spec.getStartTime();
+        long end = spec.getEndTime();
+        String symbol = null;
+        byte[] symbolBytes = null;
+        long scanned = 0;
+        try {
+            for (int block = 0; block < file.blockCount(); block++) {
+                if (QueryEngine.skips(spec, file, block, null)) {
+                    continue;
+                }
+                ScanMetrics.bytesRead(file.blockBytes(block));
+                long last = file.blockStart(block) + file.blockRows(block);
+                for (long row = file.blockStart(block); row < last; row++) {
+                    scanned++;
+                    long time = file.time(columns[4], row);
+                    if (time == TimeDecoder.INVALID || time < start || time > end) {
+                        continue;
+                    }
+                    double price = file.number(columns[1], row);
+                    if (!(price > 0)) {
+                        continue;
+                    }
+                    if (symbolBytes == null || !file.equals(columns[0], row, symbolBytes)) {
+                        symbol = file.string(columns[0], row);
+                        symbolBytes = bytes(symbol);
+                    }
+                    double volume = file.number(columns[2], row);
+                    double amount = file.number(columns[3], row);
+                    builder.add(symbol, time, price, Double.isNaN(volume) ? 0 : volume, Double.isNaN(amount) ? 0 : amount);
+                    if (builder.size() > maxBars) {
+                        throw new IllegalArgumentException("结果超过" + maxBars + "根K线,请缩小时间范围或使用更大的K线");
+                    }
+                }
+            }
+        } finally {
+            scan.scanned(scanned);
         }
-        return new DataBack(stringBuilder.toString(), remainingPaths);
     }
 
+    /**
+     * 逐根读取 K 线文件（1m/15m/1d），按代码和时间过滤后交给 consumer
+     *
+     * @param symbol    种类代码，为 null 时不过滤
+     * @param startTime 开始时间，为空时不限制
+     * @param endTime   结束时间，为空时不限制
+     * @throws IllegalArgumentException 时间无法解析
+     */
+    public void forEachBar(List<Path> paths, String symbol, String startTime, String endTime, BarConsumer consumer) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("forEachBar")) {
+            forEachBar(paths, symbol, startTime, endTime, consumer, scan);
+        }
+    }
 
-    public DataBack getMinData(List<Path> paths, String startTime, String endTime, int bobIndex) {
-        int processedPathIndex = 0; // 文件索引
-        StringBuilder stringBuilder = new StringBuilder(); // 返回结果
-        int totalLine = 0;
-        // 创建日期时间格式化器
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        // 解析开始和结束时间
-        LocalDateTime startDateTime = null;
-        LocalDateTime endDateTime = null;
+    /**
+     * 按文件顺序惰性读取 K 线，内存中最多只有一个文件的 K 线，可用于遍历整个数据目录
+     * <p>
+     * 每个文件在需要时读取并立即关闭；并行流按文件拆分，结果顺序与 paths 相同。
+     * 指标在关闭流时记录，调用方应使用 try-with-resources。
+     *
+     * @param symbol    种类代码，为 null 时不过滤
+     * @param startTime 开始时间，为空时不限制
+     * @param endTime   结束时间，为空时不限制
+     * @throws IllegalArgumentException 时间无法解析
+     */
+    public Stream<KLineData> streamBars(List<Path> paths, String symbol, String startTime, String endTime) {
+        parseBound(startTime, Long.MIN_VALUE);
+        parseBound(endTime, Long.MAX_VALUE);
+        List<Path> files = List.copyOf(paths);
+        ScanMetrics.Scan scan = ScanMetrics.start("streamBars");
+        BarSpliterator.Loader loader = (path, bars) -> {
+            forEachBar(List.of(path), symbol, startTime, endTime,
+                    (s, open, high, low, close, amount, volume, bob, eob) ->
+                            bars.add(s, open, high, low, close, amount, volume, bob, eob, 1), scan);
+            scan.returned(bars.size());
+        };
+        return StreamSupport.stream(new BarSpliterator(files, 0, files.size(), loader), false)
+                .onClose(scan::close);
+    }
 
+    /**
+     * 逐个文件打印数据目录下的全部 K 线，不把整个目录合并为一个字符串
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>(CsvMerger.findAllCsvFiles(Path.of(CsvMerger.ROOT)));
+        // tick 文件没有 K 线列
+        files.removeIf(path -> SchemaRegistry.of(path).createdAtIndex() >= 0);
+        ScanPool scanPool = new ScanPool(1);
         try {
-            startDateTime = LocalDateTime.parse(startTime, formatter);
-            endDateTime = LocalDateTime.parse(endTime, formatter);
-        } catch (Exception e) {
-            // 如果解析失败，尝试使用字符串比较（保留原有逻辑作为后备）
-            System.err.println("日期时间解析失败，将使用字符串比较: " + e.getMessage());
+            VvtrData data = new VvtrData(new CursorStore(0), new PartitionCache(0), scanPool, 0);
+            try (Stream<KLineData> bars = data.streamBars(files, null, null, null)) {
+                bars.forEach(System.out::println);
+            }
+        } finally {
+            scanPool.close();
         }
+    }
 
+    private void forEachBar(List<Path> paths, String symbol, String startTime, String endTime, BarConsumer consumer,
+                            ScanMetrics.Scan scan) {
+        long start = parseBound(startTime, Long.MIN_VALUE);
+        long end = parseBound(endTime, Long.MAX_VALUE);
+        byte[] wanted = symbol == null || symbol.isEmpty() ? null : bytes(symbol);
+        ScanSpec spec = ScanSpec.builder()
+                .partitions(paths)
+                .symbol(symbol)
+                .startTime(start)
+                .endTime(end)
+                .build();
+        CsvTokenizer tokenizer = new CsvTokenizer();
         for (int i = 0; i < paths.size(); i++) {
-            processedPathIndex = i;
-            Path path = paths.get(i);
-            String data = CsvMerger.parseCSVWithoutHeaderAsString(path);
-            int dataLines = CsvMerger.countLines(data);
-            totalLine += dataLines;
-            if (totalLine > 3000 && i > 0) {
-                break;
+            // 跳过确定没有该代码或不在时间范围内的文件
+            QueryEngine.Partition partition = queryEngine.plan(spec, i, scan);
+            if (partition == null) {
+                continue;
+            }
+            Path path = partition.path();
+            CsvSchema schema = partition.fileSchema();
+            int[] columns = {
+                    schema.symbolIndex(), schema.indexOf("open"), schema.indexOf("high"), schema.indexOf("low"),
+                    schema.indexOf("close"), schema.indexOf("amount"), schema.indexOf("volume"),
+                    schema.bobIndex(), QueryEngine.eobIndex(schema)
+            };
+            int lastIndex = -1;
+            for (int column : columns) {
+                if (column < 0) {
+                    lastIndex = -1;
+                    break;
+                }
+                lastIndex = Math.max(lastIndex, column);
+            }
+            if (lastIndex < 0) {
+                System.err.println("文件缺少K线列，已跳过: " + path);
+                continue;
             }
-            // 分隔为一行一行
-            String[] lines = data.split("\n");
-            for (String line : lines) {
-                // 分隔到某一个字段
-                String[] single = line.split(",");
-                // 确保索引在范围内
-                if (single.length <= bobIndex) {
+            if (partition.columnar() != null && lastIndex < partition.columnar().schema().size()) {
+                try {
+                    forEachBar(spec, partition.columnar(), columns, wanted, consumer, scan);
+                } catch (NumberFormatException e) {
+                    System.err.println("文件中有无法解析的数字，已跳过: " + path + " " + e.getMessage());
+                }
+                continue;
+            }
+            // 同一个文件通常只有一个代码，代码不变时复用同一个 String
+            String current = null;
+            byte[] currentBytes = null;
+            try (CsvLineReader reader = queryEngine.open(path, partition.offset(), true, scan)) {
+                while (reader.next()) {
+                    tokenizer.reset(reader.buffer(), reader.start(), reader.length(), lastIndex + 1);
+                    if (tokenizer.fieldCount() <= lastIndex) {
+                        continue;
+                    }
+                    if (wanted != null && !tokenizer.fieldEquals(columns[0], wanted)) {
+                        continue;
+                    }
+                    long bob = TimeDecoder.decode(tokenizer, columns[7]);
+                    long eob = TimeDecoder.decode(tokenizer, columns[8]);
+                    if (bob == TimeDecoder.INVALID || eob == TimeDecoder.INVALID || bob > end || eob < start) {
+                        continue;
+                    }
+                    if (currentBytes == null || !tokenizer.fieldEquals(columns[0], currentBytes)) {
+                        current = tokenizer.fieldAsString(columns[0]);
+                        currentBytes = bytes(current);
+                    }
+                    consumer.accept(current,
+                            tokenizer.fieldAsDouble(columns[1]), tokenizer.fieldAsDouble(columns[2]),
+                            tokenizer.fieldAsDouble(columns[3]), tokenizer.fieldAsDouble(columns[4]),
+                            tokenizer.fieldAsDouble(columns[5]), tokenizer.fieldAsDouble(columns[6]),
+                            bob, eob);
+                }
+            } catch (IOException e) {
+                System.err.println("读取文件失败: " + e.getMessage());
+            } catch (NumberFormatException e) {
+                System.err.println("文件中有无法解析的数字，已跳过: " + path + " " + e.getMessage());
+            }
+        }
+    }
+
+    // 列存文件直接读取 double 列，按块统计跳过没有该代码或不在时间范围内的块
+    private static void forEachBar(ScanSpec spec, VcolFile file, int[] columns, byte[] wanted, BarConsumer consumer,
+                                   ScanMetrics.Scan scan) {
+        long start = spec.getStartTime();
+        long end = spec.getEndTime();
+        boolean[] symbols = QueryEngine.symbols(spec, file);
+        String current = null;
+        byte[] currentBytes = null;
+        long scanned = 0;
+        try {
+            for (int block = 0; block < file.blockCount(); block++) {
+                if (QueryEngine.skips(spec, file, block, symbols)) {
                     continue;
                 }
-                // 时间校验
-                String startDataTime = single[bobIndex].split("\\+")[0];
-                String endDataTime = single[bobIndex + 1].split("\\+")[0];
-                LocalDateTime startDateLocalTime = LocalDateTime.parse(startDataTime, formatter);
-                LocalDateTime endDateLocalTime = LocalDateTime.parse(endDataTime, formatter);
-                if (startDateTime != null && endDateTime != null) {
-                    if (!startDateLocalTime.isAfter(endDateTime) && !endDateLocalTime.isBefore(startDateTime)) {
-                        stringBuilder.append(line).append("\n");
+                ScanMetrics.bytesRead(file.blockBytes(block));
+                long last = file.blockStart(block) + file.blockRows(block);
+                for (long row = file.blockStart(block); row < last; row++) {
+                    scanned++;
+                    if (wanted != null && !(symbols != null ? symbols[file.dictId(columns[0], row)]
+                            : file.equals(columns[0], row, wanted))) {
+                        continue;
                     }
-                } else {
-                    stringBuilder.append(line).append("\n");
+                    long bob = file.time(columns[7], row);
+                    long eob = file.time(columns[8], row);
+                    if (bob == TimeDecoder.INVALID || eob == TimeDecoder.INVALID || bob > end || eob < start) {
+                        continue;
+                    }
+                    if (currentBytes == null || !file.equals(columns[0], row, currentBytes)) {
+                        current = file.string(columns[0], row);
+                        currentBytes = bytes(current);
+                    }
+                    consumer.accept(current,
+                            file.number(columns[1], row), file.number(columns[2], row),
+                            file.number(columns[3], row), file.number(columns[4], row),
+                            file.number(columns[5], row), file.number(columns[6], row),
+                            bob, eob);
                 }
             }
+        } finally {
+            scan.scanned(scanned);
+        }
+    }
 
+    // 解析查询时间，为空时返回 defaultValue
+    private static long parseBound(String text, long defaultValue) {
+        if (text == null || text.isEmpty()) {
+            return defaultValue;
         }
-        List<Path> remainingPaths = new ArrayList<>();
-        for (int i = processedPathIndex + 1; i < paths.size(); i++) {
-            remainingPaths.add(paths.get(i));
+        long value = TimeDecoder.decode(text);
+        if (value == TimeDecoder.INVALID) {
+            throw new IllegalArgumentException("日期时间解析失败: " + text);
         }
-        return new DataBack(stringBuilder.toString(), remainingPaths);
+        return value;
     }
 
     //    public DataBack getTickData(List<Path> paths, String startTime, String endTime, int createTimeIndex) {
@@ -274,150 +696,190 @@ public class VvtrData {
 //        }
 //        return new DataBack(stringBuilder.toString(), remainingPaths);
 //    }
-    public DataLabel getTickData(List<Path> paths, String startTime, String endTime, int createTimeIndex, int nextIndex, int count) {
-        if (count > 180) {
-            count = 180;
-        }
-        StringBuilder stringBuilder = new StringBuilder();
-        int totalLine = 0;
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        LocalDateTime startDateTime = null;
-        LocalDateTime endDateTime = null;
-        int index = 0;
-        int currentLine = 0;
-
-        // 尝试解析时间范围
-        try {
-            if (!startTime.isEmpty()) startDateTime = LocalDateTime.parse(startTime, formatter);
-            if (!endTime.isEmpty()) endDateTime = LocalDateTime.parse(endTime, formatter);
-        } catch (Exception e) {
-            System.err.println("日期时间解析失败: " + e.getMessage());
-        }
+    /**
+     * 分页获取 tick 数据，借助 TickIndex 直接定位到需要的行
+     *
+     * @param paths     剩余的文件，第一个为当前文件
+     * @param nextIndex 当前文件中下一次读取的行号（不含表头，从 0 开始）
+     * @param count     本次最多返回的条数，不大于 0 时只按页大小限制
+     * @return 数据，下一次的读取行号，游标
+     */
+    public DataLabel getTickData(List<Path> paths, String startTime, String endTime, int nextIndex, int count) {
+        ScanCursor cursor = ScanCursor.builder()
+                .kind("tick")
+                .paths(paths)
+                .row(Math.max(nextIndex, 0))
+                .startTime(startTime)
+                .endTime(endTime)
+                .build();
+        return getTickData(cursor, count);
+    }
 
-        int processedPathIndex = 0;
-        for (int i = 0; i < paths.size(); i++) {
-            processedPathIndex = i;
-            Path path = paths.get(i);
-            currentLine = CsvMerger.countLines(CsvMerger.parseCSVWithoutHeaderAsString(paths.get(i)));
-
-            try (BufferedReader reader = Files.newBufferedReader(path)) {
-                // 获取并跳过标题行
-                String headerLine = reader.readLine();
-                if (headerLine != null) {
-                    stringBuilder.append(headerLine).append("\n");
-                }
+    /**
+     * 从游标处继续获取 tick 数据：游标带有字节偏移时直接定位，否则通过 TickIndex 定位
+     * <p>
+     * 一页不超过 count 条，也不超过游标中的页大小。
+     */
+    public DataLabel getTickData(ScanCursor cursor, int count) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("getTickData")) {
+            return getTickData(cursor, count, scan);
+        }
+    }
 
-                // 使用更智能的CSV解析
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    // 获取完整行，但需要处理引号中的逗号
-                    List<String> fields = parseCSVLine(line);
-                    totalLine++;
-                    // 确保创建时间索引在范围内
-                    if (fields.size() <= createTimeIndex || createTimeIndex < 0) {
-                        System.err.println("警告: 创建时间索引超出范围");
-                        continue;
-                    }
-                    // 提取日期时间
-                    String createdAtField = fields.get(createTimeIndex);
-                    LocalDateTime recordTime = extractDateTime(createdAtField);
-                    // 时间筛选
-                    if (shouldIncludeRecord(recordTime, startDateTime, endDateTime)) {
-                        stringBuilder.append(line).append("\n");
-                    }
-                    if (totalLine - nextIndex > count && i > 0) {
-                        break;
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("读取文件失败: " + e.getMessage());
+    private DataLabel getTickData(ScanCursor cursor, int count, ScanMetrics.Scan scan) {
+        ScanSpec.ScanSpecBuilder spec = spec(cursor)
+                .timeColumn(ScanSpec.TimeColumn.TICK)
+                .limit(count > 0 ? count : Long.MAX_VALUE);
+        // 尝试解析时间范围，无法解析的一端不做限制
+        String startTime = cursor.getStartTime();
+        String endTime = cursor.getEndTime();
+        if (hasText(startTime)) {
+            long decoded = TimeDecoder.decode(startTime);
+            if (decoded == TimeDecoder.INVALID) {
+                System.err.println("日期时间解析失败: " + startTime);
+            } else {
+                spec.startTime(decoded);
             }
         }
-        // 每一行数据
-        String[] allLines = stringBuilder.toString().split("\\r?\\n");
-        // 实际限制
-        int actualLimit = Math.min(count, allLines.length);
-        for (int i = nextIndex; i < actualLimit + nextIndex; i++) {
-            stringBuilder.append(allLines[i]);
-            if (i < actualLimit + nextIndex - 1) {
-                stringBuilder.append("\n");
+        if (hasText(endTime)) {
+            long decoded = TimeDecoder.decode(endTime);
+            if (decoded == TimeDecoder.INVALID) {
+                System.err.println("日期时间解析失败: " + endTime);
+            } else {
+                spec.endTime(decoded);
             }
         }
+        // 第一个文件输出表头，之后只有列布局变化时才再次输出
+        return label(cursor, spec.build(), new Page(cursor.getFormat(), true, pageBytes(cursor), scan), scan);
+    }
 
+    // 指定了返回的列时 CSV 格式也输出表头，列的顺序与请求一致
+    private static boolean projected(ScanCursor cursor) {
+        return cursor.getColumns() != null && !cursor.getColumns().isEmpty();
+    }
 
-        if (count < allLines.length) {
-            index = nextIndex
-                    + actualLimit
-                    + currentLine // 当前文件的行数
-                    - allLines.length; // 总的读取到的行数
-            if (index < 0) {
-                int lines = CsvMerger.countLines(CsvMerger.parseCSVWithoutHeaderAsString(paths.get(0)));
-                index = lines + index;
-            }
+    // 游标中的文件、返回的列、位置和页大小
+    private ScanSpec.ScanSpecBuilder spec(ScanCursor cursor) {
+        int chunkBytes = pageBytes(cursor);
+        // 紧凑格式比原始行小，每个文件多取一些原始行，一般不需要再补读
+        if (cursor.getFormat() == WireFormat.COLUMNAR) {
+            chunkBytes *= 4;
+        }
+        return ScanSpec.builder()
+                .partitions(cursor.getPaths())
+                .columns(cursor.getColumns())
+                .chunkBytes(chunkBytes)
+                .fileIndex(cursor.getFileIndex())
+                .offset(cursor.getOffset())
+                .row(cursor.getRow());
+    }
+
+    private DataBack back(ScanCursor cursor, ScanSpec spec, Page page, ScanMetrics.Scan scan) {
+        ScanSpec.Position next = queryEngine.scan(spec, page, scan);
+        if (next == null) {
+            return new DataBack(page.finish(), new ArrayList<>(), null);
         }
+        // 继续查询只需要游标，不再返回剩余文件
+        return new DataBack(page.finish(), new ArrayList<>(), cursorStore.save(resume(cursor, next)));
+    }
 
-        // 构建剩余路径
-        List<Path> remainingPaths = new ArrayList<>();
-        for (int i = processedPathIndex; i < paths.size(); i++) {
-            remainingPaths.add(paths.get(i));
+    private DataLabel label(ScanCursor cursor, ScanSpec spec, Page page, ScanMetrics.Scan scan) {
+        ScanSpec.Position next = queryEngine.scan(spec, page, scan);
+        if (next == null) {
+            return new DataLabel(page.finish(), 0, new ArrayList<>(), null);
         }
+        return new DataLabel(page.finish(), (int) next.row(), new ArrayList<>(), cursorStore.save(resume(cursor, next)));
+    }
+
+    private static ScanCursor resume(ScanCursor cursor, ScanSpec.Position next) {
+        return cursor.toBuilder().fileIndex(next.fileIndex()).offset(next.offset()).row(next.row()).build();
+    }
 
-        return new DataLabel(stringBuilder.toString(), index, remainingPaths);
+    private static boolean hasText(String s) {
+        return s != null && !s.isEmpty();
     }
 
-    // 解析CSV行，正确处理引号内的内容
-    private List<String> parseCSVLine(String line) {
-        List<String> fields = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder field = new StringBuilder();
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                fields.add(field.toString());
-                field = new StringBuilder();
+    /**
+     * 一页返回结果，按 WireFormat 输出原始 CSV 行或 ColumnarEncoder 的紧凑格式
+     * <p>
+     * 加入一行后超过 maxBytes 字节时不加入该行，下一页从该行开始；
+     * 每页至少包含一行，单行超过 maxBytes 时也会返回。
+     * 表头（CSV 格式的 tick 数据）和紧凑格式的说明行在该表头的第一行数据加入时才输出，也计入页大小。
+     */
+    private static final class Page implements RowSink {
+        private final ByteSink out = new ByteSink();
+        private final boolean columnar;
+        private final boolean csvHeader;  // CSV 格式是否输出表头（tick 数据、指定了返回的列）
+        private final int maxBytes;
+        private int rows;
+        private CsvSchema schema;
+        private boolean headerPending;
+        private int headerBytes;          // 待输出表头的 UTF-8 字节数（含换行）
+        private ColumnarEncoder encoder;
+        private final ScanMetrics.Scan scan;
+
+        Page(WireFormat format, boolean csvHeader, int maxBytes, ScanMetrics.Scan scan) {
+            this.scan = scan;
+            this.columnar = format == WireFormat.COLUMNAR;
+            this.csvHeader = csvHeader;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void schema(CsvSchema next) {
+            if (next == schema) {
+                return;
+            }
+            schema = next;
+            if (columnar) {
+                flush();
+                encoder = new ColumnarEncoder(next.columns());
             } else {
-                field.append(c);
+                headerPending = csvHeader;
+                headerBytes = csvHeader ? bytes(next.header()).length + 1 : 0;
             }
         }
-        fields.add(field.toString());
-        return fields;
-    }
 
-    // 从字段中提取日期时间
-    private LocalDateTime extractDateTime(String createdAtField) {
-        // 处理可能的格式，例如："2025-04-28 09:15:00+0800"
-        try {
-            // 移除可能的前缀
-            String dateStr = createdAtField;
-            if (dateStr.contains("created_at")) {
-                dateStr = dateStr.substring(dateStr.indexOf(":") + 1).trim();
+        @Override
+        public boolean row(byte[] buf, int offset, int length) {
+            if (encoder != null) {
+                encoder.add(buf, offset, length);
+                if (rows > 0 && out.size() + encoder.size() > maxBytes) {
+                    encoder.removeLast();
+                    return false;
+                }
+            } else {
+                int header = headerPending ? headerBytes : 0;
+                if (rows > 0 && out.size() + header + length + 1 > maxBytes) {
+                    return false;
+                }
+                if (headerPending) {
+                    out.append(schema.header()).append('\n');
+                    headerPending = false;
+                }
+                out.append(buf, offset, length).append('\n');
             }
+            rows++;
+            return true;
+        }
 
-            // 移除时区信息
-            if (dateStr.contains("+")) {
-                dateStr = dateStr.substring(0, dateStr.indexOf("+"));
-            }
+        String finish() {
+            flush();
+            scan.returned(rows);
+            return out.toString();
+        }
 
-            return LocalDateTime.parse(dateStr, DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        } catch (Exception e) {
-            System.err.println("提取日期时间失败: " + e.getMessage());
-            return null;
+        private void flush() {
+            if (encoder != null && encoder.rowCount() > 0) {
+                encoder.writeTo(out);
+            }
+            encoder = null;
         }
     }
 
-    // 检查记录是否在指定的时间范围内
-    private boolean shouldIncludeRecord(LocalDateTime recordTime, LocalDateTime startTime, LocalDateTime endTime) {
-        if (recordTime == null) return true; // 如果无法解析时间，则包含该记录
-        if (startTime == null && endTime == null) return true; // 如果没有指定时间范围，则包含所有记录
-
-        boolean afterStart = startTime == null || !recordTime.isBefore(startTime);
-        boolean beforeEnd = endTime == null || !recordTime.isAfter(endTime);
-
-        return afterStart && beforeEnd;
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
     }
 
-
 }
 
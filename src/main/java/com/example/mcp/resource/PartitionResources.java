@@ -0,0 +1,271 @@
+package com.example.mcp.resource;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.PartitionCatalog;
+import com.example.mcp.index.SchemaRegistry;
+import com.example.mcp.index.TickIndex;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.model.Partition;
+import com.example.mcp.query.QueryEngine;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.repository.VvtrData;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.CsvLineReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按 URI 读取单个分区的一段数据：{@value #TEMPLATE}
+ * <p>
+ * 不在启动时为每个文件注册资源，读取时才通过 PartitionCatalog 查找文件；没有日期目录的文件 date 为 "-"。
+ * 每次最多返回 length 字节（默认 vvtr.resource.chunk-bytes）的完整行，并给出下一段的 URI，大文件可以分多次读取：
+ * <pre>
+ * vvtr://A-shares/tick/20200904/SHSE.600000                        从头读取默认大小
+ * vvtr://A-shares/tick/20200904/SHSE.600000?offset=1048576&length=65536  从字节偏移处读取（对齐到下一个行首）
+ * vvtr://A-shares/tick/20200904/SHSE.600000?row=10000&rows=500     从第 10000 个数据行读取 500 行
+ * </pre>
+ * 每段都以表头开始；按行读取时通过 TickIndex 定位，不从文件开头扫描。
+ */
+@Component
+public class PartitionResources {
+
+    public static final String SCHEME = "vvtr://";
+    public static final String TEMPLATE = SCHEME + "{type}/{freq}/{date}/{symbol}";
+    public static final String UNDATED = "-";
+    /**
+     * 说明资源：URI 模板、参数和目录中的分区数
+     */
+    public static final String RESOURCE_URI = SCHEME + "partitions";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final PartitionCatalog partitionCatalog;
+    private final QueryEngine queryEngine;
+    private final int chunkBytes;
+
+    public PartitionResources(PartitionCatalog partitionCatalog, PartitionCache partitionCache, ScanPool scanPool,
+                              @Value("${vvtr.resource.chunk-bytes:1048576}") int chunkBytes) {
+        this.partitionCatalog = partitionCatalog;
+        this.queryEngine = new QueryEngine(partitionCache, scanPool);
+        this.chunkBytes = Math.min(Math.max(chunkBytes, 1), VvtrData.MAX_PAGE_BYTES);
+    }
+
+    /**
+     * 一段数据
+     *
+     * @param uri  本段的 URI
+     * @param next 下一段的 URI，已读到文件末尾时为 null
+     * @param rows 本段的数据行数（不含表头）
+     * @param text 表头和数据行，以 '\n' 分隔
+     */
+    public record Chunk(String uri, String next, int rows, String text) {
+    }
+
+    /**
+     * 解析后的 URI
+     *
+     * @param offset 字节偏移，按行读取时为 -1
+     * @param row    数据行号，按字节读取时为 -1
+     * @param limit  按字节读取时为最大字节数，按行读取时为行数
+     */
+    record Request(String type, String freq, String date, String symbol, long offset, long row, int limit) {
+    }
+
+    /**
+     * 读取 URI 指向的一段数据
+     *
+     * @throws IllegalArgumentException URI 格式错误或分区不存在
+     */
+    public Chunk read(String uri) throws IOException {
+        Request request = parse(uri, chunkBytes);
+        Path path = resolve(request);
+        try (ScanMetrics.Scan scan = ScanMetrics.start("readPartition")) {
+            Chunk chunk = request.row() >= 0 ? readRows(uri, request, path, scan) : readBytes(uri, request, path, scan);
+            scan.returned(chunk.rows());
+            return chunk;
+        }
+    }
+
+    /**
+     * 说明资源的内容（JSON），每次读取时生成
+     */
+    public String json() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("uriTemplate", TEMPLATE);
+        description.put("mimeType", "text/csv");
+        description.put("example", SCHEME + "A-shares/tick/20200904/SHSE.600000?row=0&rows=1000");
+        description.put("parameters", Map.of(
+                "date", "日期目录(yyyyMMdd),没有日期目录的文件为" + UNDATED,
+                "offset", "从该字节偏移读取,不在行首时从下一行开始",
+                "length", "本段最多返回的字节数,默认" + chunkBytes + ",最大" + VvtrData.MAX_PAGE_BYTES,
+                "row", "从该数据行(从0开始,不含表头)读取",
+                "rows", "本段最多返回的行数"));
+        description.put("tool", "read-financial-products-partition");
+        description.put("partitions", partitionCatalog.size());
+        try {
+            return MAPPER.writeValueAsString(description);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("说明资源序列化失败", e);
+        }
+    }
+
+    static Request parse(String uri, int defaultLength) {
+        if (uri == null || !uri.startsWith(SCHEME)) {
+            throw new IllegalArgumentException("资源 URI 的格式为 " + TEMPLATE + ": " + uri);
+        }
+        String rest = uri.substring(SCHEME.length());
+        String query = "";
+        int question = rest.indexOf('?');
+        if (question >= 0) {
+            query = rest.substring(question + 1);
+            rest = rest.substring(0, question);
+        }
+        String[] segments = rest.split("/", -1);
+        if (segments.length != 4) {
+            throw new IllegalArgumentException("资源 URI 的格式为 " + TEMPLATE + ": " + uri);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = URLDecoder.decode(segments[i], StandardCharsets.UTF_8);
+            String segment = segments[i];
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")
+                    || segment.indexOf('/') >= 0 || segment.indexOf('\\') >= 0) {
+                throw new IllegalArgumentException("资源 URI 中的路径无效: " + uri);
+            }
+        }
+        long offset = -1;
+        long row = -1;
+        long length = -1;
+        long rows = -1;
+        if (!query.isEmpty()) {
+            for (String parameter : query.split("&")) {
+                int eq = parameter.indexOf('=');
+                String name = eq < 0 ? parameter : parameter.substring(0, eq);
+                String value = eq < 0 ? "" : parameter.substring(eq + 1);
+                long number;
+                try {
+                    number = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("参数 " + name + " 不是整数: " + value);
+                }
+                if (number < 0) {
+                    throw new IllegalArgumentException("参数 " + name + " 不能为负数: " + value);
+                }
+                switch (name) {
+                    case "offset" -> offset = number;
+                    case "length" -> length = number;
+                    case "row" -> row = number;
+                    case "rows" -> rows = number;
+                    default -> throw new IllegalArgumentException("不支持的参数: " + name + ", 可选 offset,length,row,rows");
+                }
+            }
+        }
+        if ((offset >= 0 || length >= 0) && (row >= 0 || rows >= 0)) {
+            throw new IllegalArgumentException("offset/length 与 row/rows 不能同时使用: " + uri);
+        }
+        if (row >= 0 || rows >= 0) {
+            // 按行读取时同样不超过默认的字节上限
+            return new Request(segments[0], segments[1], segments[2], segments[3], -1, Math.max(row, 0),
+                    (int) Math.min(rows > 0 ? rows : Integer.MAX_VALUE, Integer.MAX_VALUE));
+        }
+        int bytes = (int) Math.min(length > 0 ? length : defaultLength, VvtrData.MAX_PAGE_BYTES);
+        return new Request(segments[0], segments[1], segments[2], segments[3], Math.max(offset, 0), -1, bytes);
+    }
+
+    private Path resolve(Request request) throws IOException {
+        String date = request.date().equals(UNDATED) ? "" : request.date();
+        String bound = date.isEmpty() ? "00000000" : date;
+        for (Partition partition : partitionCatalog.find(request.type(), request.freq(), bound, bound, request.symbol())) {
+            if (partition.date().equals(date) && partition.symbol().equals(request.symbol())) {
+                return partition.path();
+            }
+        }
+        throw new IllegalArgumentException("分区不存在: " + SCHEME + request.type() + "/" + request.freq() + "/"
+                + request.date() + "/" + request.symbol());
+    }
+
+    // 从 offset 处读取不超过 limit 字节的完整行，至少一行
+    private Chunk readBytes(String uri, Request request, Path path, ScanMetrics.Scan scan) throws IOException {
+        CsvSchema schema = SchemaRegistry.of(path);
+        ByteSink sink = header(schema);
+        int budget = sink.size() + request.limit();
+        int rows = 0;
+        long next = -1;
+        // 从 offset 前一个字节开始读并丢弃第一行，offset 不在行首时对齐到下一个行首；从 0 开始时 open 已跳过表头
+        long start = Math.max(request.offset() - 1, 0);
+        try (CsvLineReader reader = queryEngine.open(path, start, scan)) {
+            if (start > 0) {
+                reader.next();
+            }
+            while (reader.next()) {
+                if (rows > 0 && sink.size() + reader.length() + 1 > budget) {
+                    next = reader.offset();
+                    break;
+                }
+                sink.append(reader.buffer(), reader.start(), reader.length()).append('\n');
+                rows++;
+            }
+        }
+        return new Chunk(uri, next < 0 ? null : uri(request, "offset=" + next + "&length=" + request.limit()),
+                rows, sink.toString());
+    }
+
+    // 从第 row 个数据行读取最多 limit 行，同时不超过单页字节上限
+    private Chunk readRows(String uri, Request request, Path path, ScanMetrics.Scan scan) throws IOException {
+        CsvSchema schema = SchemaRegistry.of(path);
+        ByteSink sink = header(schema);
+        int budget = sink.size() + chunkBytes;
+        int timeColumn = schema.createdAtIndex() >= 0 ? schema.createdAtIndex() : schema.bobIndex();
+        TickIndex index = timeColumn >= 0 ? TickIndex.of(path, timeColumn) : null;
+        TickIndex.Checkpoint checkpoint = index != null ? index.seekRow(request.row()) : new TickIndex.Checkpoint(0, 0);
+        long current = checkpoint.row();
+        int rows = 0;
+        boolean more = false;
+        try (CsvLineReader reader = queryEngine.open(path, checkpoint.offset(), scan)) {
+            while (reader.next()) {
+                if (current++ < request.row()) {
+                    continue;
+                }
+                if (rows >= request.limit() || (rows > 0 && sink.size() + reader.length() + 1 > budget)) {
+                    more = true;
+                    break;
+                }
+                sink.append(reader.buffer(), reader.start(), reader.length()).append('\n');
+                rows++;
+            }
+        }
+        String next = null;
+        if (more) {
+            String query = "row=" + (request.row() + rows);
+            next = uri(request, request.limit() == Integer.MAX_VALUE ? query : query + "&rows=" + request.limit());
+        }
+        return new Chunk(uri, next, rows, sink.toString());
+    }
+
+    private static ByteSink header(CsvSchema schema) {
+        ByteSink sink = new ByteSink();
+        if (!schema.header().isEmpty()) {
+            sink.append(schema.header()).append('\n');
+        }
+        return sink;
+    }
+
+    private static String uri(Request request, String query) {
+        return SCHEME + encode(request.type()) + "/" + encode(request.freq()) + "/" + encode(request.date()) + "/"
+                + encode(request.symbol()) + "?" + query;
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
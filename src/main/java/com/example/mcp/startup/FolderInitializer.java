@@ -7,7 +7,6 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.List;
 
 import static com.example.McpServerApplication.log;
@@ -17,6 +16,26 @@ import static com.example.McpServerApplication.log;
 @Slf4j
 public class FolderInitializer implements ApplicationRunner {
 
+    /**
+     * 各类产品的目录
+     */
+    public static final List<String> FOLDERS = List.of(
+            "A-shares",         // A股
+            "Futures",          // 期货
+            "Funds",            // 基金
+            "Indices",          // 指数
+            "US-Stocks",        // 美股
+            "Options",          // 美股期权
+            "Crypto"            // 加密币
+    );
+
+    /**
+     * 每类产品下的数据频率目录
+     */
+    public static final List<String> FREQUENCIES = List.of(
+            "1d", "1m", "15m", "tick"
+    );
+
     private final String basePath = System.getProperty("api.data.path");
 
     /**
@@ -25,22 +44,9 @@ public class FolderInitializer implements ApplicationRunner {
      */
     @Override
     public void run(ApplicationArguments args) {
-        List<String> folders = Arrays.asList(
-                "A-shares",         // A股
-                "Futures",          // 期货
-                "Funds",            // 基金
-                "Indices",          // 指数
-                "US-Stocks",        // 美股
-                "Options",          // 美股期权
-                "Crypto"            // 加密币
-        );
-        List<String> type = Arrays.asList(
-                "1d", "1m", "15m", "tick"
-        );
-
-        for (String folderName : folders) {
+        for (String folderName : FOLDERS) {
             File dir = new File(basePath, folderName);
-            for (String typeName : type) {
+            for (String typeName : FREQUENCIES) {
                 File typeDir = new File(dir, typeName);
                 if (!typeDir.exists()) {
                     boolean created = typeDir.mkdirs();
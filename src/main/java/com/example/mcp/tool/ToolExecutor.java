@@ -0,0 +1,85 @@
+package com.example.mcp.tool;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步模式（spring.ai.mcp.server.type=async）下执行工具调用的线程池
+ * <p>
+ * 分为两条通道，互不占用线程：
+ * <ul>
+ *     <li>scan：读取数据的工具，同时执行的数量由 vvtr.tool.max-concurrent-scans 限制，超出的调用排队</li>
+ *     <li>lookup：只查目录的轻量工具，由 vvtr.tool.max-concurrent-lookups 限制，不会排在长时间的扫描后面</li>
+ * </ul>
+ * 项目以 Java 17 编译，不能使用虚拟线程，这里使用按需创建、空闲回收的平台线程。
+ */
+@Component
+public class ToolExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutorService scanExecutor;
+    private final ExecutorService lookupExecutor;
+    private final Scheduler scanScheduler;
+    private final Scheduler lookupScheduler;
+    private final int maxConcurrentScans;
+
+    public ToolExecutor(@Value("${vvtr.tool.max-concurrent-scans:4}") int maxConcurrentScans,
+                        @Value("${vvtr.tool.max-concurrent-lookups:2}") int maxConcurrentLookups) {
+        this.maxConcurrentScans = Math.max(maxConcurrentScans, 1);
+        this.scanExecutor = newExecutor("vvtr-tool-scan-", this.maxConcurrentScans);
+        this.lookupExecutor = newExecutor("vvtr-tool-lookup-", Math.max(maxConcurrentLookups, 1));
+        this.scanScheduler = Schedulers.fromExecutorService(scanExecutor, "vvtr-tool-scan");
+        this.lookupScheduler = Schedulers.fromExecutorService(lookupExecutor, "vvtr-tool-lookup");
+    }
+
+    public int maxConcurrentScans() {
+        return maxConcurrentScans;
+    }
+
+    /**
+     * 在 scan 通道上执行，订阅时才开始
+     */
+    public <T> Mono<T> scan(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(scanScheduler);
+    }
+
+    /**
+     * 在 lookup 通道上执行，订阅时才开始
+     */
+    public <T> Mono<T> lookup(Callable<T> task) {
+        return Mono.fromCallable(task).subscribeOn(lookupScheduler);
+    }
+
+    // 固定上限的线程池，线程按需创建，空闲后回收
+    private static ExecutorService newExecutor(String prefix, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void close() {
+        scanScheduler.dispose();
+        lookupScheduler.dispose();
+        scanExecutor.shutdownNow();
+        lookupExecutor.shutdownNow();
+    }
+}
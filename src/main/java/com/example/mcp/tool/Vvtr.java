@@ -1,28 +1,66 @@
 package com.example.mcp.tool;
 
+import com.example.mcp.bar.BarPeriod;
+import com.example.mcp.bar.TickBarBuilder;
+import com.example.mcp.cursor.CursorStore;
+import com.example.mcp.cursor.ScanCursor;
+import com.example.mcp.index.PartitionCatalog;
+import com.example.mcp.index.PartitionStats;
+import com.example.mcp.index.SymbolBloom;
+import com.example.mcp.indicator.IndicatorEngine;
 import com.example.mcp.model.DataBack;
 import com.example.mcp.model.DataLabel;
+import com.example.mcp.model.KLineData;
 import com.example.mcp.repository.VvtrData;
-import com.example.mcp.util.CsvMerger;
-import com.example.mcp.util.FolderSize;
+import com.example.mcp.resource.PartitionResources;
+import com.example.mcp.util.TimeDecoder;
+import com.example.mcp.util.WireFormat;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class Vvtr {
     private static final String API_KEY = System.getProperty("api-key");
+    /**
+     * 只查目录、不读取数据的工具，异步模式下不与读取数据的工具共用线程
+     */
+    public static final Set<String> LOOKUP_TOOLS = Set.of("get-financial-products-data-path");
+
+    private static final int MAX_BARS = 5000;
+    // 按 token 指定页大小时的换算，数字较多的 CSV 约 3 字节一个 token
+    private static final int BYTES_PER_TOKEN = 3;
+    private static final String BYTES_DESCRIPTION = "每页返回内容的目标字节数,为空时使用默认值(约64KB),最大4MB,使用游标继续查询时可以重新指定";
+    private static final String TOKENS_DESCRIPTION = "每页返回内容的目标token数(按每个token约3字节估算),与maxBytes同时传入时以maxBytes为准";
+    private static final String FORMAT_DESCRIPTION = "返回格式,csv(默认,原始行)或columnar(紧凑格式,体积约为csv的1/3:"
+            + "#columns为表头;文本列的值为#dict中的序号;时间列的值为与上一行相差的秒数,第一行相对#time中的基准时间;"
+            + "金额保留2位小数,其它数值保留4位),使用游标继续查询时沿用第一次的格式";
+    private static final String COLUMNS_DESCRIPTION = "只返回这些列(按文件表头的列名,不区分大小写),eg:[bob,close,volume],为空时返回全部列;"
+            + "指定后csv格式也会输出表头,列的顺序与传入的一致,使用游标继续查询时沿用第一次的列";
 
     private final VvtrData vvtrData;
+    private final PartitionCatalog partitionCatalog;
+    private final CursorStore cursorStore;
+    private final PartitionResources partitionResources;
 
     // 使用构造器注入依赖
-    public Vvtr(VvtrData vvtrData) {
+    public Vvtr(VvtrData vvtrData, PartitionCatalog partitionCatalog, CursorStore cursorStore,
+                PartitionResources partitionResources) {
         this.vvtrData = vvtrData;
+        this.partitionCatalog = partitionCatalog;
+        this.cursorStore = cursorStore;
+        this.partitionResources = partitionResources;
     }
 
     @Tool(name = "get-financial-products-data-path",
@@ -32,102 +70,256 @@ public class Vvtr {
                                   @ToolParam(required = true, description = "种类代码,可以为空字符串") String symbol,
                                   @ToolParam(required = true, description = "查询的开始时间(yyyyMMdd),可为空字符串") String startTime,
                                   @ToolParam(required = true, description = "查询的结束时间(yyyyMMdd),可为空字符串") String endTime) throws Exception {
-        // 获取到所有需要查找的文件
-        Path rootDir = Paths.get(CsvMerger.ROOT, type, name);
-
-
         if (startTime == null || startTime.isEmpty()) {
             startTime = "00000000";
         }
         if (endTime == null || endTime.isEmpty()) {
             endTime = "99999999";
         }
+        // 1d 文件按日期命名,包含所有种类代码,不按代码过滤
         if (name.equals("1d")) {
-            List<Path> paths = CsvMerger.findAllCsvFiles(rootDir, startTime, endTime);
-            return paths.stream()
-                    .map(Path::toString)
-                    .collect(Collectors.toList());
-        } else {
-            List<Path> paths = CsvMerger.findAllCsvFiles(rootDir, startTime, endTime, symbol);
-            return paths.stream()
-                    .map(Path::toString)
-                    .collect(Collectors.toList());
+            symbol = "";
         }
+        List<Path> paths = partitionCatalog.findPaths(type, name, startTime, endTime, symbol);
+        return paths.stream()
+                .map(Path::toString)
+                .collect(Collectors.toList());
     }
 
 
     @Tool(name = "get-financial-products-data-count",
-            description = "根据获取的金融产品资源路径查询数据条数(除了1d,其他的均为估计值)")
+            description = "根据获取的金融产品资源路径查询数据条数(精确值),传入种类代码时只统计该代码的条数")
     public long getDataCount(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/1m/202009/20200904/20200904.csv]") List<String> pathStrs,
                              @ToolParam(description = "要查询的数据类型,eg:1d,1m,15m,tick") String type,
-                             @ToolParam(required = false, description = "仅仅1d需要,种类代码") String symbol) throws Exception {
+                             @ToolParam(required = false, description = "种类代码,为空时统计全部") String symbol) throws Exception {
 
-        List<Path> paths = pathStrs.stream()
-                .map(Paths::get)
-                .collect(Collectors.toList());
-        Long size = FolderSize.getFileSize(paths);
-        switch (type) {
-            case "1d":
-                String data = CsvMerger.parseMultipleCSVFilesWithoutHeader(paths);
-                String filterData = CsvMerger.filterData(data, symbol);
-                return CsvMerger.countLines(filterData);
-            case "1m", "15m":
-                return size / 120;
-            case "tick":
-                return size / 232;
-            default:
-                return 0L;
+        long count = 0;
+        for (Path path : toPaths(pathStrs)) {
+            // 确定不包含该代码的文件(停牌、未上市等)不需要读取统计
+            if (SymbolBloom.definitelyAbsent(path, symbol)) {
+                continue;
+            }
+            // 统计结果保存在 .stats 文件中,只有第一次或文件变化后才会扫描数据
+            PartitionStats stats = PartitionStats.of(path);
+            if (stats != null) {
+                count += stats.rowCount(symbol);
+            }
         }
+        return count;
     }
 
     @Tool(name = "get-financial-products-min-data",
-            description = "根据获取的分钟(1m/15m)类型金融产品资源路径查询数据,分片查询,受到上下文限制,一般需要多次请求,一次性查询不超过3000条,超过3000条分多次查询,会返回剩下需要查询的文件,返回文件为空即查完")
-    public DataBack getMinuteData(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/1m/202009/20200904/20200904.csv]") List<String> pathStrs,
-                                  @ToolParam(description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
-                                  @ToolParam(description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime) throws Exception {
-        // 先把字符串列表转回 Path
-        List<Path> paths = pathStrs.stream()
-                .map(Paths::get)
-                .collect(Collectors.toList());
-        if (startTime == null || startTime.isEmpty()) {
-            startTime = null;
+            description = "根据获取的分钟(1m/15m)类型金融产品资源路径查询数据,分片查询,受到上下文限制,一般需要多次请求,每页大小由maxBytes或maxTokens决定,查不完时会返回游标,继续查询时只需传入游标,返回游标为空即查完")
+    public DataBack getMinuteData(@ToolParam(required = false, description = "要查询的资源路径,eg:[D:/data/fund/1m/202009/20200904/20200904.csv],使用游标继续查询时可为空") List<String> pathStrs,
+                                  @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
+                                  @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime,
+                                  @ToolParam(required = false, description = "上一次返回的游标,第一次查询为空") String cursor,
+                                  @ToolParam(required = false, description = COLUMNS_DESCRIPTION) List<String> columns,
+                                  @ToolParam(required = false, description = FORMAT_DESCRIPTION) String format,
+                                  @ToolParam(required = false, description = BYTES_DESCRIPTION) Integer maxBytes,
+                                  @ToolParam(required = false, description = TOKENS_DESCRIPTION) Integer maxTokens) throws Exception {
+        ScanCursor scanCursor = resume(cursor, "min");
+        if (scanCursor == null) {
+            if (startTime == null || startTime.isEmpty()) {
+                startTime = null;
+            }
+            if (endTime == null || endTime.isEmpty()) {
+                endTime = null;
+            }
+            scanCursor = ScanCursor.builder()
+                    .kind("min")
+                    .paths(toPaths(pathStrs))
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .columns(toColumns(columns))
+                    .format(WireFormat.parse(format))
+                    .build();
         }
-        if (endTime == null || endTime.isEmpty()) {
-            endTime = null;
+        if (scanCursor.getPaths().isEmpty()) {
+            return new DataBack("", new ArrayList<>(), null);
         }
-        int bobIndex = CsvMerger.getBobIndex(paths.get(0));
-        return vvtrData.getMinData(paths, startTime, endTime, bobIndex);
+        return vvtrData.getMinData(withPageSize(scanCursor, maxBytes, maxTokens));
     }
 
     @Tool(name = "get-financial-products-day-data",
-            description = "根据获取的日线(1d)类型金融产品资源路径查询数据,分片查询，一次性查询不超过3000条,超过3000条分多次查询,会返回剩下需要查询的文件,返回文件为空即查完")
-    public DataBack getDayData(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/1d/202009/20200904/20200904.csv]") List<String> pathStrs,
-                             @ToolParam(description = "种类代码") String symbol,
+            description = "根据获取的日线(1d)类型金融产品资源路径查询数据,分片查询，每页大小由maxBytes或maxTokens决定,查不完时会返回游标,继续查询时只需传入游标,返回游标为空即查完")
+    public DataBack getDayData(@ToolParam(required = false, description = "要查询的资源路径,eg:[D:/data/fund/1d/202009/20200904/20200904.csv],使用游标继续查询时可为空") List<String> pathStrs,
+                             @ToolParam(required = false, description = "种类代码") String symbol,
                              @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd),如果为空字符串则查询全部数据") String startTime,
-                             @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd),如果为空字符串则查询全部数据") String endTime) throws Exception {
-        // 先把字符串列表转回 Path
-        List<Path> paths = pathStrs.stream()
-                .map(Paths::get)
-                .collect(Collectors.toList());
-        int bobIndex = CsvMerger.getBobIndex(paths.get(0));
-        int symbolIndex = CsvMerger.getSymbolIndex(paths.get(0));
-//        String data = CsvMerger.parseMultipleCSVFilesWithoutHeader(paths);
-//        String filterData = CsvMerger.filterData(data, symbol);
-        return vvtrData.getDayData(paths, symbol, symbolIndex, startTime, endTime, bobIndex);
+                             @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd),如果为空字符串则查询全部数据") String endTime,
+                             @ToolParam(required = false, description = "上一次返回的游标,第一次查询为空") String cursor,
+                             @ToolParam(required = false, description = COLUMNS_DESCRIPTION) List<String> columns,
+                             @ToolParam(required = false, description = FORMAT_DESCRIPTION) String format,
+                             @ToolParam(required = false, description = BYTES_DESCRIPTION) Integer maxBytes,
+                             @ToolParam(required = false, description = TOKENS_DESCRIPTION) Integer maxTokens) throws Exception {
+        ScanCursor scanCursor = resume(cursor, "day");
+        if (scanCursor == null) {
+            scanCursor = ScanCursor.builder()
+                    .kind("day")
+                    .paths(toPaths(pathStrs))
+                    .symbol(symbol)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .columns(toColumns(columns))
+                    .format(WireFormat.parse(format))
+                    .build();
+        }
+        if (scanCursor.getPaths().isEmpty()) {
+            return new DataBack("", new ArrayList<>(), null);
+        }
+        return vvtrData.getDayData(withPageSize(scanCursor, maxBytes, maxTokens));
+    }
+
+    @Tool(name = "get-financial-products-resample-data",
+            description = "根据获取的分钟(1m/15m)类型金融产品资源路径,在服务端把分钟数据合并为更大周期的K线(5m/15m/30m/1h/1d/1w)后一次性返回,"
+                    + "日内周期按交易时段切分,不会跨越午休和收盘,返回结果中的type为合并的原始K线根数,一次最多返回" + MAX_BARS + "根")
+    public List<KLineData> getResampleData(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/1m/202009/20200904/20200904.csv]") List<String> pathStrs,
+                                           @ToolParam(description = "目标周期,eg:5m,15m,30m,1h,1d,1w") String period,
+                                           @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
+                                           @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime) throws Exception {
+        return vvtrData.resample(toPaths(pathStrs), startTime, endTime, BarPeriod.parse(period), MAX_BARS);
+    }
+
+    @Tool(name = "get-financial-products-indicator-data",
+            description = "在服务端计算某个种类代码的技术指标,只返回时间和指标列(CSV),不需要先取出原始K线。"
+                    + "指标写法:sma:20,ema:20,rsi:14,macd:12:26:9,boll:20:2,atr:14,vwap(日内按天累计),vwap:20(滚动),参数可省略。"
+                    + "开始时间之前的数据会自动用于预热,一次最多返回" + MAX_BARS + "行(取最后的部分)")
+    public String getIndicatorData(@ToolParam(description = "查询的金融产品种类,eg:fund") String type,
+                                   @ToolParam(description = "查询的数据类型,eg:1m,15m,1d") String name,
+                                   @ToolParam(description = "种类代码") String symbol,
+                                   @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
+                                   @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime,
+                                   @ToolParam(description = "要计算的指标,eg:[sma:20,rsi:14,macd]") List<String> indicators,
+                                   @ToolParam(required = false, description = "只返回最后的条数,为空则返回全部") Integer limit) throws Exception {
+        IndicatorEngine engine = new IndicatorEngine(indicators);
+        String startDate = toDate(startTime, "00000000");
+        String endDate = toDate(endTime, "99999999");
+        if (!startDate.equals("00000000")) {
+            startDate = warmupStart(startDate, name, engine.lookback());
+        }
+        // 1d 文件按日期命名,包含所有种类代码,读取时再按代码过滤
+        List<Path> paths = partitionCatalog.findPaths(type, name, startDate, endDate, name.equals("1d") ? "" : symbol);
+        int rows = limit == null || limit <= 0 ? MAX_BARS : Math.min(limit, MAX_BARS);
+        return vvtrData.indicators(paths, symbol, startTime, endTime, engine, rows);
+    }
+
+    @Tool(name = "get-financial-products-tick-bar-data",
+            description = "根据获取的每一笔成交数据(tick)类型金融产品资源路径,在服务端把tick合并为K线后一次性返回(CSV),不需要分多次取出tick。"
+                    + "支持时间线(1s,5s,1m,5m)、成交量线(volume:10000,累计成交量达到该值为一根)、笔数线(trades:100,每100笔为一根),"
+                    + "返回列为symbol,bob,eob,open,high,low,close,volume,amount,vwap,trades,一次最多返回" + MAX_BARS + "根")
+    public String getTickBarData(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/tick/202009/20200904/20200904.csv]") List<String> pathStrs,
+                                 @ToolParam(description = "K线类型,eg:1s,1m,volume:10000,trades:100") String bar,
+                                 @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
+                                 @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime) throws Exception {
+        return vvtrData.tickBars(toPaths(pathStrs), startTime, endTime, TickBarBuilder.parse(bar), MAX_BARS);
     }
 
     @Tool(name = "get-financial-products-tick-data",
-    description = "根据获取的每一笔成交数据(tick)类型金融产品资源路径查询数据,分片查询，一次性查询不超过180条,超过180条分多次查询,会返回当前文件及剩下需要查询的文件,和当前文件的索引,返回文件为空即查完")
-    public DataLabel getTickData(@ToolParam(description = "要查询的资源路径,eg:[D:/data/fund/tick/202009/20200904/20200904.csv]") List<String> pathStrs,
-                                @ToolParam(description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
-                                @ToolParam(description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime,
-                                @ToolParam(description = "上一次剩余数据,第一次则为0") int nextIndex,
-                                @ToolParam(required = false, description = "要获取的条数") int count) throws Exception {
-        List<Path> paths = pathStrs.stream()
+    description = "根据获取的每一笔成交数据(tick)类型金融产品资源路径查询数据,分片查询，每页大小由maxBytes或maxTokens决定(也可以用count限制条数),查不完时会返回游标,继续查询时只需传入游标,返回游标为空即查完")
+    public DataLabel getTickData(@ToolParam(required = false, description = "要查询的资源路径,eg:[D:/data/fund/tick/202009/20200904/20200904.csv],使用游标继续查询时可为空") List<String> pathStrs,
+                                @ToolParam(required = false, description = "查询的开始时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String startTime,
+                                @ToolParam(required = false, description = "查询的结束时间(yyyy-MM-dd HH:mm:ss),如果为空字符串则查询全部数据") String endTime,
+                                @ToolParam(required = false, description = "上一次返回的当前文件索引(行号),第一次则为0,使用游标时忽略") Integer nextIndex,
+                                @ToolParam(required = false, description = "要获取的条数,为空时只按页大小限制") Integer count,
+                                @ToolParam(required = false, description = "上一次返回的游标,第一次查询为空") String cursor,
+                                @ToolParam(required = false, description = COLUMNS_DESCRIPTION) List<String> columns,
+                                @ToolParam(required = false, description = FORMAT_DESCRIPTION) String format,
+                                @ToolParam(required = false, description = BYTES_DESCRIPTION) Integer maxBytes,
+                                @ToolParam(required = false, description = TOKENS_DESCRIPTION) Integer maxTokens) throws Exception {
+        ScanCursor scanCursor = resume(cursor, "tick");
+        if (scanCursor == null) {
+            scanCursor = ScanCursor.builder()
+                    .kind("tick")
+                    .paths(toPaths(pathStrs))
+                    .row(nextIndex == null ? 0 : Math.max(nextIndex, 0))
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .columns(toColumns(columns))
+                    .format(WireFormat.parse(format))
+                    .build();
+        }
+        if (scanCursor.getPaths().isEmpty()) {
+            return new DataLabel("", 0, new ArrayList<>(), null);
+        }
+        return vvtrData.getTickData(withPageSize(scanCursor, maxBytes, maxTokens), count == null ? 0 : count);
+    }
+
+    @Tool(name = "read-financial-products-partition",
+            description = "按资源URI分段读取单个数据文件的原始内容,URI格式为" + PartitionResources.TEMPLATE
+                    + "(没有日期目录的文件date为-),eg:vvtr://A-shares/tick/20200904/SHSE.600000;"
+                    + "可附加?offset=字节偏移&length=字节数或?row=起始行&rows=行数,每段以表头开始,"
+                    + "返回的next为下一段的URI,为空表示已读完")
+    public PartitionResources.Chunk readPartition(@ToolParam(description = "资源URI,第一次读取不带参数,之后使用上一次返回的next") String uri) throws Exception {
+        return partitionResources.read(uri);
+    }
+
+    // 取回游标，第一次查询（没有游标）时返回 null
+    private ScanCursor resume(String cursor, String kind) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        ScanCursor scanCursor = cursorStore.get(cursor);
+        if (!kind.equals(scanCursor.getKind())) {
+            throw new IllegalArgumentException("游标不属于该查询: " + cursor);
+        }
+        return scanCursor;
+    }
+
+    // 指定了页大小时使用新的值,不修改已保存的游标
+    private static ScanCursor withPageSize(ScanCursor cursor, Integer maxBytes, Integer maxTokens) {
+        long bytes;
+        if (maxBytes != null && maxBytes > 0) {
+            bytes = maxBytes;
+        } else if (maxTokens != null && maxTokens > 0) {
+            bytes = (long) maxTokens * BYTES_PER_TOKEN;
+        } else {
+            return cursor;
+        }
+        return cursor.toBuilder().maxBytes((int) Math.min(bytes, VvtrData.MAX_PAGE_BYTES)).build();
+    }
+
+    // 取 yyyy-MM-dd HH:mm:ss 中的日期部分,转为 yyyyMMdd
+    private static String toDate(String time, String defaultValue) {
+        if (time == null || time.isEmpty()) {
+            return defaultValue;
+        }
+        long millis = TimeDecoder.decode(time);
+        if (millis == TimeDecoder.INVALID) {
+            throw new IllegalArgumentException("日期时间解析失败: " + time);
+        }
+        return TimeDecoder.toLocalDateTime(millis).format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    // 为预热 lookback 根K线向前多取的日期,按每天 4 小时交易时间估算,再留出节假日的余量
+    private static String warmupStart(String startDate, String name, int lookback) {
+        int minutes = name.equals("1d") ? 240 : BarPeriod.parse(name).minutes();
+        long tradingDays = ((long) lookback * minutes + 239) / 240;
+        LocalDate date = LocalDate.parse(startDate, DateTimeFormatter.BASIC_ISO_DATE);
+        return date.minusDays(tradingDays * 3 / 2 + 10).format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    // 列名去掉空白,也接受 "bob,close" 这样写在一起的列名;为空时返回 null(全部列)
+    private static List<String> toColumns(List<String> columns) {
+        if (columns == null) {
+            return null;
+        }
+        List<String> names = columns.stream()
+                .filter(Objects::nonNull)
+                .flatMap(column -> Arrays.stream(column.split(",")))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        return names.isEmpty() ? null : names;
+    }
+
+    private static List<Path> toPaths(List<String> pathStrs) {
+        if (pathStrs == null) {
+            return new ArrayList<>();
+        }
+        return pathStrs.stream()
                 .map(Paths::get)
                 .collect(Collectors.toList());
-        int createTimeIndex = CsvMerger.getCreateTimeIndex(paths.get(0));
-        return vvtrData.getTickData(paths, startTime, endTime, createTimeIndex, nextIndex, count);
     }
 
     public static void main(String[] args) throws Exception {
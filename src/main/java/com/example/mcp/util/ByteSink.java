@@ -0,0 +1,83 @@
+package com.example.mcp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可增长的字节缓冲区，行数据按字节追加，最后一次性转成 String
+ */
+public final class ByteSink {
+
+    private byte[] buf;
+    private int size;
+
+    public ByteSink() {
+        this(8 * 1024);
+    }
+
+    public ByteSink(int initialCapacity) {
+        this.buf = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public ByteSink append(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buf, size, length);
+        size += length;
+        return this;
+    }
+
+    public ByteSink append(byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public ByteSink append(byte b) {
+        ensure(1);
+        buf[size++] = b;
+        return this;
+    }
+
+    public ByteSink append(char c) {
+        if (c < 0x80) {
+            return append((byte) c);
+        }
+        return append(String.valueOf(c));
+    }
+
+    public ByteSink append(String s) {
+        return append(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * 回退到指定长度，丢弃之后追加的内容
+     */
+    public void truncate(int length) {
+        size = Math.min(size, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, size, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.mcp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 把同一表头的 CSV 行编码为紧凑的文本格式，减少返回给模型的字节数
+ * <p>
+ * 输出由几行说明和数据行组成：
+ * <pre>
+ * #columns symbol,frequency,open,close,...,bob,eob
+ * #dict symbol SHSE.600000,SZSE.000001
+ * #time bob 2020-09-04 09:31:00+08:00
+ * 0,0,10.12,10.13,...,0,0
+ * 1,0,8.5,8.51,...,0,0
+ * 0,0,10.13,10.1,...,60,60
+ * </pre>
+ * <ul>
+ *     <li>表头只输出一次</li>
+ *     <li>文本列输出 #dict 中的序号（从 0 开始），#dict 的取值按 CSV 规则书写</li>
+ *     <li>时间列输出与上一行该列相差的秒数（可为负数、带毫秒小数），第一行相对 #time 中的基准时间</li>
+ *     <li>数值列去掉末尾的 0，金额类列最多保留 2 位小数，其它列最多 4 位</li>
+ *     <li>空值仍为空，无法按列类型解析的值原样输出</li>
+ * </ul>
+ * 列类型由列名和该列第一个非空值决定。数据行先编码到内存，writeTo 时再输出说明行。
+ * size 为 writeTo 将输出的字节数，加入一行后超出预算时可以用 removeLast 撤销这一行。
+ */
+public final class ColumnarEncoder {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte NUMBER = 1;
+    private static final byte TIME = 2;
+    private static final byte DICT = 3;
+
+    private static final int AMOUNT_SCALE = 2;
+    private static final int NUMBER_SCALE = 4;
+
+    private final List<String> columns;
+    private final byte[] kinds;
+    private final int[] scales;
+    private final long[] previous;          // 时间列：上一行的毫秒数
+    private final String[] bases;           // 时间列：第一行的原始值
+    private final List<Map<String, Integer>> dicts; // 文本列：值到序号的字典，还没有值时为 null
+    private final byte[][] lastValues;      // 文本列：上一行的值，相同时不再查字典
+    private final int[] lastCodes;
+    private final CsvTokenizer tokenizer = new CsvTokenizer();
+    private final ByteSink body = new ByteSink();
+    private int rows;
+    private int headerBytes;                // 说明行的字节数
+
+    // 撤销最后一行所需的状态
+    private final long[] savedPrevious;
+    private final byte[][] savedLastValues;
+    private final int[] savedLastCodes;
+    private final String[] addedValues;     // 这一行新加入字典的值
+    private final boolean[] addedBases;     // 这一行确定的基准时间
+    private int rowStart;
+    private int savedHeaderBytes;
+    private boolean undoable;
+
+    public ColumnarEncoder(List<String> columns) {
+        int n = columns.size();
+        this.columns = columns;
+        this.kinds = new byte[n];
+        this.scales = new int[n];
+        this.previous = new long[n];
+        this.bases = new String[n];
+        this.dicts = new ArrayList<>(Collections.nCopies(n, null));
+        this.lastValues = new byte[n][];
+        this.lastCodes = new int[n];
+        this.savedPrevious = new long[n];
+        this.savedLastValues = new byte[n][];
+        this.savedLastCodes = new int[n];
+        this.addedValues = new String[n];
+        this.addedBases = new boolean[n];
+        this.headerBytes = utf8Length("#columns " + String.join(",", columns) + "\n");
+        for (int i = 0; i < n; i++) {
+            String name = columns.get(i).toLowerCase(Locale.ROOT);
+            scales[i] = name.contains("amount") ? AMOUNT_SCALE : NUMBER_SCALE;
+            if (name.equals("bob") || name.equals("eob") || name.equals("created_at")) {
+                kinds[i] = TIME;
+            }
+        }
+    }
+
+    /**
+     * 编码一行（不含换行符）
+     */
+    public void add(byte[] buf, int offset, int length) {
+        rowStart = body.size();
+        savedHeaderBytes = headerBytes;
+        System.arraycopy(previous, 0, savedPrevious, 0, previous.length);
+        System.arraycopy(lastValues, 0, savedLastValues, 0, lastValues.length);
+        System.arraycopy(lastCodes, 0, savedLastCodes, 0, lastCodes.length);
+        Arrays.fill(addedValues, null);
+        Arrays.fill(addedBases, false);
+        undoable = true;
+        tokenizer.reset(buf, offset, length);
+        int fields = tokenizer.fieldCount();
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            int start = tokenizer.valueStart(i);
+            int end = tokenizer.valueEnd(i);
+            if (start == end) {
+                continue;
+            }
+            // 超出表头的列原样输出
+            if (i >= kinds.length) {
+                copyRaw(i);
+                continue;
+            }
+            if (kinds[i] == UNKNOWN) {
+                kinds[i] = classify(buf, start, end);
+            }
+            switch (kinds[i]) {
+                case TIME -> appendTime(i, buf, start, end);
+                case NUMBER -> appendNumber(i, buf, start, end);
+                default -> appendCode(i, buf, start, end);
+            }
+        }
+        body.append('\n');
+        rows++;
+    }
+
+    /**
+     * 撤销最后加入的一行，只能撤销一行
+     */
+    public void removeLast() {
+        if (!undoable) {
+            throw new IllegalStateException("没有可以撤销的行");
+        }
+        undoable = false;
+        body.truncate(rowStart);
+        headerBytes = savedHeaderBytes;
+        System.arraycopy(savedPrevious, 0, previous, 0, previous.length);
+        System.arraycopy(savedLastValues, 0, lastValues, 0, lastValues.length);
+        System.arraycopy(savedLastCodes, 0, lastCodes, 0, lastCodes.length);
+        for (int i = 0; i < kinds.length; i++) {
+            if (addedValues[i] != null) {
+                Map<String, Integer> dict = dicts.get(i);
+                dict.remove(addedValues[i]);
+                if (dict.isEmpty()) {
+                    dicts.set(i, null);
+                }
+            }
+            if (addedBases[i]) {
+                bases[i] = null;
+            }
+        }
+        rows--;
+    }
+
+    public int rowCount() {
+        return rows;
+    }
+
+    /**
+     * writeTo 将输出的字节数，没有数据行时为 0
+     */
+    public int size() {
+        return rows == 0 ? 0 : headerBytes + body.size();
+    }
+
+    /**
+     * 输出说明行和全部数据行
+     */
+    public void writeTo(ByteSink out) {
+        out.append("#columns ").append(String.join(",", columns)).append('\n');
+        for (int i = 0; i < kinds.length; i++) {
+            Map<String, Integer> dict = dicts.get(i);
+            if (dict != null) {
+                String[] values = new String[dict.size()];
+                dict.forEach((value, code) -> values[code] = value);
+                out.append("#dict ").append(columns.get(i)).append(' ');
+                for (int k = 0; k < values.length; k++) {
+                    if (k > 0) {
+                        out.append(',');
+                    }
+                    appendQuoted(out, values[k]);
+                }
+                out.append('\n');
+            }
+        }
+        for (int i = 0; i < kinds.length; i++) {
+            if (bases[i] != null) {
+                out.append("#time ").append(columns.get(i)).append(' ').append(bases[i]).append('\n');
+            }
+        }
+        out.append(body.buffer(), 0, body.size());
+    }
+
+    private byte classify(byte[] buf, int start, int end) {
+        if (TimeDecoder.decode(buf, start, end - start) != TimeDecoder.INVALID) {
+            return TIME;
+        }
+        boolean digit = false;
+        for (int p = start; p < end; p++) {
+            byte b = buf[p];
+            if (b >= '0' && b <= '9') {
+                digit = true;
+            } else if (b != '.' && b != '-' && b != '+' && b != 'e' && b != 'E') {
+                return DICT;
+            }
+        }
+        return digit ? NUMBER : DICT;
+    }
+
+    private void appendTime(int i, byte[] buf, int start, int end) {
+        long time = TimeDecoder.decode(buf, start, end - start);
+        if (time == TimeDecoder.INVALID) {
+            copyRaw(i);
+            return;
+        }
+        if (bases[i] == null) {
+            bases[i] = tokenizer.fieldAsString(i);
+            previous[i] = time;
+            addedBases[i] = true;
+            headerBytes += utf8Length("#time " + columns.get(i) + " " + bases[i] + "\n");
+        }
+        long delta = time - previous[i];
+        previous[i] = time;
+        if (delta < 0) {
+            body.append('-');
+            delta = -delta;
+        }
+        body.append(Long.toString(delta / 1000));
+        long millis = delta % 1000;
+        if (millis != 0) {
+            body.append('.').append((char) ('0' + millis / 100));
+            if (millis % 100 != 0) {
+                body.append((char) ('0' + millis / 10 % 10));
+                if (millis % 10 != 0) {
+                    body.append((char) ('0' + millis % 10));
+                }
+            }
+        }
+    }
+
+    private void appendNumber(int i, byte[] buf, int start, int end) {
+        int dot = -1;
+        for (int p = start; p < end; p++) {
+            byte b = buf[p];
+            if (b == '.') {
+                dot = p;
+            } else if (b == 'e' || b == 'E') {
+                dot = -2;
+                break;
+            }
+        }
+        if (dot == -1) {
+            body.append(buf, start, end - start);
+            return;
+        }
+        if (dot >= 0 && end - dot - 1 <= scales[i]) {
+            // 小数位数不超过要求时只去掉末尾的 0
+            int last = end;
+            while (last > dot + 1 && buf[last - 1] == '0') {
+                last--;
+            }
+            if (last == dot + 1) {
+                last = dot;
+            }
+            body.append(buf, start, Math.max(last - start, 1));
+            return;
+        }
+        double value;
+        try {
+            value = tokenizer.fieldAsDouble(i);
+        } catch (NumberFormatException e) {
+            copyRaw(i);
+            return;
+        }
+        Decimals.append(body, value, scales[i]);
+    }
+
+    private void appendCode(int i, byte[] buf, int start, int end) {
+        byte[] last = lastValues[i];
+        if (last != null && Arrays.equals(buf, start, end, last, 0, last.length)) {
+            body.append(Integer.toString(lastCodes[i]));
+            return;
+        }
+        Map<String, Integer> dict = dicts.get(i);
+        if (dict == null) {
+            dict = new HashMap<>();
+            dicts.set(i, dict);
+        }
+        String value = tokenizer.fieldAsString(i);
+        Integer code = dict.get(value);
+        if (code == null) {
+            code = dict.size();
+            dict.put(value, code);
+            addedValues[i] = value;
+            ByteSink sink = new ByteSink();
+            appendQuoted(sink, value);
+            // 第一个值带上 "#dict 列名 " 和换行，之后的值带上逗号
+            headerBytes += sink.size() + (code == 0 ? utf8Length("#dict " + columns.get(i) + " \n") : 1);
+        }
+        lastValues[i] = Arrays.copyOfRange(buf, start, end);
+        lastCodes[i] = code;
+        body.append(Integer.toString(code));
+    }
+
+    // 原样输出，包含分隔符或引号时按 CSV 规则加引号
+    private void copyRaw(int i) {
+        appendQuoted(body, tokenizer.fieldAsString(i));
+    }
+
+    private static int utf8Length(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void appendQuoted(ByteSink out, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.mcp.util;
+
+import com.example.mcp.metrics.ScanMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 按字节读取 CSV 行，并记录每一行在文件中的字节偏移
+ * <p>
+ * 行内容以 buffer()[start(), start() + length()) 的形式给出（不含 \r\n），
+ * 不会为每一行创建 String。可以从任意行首偏移处打开，配合索引直接定位。
+ * 也可以直接读取已经在内存中的文件内容（见 PartitionCache），此时偏移的含义不变。
+ */
+public class CsvLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel; // 读取内存中的数据时为 null
+    private byte[] buf;
+    private int pos;            // 下一行在 buf 中的起始位置
+    private int limit;          // buf 中有效数据的结束位置
+    private long bufferOffset;  // buf[0] 对应的文件偏移
+    private boolean eof;
+
+    private int lineStart;
+    private int lineLength;
+    private long lineOffset;
+
+    private long lines;             // 已读取的行数
+    private long countedFrom;       // countRows 时的行数
+    private ScanMetrics.Scan scan;
+    private boolean finished;       // next() 已经返回 false，读到了文件末尾
+    private Runnable onFinished;
+
+    private CsvLineReader(FileChannel channel, long offset, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.buf = new byte[bufferSize];
+        this.bufferOffset = offset;
+        channel.position(offset);
+    }
+
+    /**
+     * 读取内存中的完整文件内容，从 offset 处开始
+     *
+     * @param data   文件内容，不会被修改
+     * @param length 有效长度
+     * @param offset 某一行的行首
+     */
+    public static CsvLineReader of(byte[] data, int length, long offset) {
+        return new CsvLineReader(data, length, (int) Math.min(Math.max(offset, 0L), length));
+    }
+
+    private CsvLineReader(byte[] data, int length, int offset) {
+        this.channel = null;
+        this.buf = data;
+        this.pos = offset;
+        this.limit = length;
+        this.eof = true;
+    }
+
+    public static CsvLineReader open(Path path) throws IOException {
+        return open(path, 0L);
+    }
+
+    /**
+     * 从指定字节偏移处开始读取，offset 必须是某一行的行首
+     */
+    public static CsvLineReader open(Path path, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        ScanMetrics.fileOpened();
+        try {
+            return new CsvLineReader(channel, offset, DEFAULT_BUFFER_SIZE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取下一行
+     *
+     * @return 没有更多行时返回 false
+     */
+    public boolean next() throws IOException {
+        int scan = pos;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    setLine(pos, i);
+                    pos = i + 1;
+                    lines++;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (pos < limit) {
+                    setLine(pos, limit);
+                    pos = limit;
+                    lines++;
+                    return true;
+                }
+                finished = true;
+                return false;
+            }
+            scan = limit - pos;
+            fill();
+        }
+    }
+
+    private void setLine(int start, int newline) {
+        int end = newline;
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        lineStart = start;
+        lineLength = end - start;
+        lineOffset = bufferOffset + start;
+    }
+
+    // 把未处理的数据移到缓冲区开头，必要时扩容，然后继续读取
+    private void fill() throws IOException {
+        int remaining = limit - pos;
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, remaining);
+            bufferOffset += pos;
+            pos = 0;
+            limit = remaining;
+        }
+        if (limit == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        ByteBuffer target = ByteBuffer.wrap(buf, limit, buf.length - limit);
+        int read = channel.read(target);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+            ScanMetrics.bytesRead(read);
+        }
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int start() {
+        return lineStart;
+    }
+
+    public int length() {
+        return lineLength;
+    }
+
+    /**
+     * 当前行行首的文件偏移
+     */
+    public long offset() {
+        return lineOffset;
+    }
+
+    /**
+     * 下一行行首的文件偏移
+     */
+    public long nextOffset() {
+        return bufferOffset + pos;
+    }
+
+    /**
+     * 之后读取的行在 close 时计入 scan 的读取行数
+     */
+    public void countRows(ScanMetrics.Scan scan) {
+        this.scan = scan;
+        this.countedFrom = lines;
+    }
+
+    /**
+     * 读到文件末尾后再关闭时执行 action，中途停止读取时不执行
+     */
+    public void whenFinished(Runnable action) {
+        this.onFinished = action;
+    }
+
+    public String line() {
+        return new String(buf, lineStart, lineLength, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scan != null) {
+            scan.scanned(lines - countedFrom);
+            scan = null;
+        }
+        if (finished && onFinished != null) {
+            onFinished.run();
+        }
+        onFinished = null;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.mcp.util;
 
+import com.example.mcp.index.SchemaRegistry;
+import com.example.mcp.metrics.ScanMetrics;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 
@@ -37,16 +39,26 @@ public class CsvMerger {
     /**
      * 遍历目录下所有 .csv 文件，合并其数据为一个字符串
      * 自动跳过每个文件的第一行
+     *
+     * @deprecated 整个目录的数据都在一个字符串中，数据量大时内存不足；
+     * 遍历 K 线请使用 VvtrData.streamBars，逐个文件读取
      */
+    @Deprecated
     public static String mergeCsvFiles(Path rootDir) throws IOException {
-        try (Stream<Path> files = Files.walk(rootDir)
+        try (ScanMetrics.Scan scan = ScanMetrics.start("mergeCsvFiles");
+             Stream<Path> files = Files.walk(rootDir)
                 .filter(Files::isRegularFile)
                 .filter(p -> p.toString().toLowerCase().endsWith(".csv"))) {
 
-            return files
+            long[] rows = new long[1];
+            String merged = files
                     // 对每个文件，解析为 Stream<String>，再 flatMap 汇总
                     .flatMap(CsvMerger::parseFileAsStream)
+                    .peek(line -> rows[0]++)
                     .collect(Collectors.joining("\n"));
+            scan.scanned(rows[0]);
+            scan.returned(rows[0]);
+            return merged;
         }
     }
 
@@ -63,6 +75,7 @@ public class CsvMerger {
                     CSVFormat.DEFAULT
                             .withFirstRecordAsHeader()   // ← 跳过表头
             );
+            ScanMetrics.fileOpened();
             return parser.stream()
                     .map(record -> String.join(",", record));
         } catch (IOException e) {
@@ -71,11 +84,14 @@ public class CsvMerger {
     }
 
     public static List<Path> findAllCsvFiles(Path rootDir) throws IOException {
-        try (Stream<Path> paths = Files.walk(rootDir)) {
-            return paths
+        try (ScanMetrics.Scan scan = ScanMetrics.start("findAllCsvFiles");
+             Stream<Path> paths = Files.walk(rootDir)) {
+            List<Path> found = paths
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().toLowerCase().endsWith(".csv"))
                     .collect(Collectors.toList());
+            scan.returned(found.size());
+            return found;
         }
     }
 
@@ -90,8 +106,9 @@ public class CsvMerger {
      */
     public static List<Path> findAllCsvFiles(Path rootDir, String startDate, String endDate) throws IOException {
         boolean returnAll = startDate.equals("00000000") && endDate.equals("99999999");
-        try (Stream<Path> paths = Files.walk(rootDir)) {
-            return paths
+        try (ScanMetrics.Scan scan = ScanMetrics.start("findAllCsvFiles");
+             Stream<Path> paths = Files.walk(rootDir)) {
+            List<Path> found = paths
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().toLowerCase().endsWith(".csv"))
                     .filter(path -> {
@@ -120,6 +137,8 @@ public class CsvMerger {
                         }
                     })
                     .collect(Collectors.toList());
+            scan.returned(found.size());
+            return found;
         }
     }
     /**
@@ -134,8 +153,9 @@ public class CsvMerger {
      */
     public static List<Path> findAllCsvFiles(Path rootDir, String startDate, String endDate, String symbol) throws IOException {
         boolean returnAll = startDate.equals("00000000") && endDate.equals("99999999");
-        try (Stream<Path> paths = Files.walk(rootDir)) {
-            return paths
+        try (ScanMetrics.Scan scan = ScanMetrics.start("findAllCsvFiles");
+             Stream<Path> paths = Files.walk(rootDir)) {
+            List<Path> found = paths
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().toLowerCase().endsWith(".csv"))
                     .filter(path -> {
@@ -175,6 +195,8 @@ public class CsvMerger {
                         }
                     })
                     .collect(Collectors.toList());
+            scan.returned(found.size());
+            return found;
         }
     }
 
@@ -186,8 +208,12 @@ public class CsvMerger {
     public static String parseCSVWithoutHeaderAsString(Path path) {
         StringBuilder result = new StringBuilder();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("parseCSVWithoutHeaderAsString");
+             FileInputStream in = new FileInputStream(path.toFile());
+             BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
+            ScanMetrics.fileOpened();
             String line;
+            long rows = 0;
             boolean firstLine = true;
             boolean firstDataLine = true;
 
@@ -199,6 +225,7 @@ public class CsvMerger {
                 }
 
                 // 对于数据行，添加到结果字符串中
+                rows++;
                 if (firstDataLine) {
                     result.append(line);
                     firstDataLine = false;
@@ -211,6 +238,10 @@ public class CsvMerger {
             if (!firstDataLine) {
                 result.append("\n");
             }
+            // 已经读到文件末尾，通道的位置就是实际读取的字节数，与编码和换行符无关
+            ScanMetrics.bytesRead(in.getChannel().position());
+            scan.scanned(rows);
+            scan.returned(rows);
         } catch (IOException e) {
             System.err.println("读取CSV文件时出错: " + e.getMessage());
         }
@@ -340,18 +371,24 @@ public class CsvMerger {
         }
 
         // 遍历数据行（跳过表头）
-        for (int i = 1; i < lines.length; i++) {
-            String line = lines[i];
-            String[] fields = line.split(",");
-
-            // 确保行有足够的字段
-            if (fields.length > symbolIndex) {
-                // 检查symbol列是否与给定的symbol匹配
-                if (fields[symbolIndex].equals(symbol)) {
-                    // 将匹配的行添加到结果中，并添加换行符
-                    result.append(line).append("\n");
+        try (ScanMetrics.Scan scan = ScanMetrics.start("filterData")) {
+            int matched = 0;
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i];
+                String[] fields = line.split(",");
+
+                // 确保行有足够的字段
+                if (fields.length > symbolIndex) {
+                    // 检查symbol列是否与给定的symbol匹配
+                    if (fields[symbolIndex].equals(symbol)) {
+                        // 将匹配的行添加到结果中，并添加换行符
+                        result.append(line).append("\n");
+                        matched++;
+                    }
                 }
             }
+            scan.scanned(lines.length - 1);
+            scan.returned(matched);
         }
 
         // 如果只有表头，移除最后一个换行符
@@ -361,57 +398,18 @@ public class CsvMerger {
         return result.toString();
     }
 
+    /**
+     * 以下三个方法保留给旧代码使用，表头由 SchemaRegistry 缓存，不再每次打开文件
+     */
     public static int getBobIndex(Path path) {
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
-            while ((line = br.readLine()) != null) {
-                String[] str = line.split(",");
-                for (int i = 0; i < str.length; i++) {
-                    if (str[i].trim().equalsIgnoreCase("bob")) {
-                        return i;
-                    }
-                }
-                return -1;
-            }
-        } catch (IOException e) {
-            System.err.println("读取CSV文件时出错: " + e.getMessage());
-        }
-        return -1;
+        return SchemaRegistry.of(path).bobIndex();
     }
 
     public static int getSymbolIndex(Path path) {
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
-            while ((line = br.readLine()) != null) {
-                String[] str = line.split(",");
-                for (int i = 0; i < str.length; i++) {
-                    if (str[i].trim().equalsIgnoreCase("symbol")) {
-                        return i;
-                    }
-                }
-                return -1;
-            }
-        } catch (IOException e) {
-            System.err.println("读取CSV文件时出错: " + e.getMessage());
-        }
-        return -1;
+        return SchemaRegistry.of(path).symbolIndex();
     }
 
     public static int getCreateTimeIndex(Path path) {
-        String line;
-        try (BufferedReader br = new BufferedReader(new FileReader(path.toFile()))) {
-            while ((line = br.readLine()) != null) {
-                String[] str = line.split(",");
-                for (int i = 0; i < str.length; i++) {
-                    if (str[i].trim().equalsIgnoreCase("created_at")) {
-                        return i;
-                    }
-                }
-                return -1;
-            }
-        } catch (IOException e) {
-            System.err.println("读取CSV文件时出错: " + e.getMessage());
-        }
-        return -1;
+        return SchemaRegistry.of(path).createdAtIndex();
     }
 }
@@ -0,0 +1,242 @@
+package com.example.mcp.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 可复用的字节级 CSV 分词器
+ * <p>
+ * 在 byte[] 上切分一行，字段以 [start(i), end(i)) 的偏移给出，不创建 String。
+ * 引号的处理与原来的 parseCSVLine 一致：引号切换"引号内"状态，引号内的逗号不分隔字段，
+ * 引号本身不属于字段内容（比较和复制时会去掉）。
+ */
+public final class CsvTokenizer {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private byte[] buf;
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private boolean[] quoted = new boolean[32];
+    private int count;
+
+    /**
+     * 切分一整行
+     */
+    public CsvTokenizer reset(byte[] buf, int offset, int length) {
+        return reset(buf, offset, length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 切分一行，得到 maxFields 个字段后停止，剩余部分不再扫描
+     */
+    public CsvTokenizer reset(byte[] buf, int offset, int length, int maxFields) {
+        this.buf = buf;
+        this.count = 0;
+        int end = offset + length;
+        int fieldStart = offset;
+        boolean inQuotes = false;
+        boolean hasQuote = false;
+        for (int i = offset; i < end; i++) {
+            byte b = buf[i];
+            if (b == '"') {
+                inQuotes = !inQuotes;
+                hasQuote = true;
+            } else if (b == ',' && !inQuotes) {
+                add(fieldStart, i, hasQuote);
+                if (count >= maxFields) {
+                    return this;
+                }
+                fieldStart = i + 1;
+                hasQuote = false;
+            }
+        }
+        add(fieldStart, end, hasQuote);
+        return this;
+    }
+
+    /**
+     * 切分 ByteBuffer 中 [position, limit) 的一行，ByteBuffer 必须由数组支持
+     */
+    public CsvTokenizer reset(ByteBuffer buffer) {
+        return reset(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    private void add(int start, int end, boolean hasQuote) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            quoted = Arrays.copyOf(quoted, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        quoted[count] = hasQuote;
+        count++;
+    }
+
+    public int fieldCount() {
+        return count;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * 字段在 buffer() 中的起始偏移（包含引号）
+     */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    /**
+     * 字段在 buffer() 中的结束偏移（不包含，包含引号）
+     */
+    public int end(int i) {
+        return ends[i];
+    }
+
+    public int length(int i) {
+        return ends[i] - starts[i];
+    }
+
+    public boolean isQuoted(int i) {
+        return quoted[i];
+    }
+
+    /**
+     * 字段内容的起始偏移，整个字段被一对引号包住时跳过开头的引号
+     */
+    public int valueStart(int i) {
+        return isWrapped(i) ? starts[i] + 1 : starts[i];
+    }
+
+    /**
+     * 字段内容的结束偏移，整个字段被一对引号包住时不包含结尾的引号
+     */
+    public int valueEnd(int i) {
+        return isWrapped(i) ? ends[i] - 1 : ends[i];
+    }
+
+    private boolean isWrapped(int i) {
+        int s = starts[i];
+        int e = ends[i];
+        return quoted[i] && e - s >= 2 && buf[s] == '"' && buf[e - 1] == '"';
+    }
+
+    /**
+     * 字段内容（去掉引号）是否等于 value
+     */
+    public boolean fieldEquals(int i, byte[] value) {
+        if (!quoted[i]) {
+            return Arrays.equals(buf, starts[i], ends[i], value, 0, value.length);
+        }
+        int k = 0;
+        for (int p = starts[i]; p < ends[i]; p++) {
+            byte b = buf[p];
+            if (b == '"') {
+                continue;
+            }
+            if (k == value.length || value[k] != b) {
+                return false;
+            }
+            k++;
+        }
+        return k == value.length;
+    }
+
+    /**
+     * 按字节比较字段内容的前 value.length 个字节与 value，
+     * 用于 yyyy-MM-dd、yyyy-MM-dd HH:mm:ss 这类定长且按字典序即时间序的字段
+     *
+     * @return 小于、等于、大于 value 时分别返回负数、0、正数
+     */
+    public int comparePrefix(int i, byte[] value) {
+        int s = valueStart(i);
+        int len = Math.min(valueEnd(i) - s, value.length);
+        int c = Arrays.compareUnsigned(buf, s, s + len, value, 0, len);
+        if (c != 0) {
+            return c;
+        }
+        return len - value.length;
+    }
+
+    /**
+     * 把字段内容（去掉引号）追加到 out
+     */
+    public void copyField(int i, ByteSink out) {
+        if (!quoted[i]) {
+            out.append(buf, starts[i], ends[i] - starts[i]);
+            return;
+        }
+        for (int p = starts[i]; p < ends[i]; p++) {
+            if (buf[p] != '"') {
+                out.append(buf[p]);
+            }
+        }
+    }
+
+    /**
+     * 把字段解析为 double，空字段返回 Double.NaN
+     * <p>
+     * 常见的 [-]整数[.小数] 写法直接在字节上解析，其它写法（科学计数法等）交给 Double.parseDouble
+     *
+     * @throws NumberFormatException 字段不是数字
+     */
+    public double fieldAsDouble(int i) {
+        int p = valueStart(i);
+        int end = valueEnd(i);
+        if (p == end) {
+            return Double.NaN;
+        }
+        boolean negative = buf[p] == '-';
+        if (negative || buf[p] == '+') {
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        boolean any = false;
+        for (; p < end; p++) {
+            byte b = buf[p];
+            if (b >= '0' && b <= '9') {
+                // 超过 15 位有效数字时可能无法精确表示，交给 Double.parseDouble
+                if (digits == 15) {
+                    return Double.parseDouble(fieldAsString(i));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                any = true;
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(fieldAsString(i));
+            }
+        }
+        if (!any || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(fieldAsString(i));
+        }
+        // 两个都能精确表示的 double 相除，结果是正确舍入的
+        double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    public String fieldAsString(int i) {
+        if (!quoted[i]) {
+            return new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8);
+        }
+        ByteSink sink = new ByteSink(ends[i] - starts[i]);
+        copyField(i, sink);
+        return sink.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.mcp.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 计算结果（均价、指标等）的输出格式
+ */
+public final class Decimals {
+
+    private static final int DEFAULT_SCALE = 4;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    private Decimals() {
+    }
+
+    /**
+     * 最多保留 4 位小数，去掉末尾的 0，不使用科学计数法
+     */
+    public static String format(double value) {
+        return format(value, DEFAULT_SCALE);
+    }
+
+    public static String format(double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "";
+        }
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 与 format 相同的写法直接追加到 out，常见数值不创建对象
+     * <p>
+     * 先乘以 10^scale 再取整，恰好在舍入边界上的值可能与 format 相差最后一位
+     */
+    public static void append(ByteSink out, double value, int scale) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (scale < 0 || scale >= POWERS_OF_TEN.length || Math.abs(value) >= 1e12) {
+            out.append(format(value, scale));
+            return;
+        }
+        long pow = POWERS_OF_TEN[scale];
+        long units = Math.round(Math.abs(value) * pow);
+        if (units == 0) {
+            out.append('0');
+            return;
+        }
+        if (value < 0) {
+            out.append('-');
+        }
+        out.append(Long.toString(units / pow));
+        long fraction = units % pow;
+        if (fraction == 0) {
+            return;
+        }
+        int digits = scale;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        out.append('.');
+        for (long p = POWERS_OF_TEN[digits - 1]; p > fraction; p /= 10) {
+            out.append('0');
+        }
+        out.append(Long.toString(fraction));
+    }
+}
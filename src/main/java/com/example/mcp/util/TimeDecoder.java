@@ -0,0 +1,162 @@
+package com.example.mcp.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 定长时间字段解码器，直接解码为 epoch 毫秒，不创建任何对象
+ * <p>
+ * 支持实际存储的几种格式：
+ * <ul>
+ *     <li>yyyy-MM-dd HH:mm:ss</li>
+ *     <li>yyyy-MM-dd HH:mm:ss+0800（或 +08:00，时区后缀忽略）</li>
+ *     <li>yyyy/MM/dd HH:mm</li>
+ *     <li>yyyy-MM-dd</li>
+ * </ul>
+ * 时区后缀与原来的 split("\\+") 一样被忽略，返回值是把本地时间当作 UTC 换算出的毫秒数，
+ * 数据和查询条件用同一种方式解码，比较结果与按本地时间比较一致。
+ */
+public final class TimeDecoder {
+
+    /**
+     * 无法解码时的返回值
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    public static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private TimeDecoder() {
+    }
+
+    public static long decode(byte[] b, int off, int len) {
+        if (len < 10) {
+            return INVALID;
+        }
+        byte sep = b[off + 4];
+        if ((sep != '-' && sep != '/') || b[off + 7] != sep) {
+            return INVALID;
+        }
+        int year = digits4(b, off);
+        int month = digits2(b, off + 5);
+        int day = digits2(b, off + 8);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        int p = off + 10;
+        int end = off + len;
+        if (p < end && (b[p] == ' ' || b[p] == 'T')) {
+            if (end - p < 6 || b[p + 3] != ':') {
+                return INVALID;
+            }
+            hour = digits2(b, p + 1);
+            minute = digits2(b, p + 4);
+            p += 6;
+            if (p < end && b[p] == ':') {
+                if (end - p < 3) {
+                    return INVALID;
+                }
+                second = digits2(b, p + 1);
+                p += 3;
+                if (p < end && b[p] == '.') {
+                    p++;
+                    int scale = 100;
+                    while (p < end && b[p] >= '0' && b[p] <= '9') {
+                        millis += (b[p] - '0') * scale;
+                        scale /= 10;
+                        p++;
+                    }
+                }
+            }
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+                return INVALID;
+            }
+        }
+        // 剩余部分只能是时区后缀
+        if (p < end && b[p] != '+' && b[p] != '-' && b[p] != 'Z') {
+            return INVALID;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + hour * 3_600_000L + minute * 60_000L + second * 1000L + millis;
+    }
+
+    // 与 LocalDate 一致：2 月在闰年为 29 天
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    public static long decode(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int len = text.length();
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c > 0x7f) {
+                return INVALID;
+            }
+            b[i] = (byte) c;
+        }
+        return decode(b, 0, len);
+    }
+
+    /**
+     * 分词器中第 i 个字段的时间
+     */
+    public static long decode(CsvTokenizer tokenizer, int i) {
+        int start = tokenizer.valueStart(i);
+        return decode(tokenizer.buffer(), start, tokenizer.valueEnd(i) - start);
+    }
+
+    /**
+     * 毫秒所在的天数（自 1970-01-01 起）
+     */
+    public static long day(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public static long fromLocalDateTime(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000L + time.getNano() / 1_000_000;
+    }
+
+    // 公历日期到 1970-01-01 起的天数
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int digits2(byte[] b, int p) {
+        int d1 = b[p] - '0';
+        int d2 = b[p + 1] - '0';
+        if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) {
+            return -1;
+        }
+        return d1 * 10 + d2;
+    }
+
+    private static int digits4(byte[] b, int p) {
+        int hi = digits2(b, p);
+        int lo = digits2(b, p + 2);
+        if (hi < 0 || lo < 0) {
+            return -1;
+        }
+        return hi * 100 + lo;
+    }
+}
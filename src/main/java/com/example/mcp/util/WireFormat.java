@@ -0,0 +1,35 @@
+package com.example.mcp.util;
+
+import java.util.Locale;
+
+/**
+ * 分页查询结果的返回格式
+ */
+public enum WireFormat {
+    /**
+     * 原始 CSV 行
+     */
+    CSV,
+    /**
+     * 紧凑格式，见 ColumnarEncoder
+     */
+    COLUMNAR;
+
+    /**
+     * 解析 csv、columnar，为空时返回 CSV
+     *
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static WireFormat parse(String text) {
+        if (text == null || text.isBlank()) {
+            return CSV;
+        }
+        String value = text.trim().toUpperCase(Locale.ROOT);
+        for (WireFormat format : values()) {
+            if (format.name().equals(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的返回格式: " + text + ", 可选 csv,columnar");
+    }
+}
@@ -2,7 +2,6 @@ import com.example.McpServerApplication;
 import com.example.mcp.model.DataBack;
 import com.example.mcp.repository.VvtrData;
 import com.example.mcp.tool.Vvtr;
-import com.example.mcp.util.CsvMerger;
 import jakarta.annotation.Resource;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -38,7 +37,7 @@ class ClientStdio {
                             .map(Paths::get)
                             .toList();
         System.out.println(paths.toString());
-        System.out.println(vvtrData.getTickData(paths, "", "", CsvMerger.getCreateTimeIndex(paths.get(0)), 199, 201));
+        System.out.println(vvtrData.getTickData(paths, "", "", 199, 201));
     }
 
 }
@@ -0,0 +1,64 @@
+package com.example.mcp.bar;
+
+import com.example.mcp.model.KLineData;
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BarAggregatorTest {
+
+    // 一个交易日的 1m 线：9:30-11:30、13:00-15:00，价格为当天的分钟序号
+    private static void addDay(BarAggregator aggregator, String date) {
+        long day = TimeDecoder.decode(date);
+        int index = 0;
+        for (long[] session : new long[][]{{570, 690}, {780, 900}}) {
+            for (long minute = session[0]; minute < session[1]; minute++) {
+                long bob = day + minute * 60_000L;
+                aggregator.add("SHSE.600000", index, index + 0.5, index - 0.5, index + 0.1,
+                        100, 10, bob, bob + 60_000L);
+                index++;
+            }
+        }
+    }
+
+    @Test
+    public void testHourBarsFollowSessions() {
+        BarAggregator aggregator = new BarAggregator(BarPeriod.H1);
+        addDay(aggregator, "2020-09-04");
+        List<KLineData> bars = aggregator.finish().asList();
+
+        assertThat(bars).hasSize(4);
+        assertThat(bars).extracting(KLineData::bob).containsExactly(
+                LocalDateTime.of(2020, 9, 4, 9, 30), LocalDateTime.of(2020, 9, 4, 10, 30),
+                LocalDateTime.of(2020, 9, 4, 13, 0), LocalDateTime.of(2020, 9, 4, 14, 0));
+        KLineData first = bars.get(0);
+        assertThat(first.eob()).isEqualTo(LocalDateTime.of(2020, 9, 4, 10, 30));
+        assertThat(first.open()).isEqualTo(0);
+        assertThat(first.close()).isEqualTo(59.1);
+        assertThat(first.high()).isEqualTo(59.5);
+        assertThat(first.low()).isEqualTo(-0.5);
+        assertThat(first.volume()).isEqualTo(600);
+        assertThat(first.type()).isEqualTo(60);
+    }
+
+    @Test
+    public void testDayAndWeekBars() {
+        BarAggregator days = new BarAggregator(BarPeriod.D1);
+        BarAggregator weeks = new BarAggregator(BarPeriod.W1);
+        // 2020-09-04 是周五，2020-09-07 是周一
+        for (String date : new String[]{"2020-09-03", "2020-09-04", "2020-09-07"}) {
+            addDay(days, date);
+            addDay(weeks, date);
+        }
+
+        assertThat(days.finish().asList()).hasSize(3).allSatisfy(bar -> assertThat(bar.amount()).isEqualTo(24000));
+        List<KLineData> weekBars = weeks.finish().asList();
+        assertThat(weekBars).hasSize(2);
+        assertThat(weekBars.get(0).type()).isEqualTo(480);
+        assertThat(weekBars.get(1).bob()).isEqualTo(LocalDateTime.of(2020, 9, 7, 9, 30));
+    }
+}
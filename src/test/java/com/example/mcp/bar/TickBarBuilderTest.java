@@ -0,0 +1,62 @@
+package com.example.mcp.bar;
+
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TickBarBuilderTest {
+
+    private static final long OPEN = TimeDecoder.decode("2020-09-04 09:30:00");
+
+    // 每 3 秒一笔，价格依次为 10.00、10.01、...，每笔 100 股
+    private static void addTicks(TickBarBuilder builder, int n) {
+        for (int i = 0; i < n; i++) {
+            double price = 10.0 + i / 100.0;
+            builder.add("SZSE.159001", OPEN + i * 3000L, price, 100, price * 100);
+        }
+    }
+
+    private static String[] lines(TickBarBuilder builder) {
+        ByteSink out = new ByteSink();
+        builder.writeCsv(out);
+        return out.toString().split("\n");
+    }
+
+    @Test
+    public void testTimeBars() {
+        TickBarBuilder builder = TickBarBuilder.parse("1m");
+        addTicks(builder, 25);
+        builder.finish();
+
+        String[] lines = lines(builder);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[1]).isEqualTo("SZSE.159001,2020-09-04 09:30:00.000,2020-09-04 09:31:00.000,"
+                + "10,10.19,10,10.19,2000,20190,10.095,20");
+        assertThat(lines[2]).startsWith("SZSE.159001,2020-09-04 09:31:00.000,2020-09-04 09:32:00.000,10.2,");
+        assertThat(lines[2]).endsWith(",5");
+    }
+
+    @Test
+    public void testVolumeAndTradeBars() {
+        TickBarBuilder volume = TickBarBuilder.parse("volume:250");
+        addTicks(volume, 6);
+        volume.finish();
+        assertThat(volume.size()).isEqualTo(2);
+        assertThat(lines(volume)[1]).endsWith(",300,3003,10.01,3");
+
+        TickBarBuilder trades = TickBarBuilder.parse("trades:4");
+        addTicks(trades, 10);
+        trades.finish();
+        assertThat(trades.size()).isEqualTo(3);
+        assertThat(lines(trades)[3]).endsWith(",2");
+    }
+
+    @Test
+    public void testInvalidSpec() {
+        assertThatThrownBy(() -> TickBarBuilder.parse("1x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TickBarBuilder.parse("volume:0")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.mcp.cache;
+
+import com.example.mcp.util.CsvLineReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write() throws Exception {
+        StringBuilder csv = new StringBuilder("symbol,price,last_volume,created_at\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("SHSE.600000,").append(10 + i).append(",100,2020-09-04 09:30:")
+                    .append(String.format("%02d", i % 60)).append(".000+08:00\n");
+        }
+        return Files.writeString(dir.resolve("SHSE.600000.csv"), csv.toString());
+    }
+
+    // 读到文件末尾
+    private static int drain(CsvLineReader reader) throws Exception {
+        int lines = 0;
+        try (reader) {
+            while (reader.next()) {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static String first(CsvLineReader reader) throws Exception {
+        try (reader) {
+            assertThat(reader.next()).isTrue();
+            return new String(reader.buffer(), reader.start(), reader.length());
+        }
+    }
+
+    @Test
+    public void testOnlyWholeFileReadsLoad() throws Exception {
+        Path path = write();
+        List<String> lines = Files.readAllLines(path);
+        long second = lines.get(0).length() + 1;
+        PartitionCache cache = new PartitionCache(1 << 20);
+
+        // 定位读取不会把文件读入内存
+        for (int i = 0; i < 3; i++) {
+            assertThat(first(cache.open(path, second))).isEqualTo(lines.get(1));
+            assertThat(first(cache.open(path, 0, false))).isEqualTo(lines.get(0));
+        }
+        assertThat(cache.size()).isZero();
+        assertThat(cache.loadCount()).isZero();
+
+        // 从头读取但中途停止（如一页已满）时不会放入缓存
+        for (int i = 0; i < 3; i++) {
+            assertThat(first(cache.open(path, 0, true))).isEqualTo(lines.get(0));
+        }
+        assertThat(cache.size()).isZero();
+        assertThat(cache.loadCount()).isZero();
+
+        // 读到末尾一次之后，再次从头读取时放入缓存，之后定位读取也使用缓存
+        assertThat(drain(cache.open(path, 0, true))).isEqualTo(lines.size());
+        assertThat(cache.size()).isZero();
+        assertThat(first(cache.open(path, 0, true))).isEqualTo(lines.get(0));
+        assertThat(cache.size()).isEqualTo(1);
+        long hits = cache.hitCount();
+        assertThat(first(cache.open(path, second))).isEqualTo(lines.get(1));
+        assertThat(cache.hitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        Path path = write();
+        PartitionCache cache = new PartitionCache(1 << 20);
+        assertThat(cache.get(path, true)).isNull();
+        drain(cache.open(path, 0, true));
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get(path, true);
+                }));
+            }
+            start.countDown();
+            for (Future<byte[]> future : futures) {
+                assertThat(future.get()).hasSize((int) Files.size(path));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(cache.loadCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
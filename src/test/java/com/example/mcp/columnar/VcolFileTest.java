@@ -0,0 +1,160 @@
+package com.example.mcp.columnar;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.Sidecars;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.query.QueryEngine;
+import com.example.mcp.query.RowSink;
+import com.example.mcp.query.ScanSpec;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.util.ByteSink;
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VcolFileTest {
+
+    private static final String TICK_HEADER = "symbol,price,last_volume,note,created_at";
+
+    @TempDir
+    Path dir;
+
+    private final ScanPool scanPool = new ScanPool(2);
+    private final QueryEngine engine = new QueryEngine(new PartitionCache(0), scanPool);
+
+    @AfterEach
+    public void close() {
+        scanPool.close();
+    }
+
+    @Test
+    public void testRowsRoundTrip() throws Exception {
+        Path csv = tickFile("tick.csv", 5000);
+        assertThat(VcolWriter.write(csv, false)).isEqualTo(VcolWriter.Result.CONVERTED);
+        assertThat(VcolWriter.write(csv, false)).isEqualTo(VcolWriter.Result.UP_TO_DATE);
+
+        VcolFile file = VcolFile.open(csv);
+        assertThat(file).isNotNull();
+        assertThat(file.rowCount()).isEqualTo(5000);
+        assertThat(file.blockCount()).isEqualTo(2);
+        assertThat(file.type(0)).isEqualTo(VcolFile.Type.DICT);
+        assertThat(file.type(1)).isEqualTo(VcolFile.Type.DICT);   // "3.50" 不能按 double 还原
+        assertThat(file.type(2)).isEqualTo(VcolFile.Type.LONG);
+        assertThat(file.type(4)).isEqualTo(VcolFile.Type.TIME);
+
+        List<String> lines = Files.readAllLines(csv);
+        ByteSink row = new ByteSink();
+        for (int r = 0; r < file.rowCount(); r++) {
+            row.reset();
+            file.appendRow(r, row);
+            assertThat(row.toString()).isEqualTo(lines.get(r + 1));
+        }
+        assertThat(file.string(0, 0)).isEqualTo("A");
+        assertThat(file.string(3, 1)).isEqualTo("x,y");
+        assertThat(file.number(1, 0)).isEqualTo(3.5);
+        assertThat(file.time(4, 2)).isEqualTo(TimeDecoder.INVALID);
+        assertThat(file.min(1, 4)).isEqualTo(TimeDecoder.decode("2020-09-01 10:08:16.000+08:00"));
+    }
+
+    @Test
+    public void testFallsBackWhenCsvChanges() throws Exception {
+        Path csv = tickFile("tick.csv", 10);
+        VcolWriter.write(csv, false);
+        assertThat(VcolFile.open(csv)).isNotNull();
+
+        Files.writeString(csv, "A,3.5,100,,2020-09-01 11:00:00.000+08:00\n", StandardOpenOption.APPEND);
+        assertThat(VcolFile.open(csv)).isNull();
+        assertThat(VcolFile.isCurrent(csv)).isFalse();
+        assertThat(VcolWriter.write(csv, false)).isEqualTo(VcolWriter.Result.CONVERTED);
+        assertThat(VcolFile.open(csv).rowCount()).isEqualTo(11);
+
+        Path broken = Files.writeString(dir.resolve("broken.csv"), TICK_HEADER + "\nA,3.5\n");
+        assertThat(VcolWriter.write(broken, false)).isEqualTo(VcolWriter.Result.SKIPPED);
+        assertThat(Sidecars.path(broken, VcolFile.SUFFIX)).doesNotExist();
+    }
+
+    @Test
+    public void testScanMatchesCsv() throws Exception {
+        Path csv = tickFile("tick.csv", 10000);
+        Path copy = Files.copy(csv, dir.resolve("copy.csv"));
+        VcolWriter.write(copy, false);
+        ScanSpec spec = ScanSpec.builder()
+                .timeColumn(ScanSpec.TimeColumn.TICK)
+                .symbol("A")
+                .startTime(TimeDecoder.decode("2020-09-01 10:00:00"))
+                .endTime(TimeDecoder.decode("2020-09-01 10:30:00"))
+                .columns(List.of("created_at", "price", "note"))
+                .limit(100)
+                .build();
+
+        List<String> expected = scanAll(spec.toBuilder().partitions(List.of(csv)).build());
+        List<String> actual = scanAll(spec.toBuilder().partitions(List.of(copy)).build());
+        assertThat(expected).hasSizeGreaterThan(100);
+        assertThat(actual).isEqualTo(expected);
+
+        try (ScanMetrics.Scan scan = ScanMetrics.start("test")) {
+            QueryEngine.Partition partition = engine.plan(spec.toBuilder().partitions(List.of(copy)).build(), 0, scan);
+            assertThat(partition.columnar()).isNotNull();
+            // 第三块全部在 10:30 之后
+            assertThat(QueryEngine.skips(spec, partition.columnar(), 2, QueryEngine.symbols(spec, partition.columnar())))
+                    .isTrue();
+        }
+    }
+
+    private List<String> scanAll(ScanSpec spec) {
+        List<String> rows = new ArrayList<>();
+        ScanSpec.Position next;
+        do {
+            Collector page = new Collector();
+            try (ScanMetrics.Scan scan = ScanMetrics.start("test")) {
+                next = engine.scan(spec, page, scan);
+            }
+            rows.addAll(page.rows);
+            if (next != null) {
+                spec = spec.resume(next);
+            }
+        } while (next != null);
+        return rows;
+    }
+
+    // 第 2 行的时间为空，note 列有带引号的字段
+    private Path tickFile(String name, int rows) throws Exception {
+        StringBuilder csv = new StringBuilder(TICK_HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            csv.append(i % 3 == 0 ? "A" : "B").append(',')
+                    .append(i % 2 == 0 ? "3.5" : "3.50").append(',')
+                    .append(i * 100).append(',')
+                    .append(i == 1 ? "\"x,y\"" : i % 7 == 0 ? "n" + i : "").append(',');
+            if (i != 2) {
+                csv.append(String.format("2020-09-01 %02d:%02d:%02d.000+08:00", 9 + i / 3600, i / 60 % 60, i % 60));
+            }
+            csv.append('\n');
+        }
+        return Files.writeString(dir.resolve(name), csv.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static final class Collector implements RowSink {
+        final List<String> rows = new ArrayList<>();
+
+        @Override
+        public void schema(CsvSchema schema) {
+        }
+
+        @Override
+        public boolean row(byte[] buf, int offset, int length) {
+            rows.add(new String(buf, offset, length, StandardCharsets.UTF_8));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.mcp.cursor;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.model.DataBack;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.repository.VvtrData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorStoreTest {
+
+    private static final String BAR_HEADER = "symbol,frequency,open,close,high,low,amount,volume,position,bob,eob";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testPagesThroughFilesWithRetryableTokens() throws Exception {
+        List<Path> paths = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            StringBuilder csv = new StringBuilder(BAR_HEADER).append('\n');
+            for (int minute = 0; minute < 50; minute++) {
+                String line = String.format("SHSE.600000,60s,%d,%d,%d,%d,1000,100,0,"
+                                + "2020-09-%02d 09:%02d:00+08:00,2020-09-%02d 09:%02d:00+08:00",
+                        day * 100 + minute, day * 100 + minute, day * 100 + minute, day * 100 + minute,
+                        day, minute, day, minute + 1);
+                csv.append(line).append('\n');
+                // 与开始、结束时间有重叠的 K 线：eob 不早于 09-01 09:10，bob 不晚于 09-03 09:40
+                if ((day > 1 || minute + 1 >= 10) && (day < 3 || minute <= 40)) {
+                    expected.add(line);
+                }
+            }
+            Path file = dir.resolve(String.format("202009%02d", day)).resolve("SHSE.600000.csv");
+            Files.createDirectories(file.getParent());
+            paths.add(Files.writeString(file, csv.toString()));
+        }
+
+        CursorStore store = new CursorStore(600, 64, 600);
+        ScanPool scanPool = new ScanPool(1);
+        try {
+            VvtrData data = new VvtrData(store, new PartitionCache(0), scanPool, 65536);
+            ScanCursor cursor = ScanCursor.builder()
+                    .kind("min")
+                    .paths(paths)
+                    .startTime("2020-09-01 09:10:00")
+                    .endTime("2020-09-03 09:40:00")
+                    .maxBytes(500)
+                    .build();
+            List<String> rows = new ArrayList<>();
+            Set<String> tokens = new HashSet<>();
+            int pages = 0;
+            DataBack page = data.getMinData(cursor);
+            while (true) {
+                pages++;
+                for (String line : page.getData().split("\n")) {
+                    if (!line.isEmpty() && !line.equals(BAR_HEADER)) {
+                        rows.add(line);
+                    }
+                }
+                if (page.getCursor() == null) {
+                    break;
+                }
+                // 每页只返回游标，每页的 token 都不同
+                assertThat(page.getNextPaths()).isEmpty();
+                String token = page.getCursor();
+                assertThat(tokens.add(token)).isTrue();
+                page = data.getMinData(store.get(token));
+                // 响应丢失后用同一个 token 重试，得到同一页
+                DataBack retry = data.getMinData(store.get(token));
+                assertThat(retry.getData()).isEqualTo(page.getData());
+                if (page.getCursor() != null) {
+                    assertThat(retry.getCursor()).isNotEqualTo(page.getCursor());
+                } else {
+                    assertThat(retry.getCursor()).isNull();
+                }
+            }
+
+            assertThat(pages).isGreaterThan(5);
+            assertThat(rows).containsExactlyElementsOf(expected);
+        } finally {
+            scanPool.close();
+        }
+    }
+
+    @Test
+    public void testExpiredAndEvictedTokens() throws Exception {
+        CursorStore expiring = new CursorStore(0);
+        String token = expiring.save(ScanCursor.builder().kind("tick").build());
+        Thread.sleep(5);
+        assertThatThrownBy(() -> expiring.get(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(token);
+
+        CursorStore store = new CursorStore(600, 2, 30);
+        String first = store.save(ScanCursor.builder().kind("tick").row(1).build());
+        String second = store.save(ScanCursor.builder().kind("tick").row(2).build());
+        store.get(first);
+        String third = store.save(ScanCursor.builder().kind("tick").row(3).build());
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get(first).getRow()).isEqualTo(1);
+        assertThat(store.get(third).getRow()).isEqualTo(3);
+        assertThatThrownBy(() -> store.get(second)).isInstanceOf(IllegalArgumentException.class);
+
+        // 保存下一页时生成新的 token，原来的 token 仍指向原来的位置
+        ScanCursor resumed = store.get(first).toBuilder().row(10).build();
+        String next = store.save(resumed);
+        assertThat(next).isNotEqualTo(first);
+        assertThat(store.get(next).getRow()).isEqualTo(10);
+
+        // 宽限期过后，用过的 token 过期，未用过的 token 不受影响
+        CursorStore graceless = new CursorStore(600, 16, 0);
+        String used = graceless.save(ScanCursor.builder().kind("tick").row(1).build());
+        String page2 = graceless.save(graceless.get(used).toBuilder().row(2).build());
+        Thread.sleep(5);
+        assertThatThrownBy(() -> graceless.get(used)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(graceless.get(page2).getRow()).isEqualTo(2);
+        assertThat(graceless.get(page2).getRow()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.mcp.generator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketDataGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLayoutAndHeaders() throws Exception {
+        MarketDataGenerator.Summary summary = generator(dir, 1).generate();
+
+        // 2 类产品 × (3 个交易日的 1d + 3 个代码 × 3 天 × 1m/15m/tick)
+        assertThat(summary.files()).isEqualTo(2 * (3 + 3 * 3 * 3));
+        Path day = dir.resolve("A-shares/1d/202009/20200904/20200904.csv");
+        List<String> lines = Files.readAllLines(day);
+        assertThat(lines.get(0)).isEqualTo(MarketDataGenerator.BAR_HEADER);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(1)).startsWith("SHSE.600000,1d,").endsWith(",2020-09-04 00:00:00+08:00,2020-09-04 00:00:00+08:00");
+
+        List<String> minutes = Files.readAllLines(dir.resolve("A-shares/1m/202009/20200904/SZSE.000001.csv"));
+        assertThat(minutes).hasSize(241);
+        assertThat(minutes.get(1)).endsWith(",2020-09-04 09:30:00+08:00,2020-09-04 09:31:00+08:00");
+        assertThat(minutes.get(240)).endsWith(",2020-09-04 14:59:00+08:00,2020-09-04 15:00:00+08:00");
+
+        List<String> ticks = Files.readAllLines(dir.resolve("A-shares/tick/202009/20200904/SHSE.600000.csv"));
+        assertThat(ticks.get(0)).isEqualTo(MarketDataGenerator.TICK_HEADER);
+        String previous = "";
+        for (String tick : ticks.subList(1, ticks.size())) {
+            String createdAt = tick.substring(tick.lastIndexOf(',') + 1);
+            assertThat(createdAt).matches("2020-09-04 \\d\\d:\\d\\d:\\d\\d\\.\\d{3}\\+08:00");
+            assertThat(createdAt).isGreaterThanOrEqualTo(previous);
+            previous = createdAt;
+        }
+
+        // 加密币周末也交易，eob 跨到第二天
+        Path crypto = dir.resolve("Crypto/1m/202009/20200905/BINANCE.AUSDT.csv");
+        List<String> cryptoMinutes = Files.readAllLines(crypto);
+        assertThat(cryptoMinutes).hasSize(1441);
+        assertThat(cryptoMinutes.get(1440)).endsWith(",2020-09-05 23:59:00+00:00,2020-09-06 00:00:00+00:00");
+    }
+
+    @Test
+    public void testBarsAreConsistent() throws Exception {
+        generator(dir, 2).generate();
+        List<String> minutes = Files.readAllLines(dir.resolve("A-shares/1m/202009/20200907/SHSE.600001.csv"));
+        List<String> quarters = Files.readAllLines(dir.resolve("A-shares/15m/202009/20200907/SHSE.600001.csv"));
+        String daily = Files.readAllLines(dir.resolve("A-shares/1d/202009/20200907/20200907.csv")).stream()
+                .filter(line -> line.startsWith("SHSE.600001,"))
+                .findFirst().orElseThrow();
+
+        assertThat(quarters).hasSize(17);
+        assertThat(volume(minutes.subList(1, minutes.size()))).isEqualTo(volume(quarters.subList(1, quarters.size())));
+        assertThat(volume(minutes.subList(1, minutes.size()))).isEqualTo(volume(List.of(daily)));
+        // 开盘价、收盘价
+        assertThat(daily.split(",")[2]).isEqualTo(minutes.get(1).split(",")[2]);
+        assertThat(daily.split(",")[3]).isEqualTo(minutes.get(minutes.size() - 1).split(",")[3]);
+    }
+
+    @Test
+    public void testDeterministicAcrossThreads(@TempDir Path other) throws Exception {
+        generator(dir, 1).generate();
+        generator(other, 4).generate();
+        assertThat(contents(other)).isEqualTo(contents(dir));
+    }
+
+    private static MarketDataGenerator generator(Path root, int threads) {
+        return MarketDataGenerator.builder()
+                .root(root)
+                .types(List.of("A-shares", "Crypto"))
+                .symbols(3)
+                .startDate(LocalDate.of(2020, 9, 4))
+                .days(3)
+                .ticksPerMinute(5)
+                .seed(7L)
+                .threads(threads)
+                .build();
+    }
+
+    private static long volume(List<String> bars) {
+        return bars.stream().mapToLong(line -> Long.parseLong(line.split(",")[7])).sum();
+    }
+
+    private static Map<String, String> contents(Path root) throws Exception {
+        Map<String, String> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                files.put(root.relativize(path).toString(), Files.readString(path));
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.mcp.index;
+
+import com.example.mcp.model.Partition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionCatalogTest {
+
+    private static final String TODAY = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+    private static final String OLD = "20200904";
+
+    @TempDir
+    Path dir;
+
+    private PartitionCatalog catalog;
+
+    @AfterEach
+    public void close() {
+        if (catalog != null) {
+            catalog.close();
+        }
+    }
+
+    private Path csv(String date, String symbol, String content) throws Exception {
+        Path file = dir.resolve("A-shares/tick").resolve(date.substring(0, 6)).resolve(date).resolve(symbol + ".csv");
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private List<String> symbols(String date) throws Exception {
+        return catalog.find("A-shares", "tick", date, date, null).stream().map(Partition::symbol).toList();
+    }
+
+    private PartitionCatalog start() throws Exception {
+        PartitionCatalog started = new PartitionCatalog(dir);
+        started.start();
+        awaitTrue(started::isReady);
+        return started;
+    }
+
+    // 监听事件在后台线程中处理，等待结果出现
+    private static void awaitTrue(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.call()) {
+            assertThat(System.currentTimeMillis()).as("等待分区目录更新超时").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testBuildSaveAndLoad() throws Exception {
+        csv(OLD, "SHSE.600000", "a\n");
+        csv(OLD, "SZSE.000001", "a\n");
+        csv(TODAY, "SHSE.600000", "a\n");
+        catalog = start();
+        assertThat(catalog.size()).isEqualTo(3);
+        assertThat(symbols(OLD)).containsExactly("SHSE.600000", "SZSE.000001");
+        assertThat(catalog.find("A-shares", "tick", "20000101", "29991231", "SHSE.600000"))
+                .extracting(Partition::date).containsExactly(OLD, TODAY);
+        catalog.close();
+        assertThat(Files.exists(dir.resolve(".vvtr-catalog"))).isTrue();
+
+        // 从保存的文件加载，启动后立即可用
+        catalog = new PartitionCatalog(dir);
+        catalog.start();
+        assertThat(catalog.isReady()).isTrue();
+        assertThat(catalog.size()).isEqualTo(3);
+        assertThat(catalog.findPaths("A-shares", "tick", OLD, OLD, "SZSE.000001"))
+                .containsExactly(dir.resolve("A-shares/tick/202009/20200904/SZSE.000001.csv").toAbsolutePath());
+    }
+
+    @Test
+    public void testWatchEvents() throws Exception {
+        csv(TODAY, "SHSE.600000", "a\n");
+        catalog = start();
+
+        // 最近的日期目录中新建、修改、删除文件
+        Path created = csv(TODAY, "SZSE.000001", "a\n");
+        awaitTrue(() -> symbols(TODAY).contains("SZSE.000001"));
+
+        Files.writeString(created, "a\nbb\n");
+        awaitTrue(() -> catalog.find("A-shares", "tick", TODAY, TODAY, "SZSE.000001").get(0).size() == 5);
+
+        Files.delete(created);
+        awaitTrue(() -> symbols(TODAY).equals(List.of("SHSE.600000")));
+        assertThat(catalog.find("A-shares", "tick", TODAY, TODAY, "SZSE.000001")).isEmpty();
+
+        // 新建的日期目录即使日期较早也会监听
+        csv("20190102", "SHSE.600000", "a\n");
+        awaitTrue(() -> symbols("20190102").contains("SHSE.600000"));
+        csv("20190102", "SZSE.000001", "a\n");
+        awaitTrue(() -> symbols("20190102").size() == 2);
+        assertThat(catalog.find("A-shares", "tick", "20190102", "20190102", "SZSE.000001")).hasSize(1);
+    }
+
+    @Test
+    public void testReconcileOldDirectories() throws Exception {
+        csv(OLD, "SHSE.600000", "a\n");
+        csv("20200903", "SHSE.600000", "a\n");
+        catalog = start();
+        assertThat(catalog.size()).isEqualTo(2);
+
+        // 较早的日期目录不监听，由校对发现新文件和删除的目录
+        csv(OLD, "SZSE.000001", "a\n");
+        Path removed = dir.resolve("A-shares/tick/202009/20200903");
+        Files.delete(removed.resolve("SHSE.600000.csv"));
+        Files.delete(removed);
+        catalog.reconcile(false, false);
+        assertThat(symbols(OLD)).containsExactly("SHSE.600000", "SZSE.000001");
+        assertThat(catalog.find("A-shares", "tick", "20200903", "20200903", null)).isEmpty();
+        assertThat(catalog.find("A-shares", "tick", "20000101", "29991231", "SZSE.000001")).hasSize(1);
+        assertThat(catalog.find("A-shares", "tick", "20000101", "29991231", "SHSE.600000"))
+                .extracting(Partition::date).containsExactly(OLD);
+        assertThat(catalog.size()).isEqualTo(2);
+    }
+}
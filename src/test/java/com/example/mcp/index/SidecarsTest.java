@@ -0,0 +1,78 @@
+package com.example.mcp.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SidecarsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testConcurrentWritesPublishCompleteFiles() throws Exception {
+        Path sidecar = Sidecars.path(dir.resolve("tick.csv"), ".idx");
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int value = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 20; round++) {
+                        Sidecars.write(sidecar, out -> {
+                            for (int i = 0; i < 10000; i++) {
+                                out.writeInt(value);
+                            }
+                        });
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 文件完整，且内容全部来自同一次写入
+        assertThat(Files.size(sidecar)).isEqualTo(40000);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(sidecar))) {
+            int first = in.readInt();
+            for (int i = 1; i < 10000; i++) {
+                assertThat(in.readInt()).isEqualTo(first);
+            }
+        }
+        try (var files = Files.list(dir)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactly("tick.csv.idx");
+        }
+    }
+
+    @Test
+    public void testFailedWriteLeavesNoTempFile() throws Exception {
+        Path sidecar = Sidecars.path(dir.resolve("tick.csv"), ".stats");
+        Sidecars.write(sidecar, out -> {
+            out.writeInt(1);
+            throw new IOException("磁盘已满");
+        });
+        try (var files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
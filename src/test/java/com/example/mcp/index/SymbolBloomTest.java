@@ -0,0 +1,59 @@
+package com.example.mcp.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SymbolBloomTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testBuildAndReload() throws Exception {
+        Path csv = dir.resolve("2020-09-04.csv");
+        Files.writeString(csv, "symbol,bob\nSHSE.600000,1\n");
+        assertThat(SymbolBloom.get(csv)).isNull();
+        assertThat(SymbolBloom.definitelyAbsent(csv, "SZSE.000001")).isFalse();
+
+        SymbolBloom.Builder builder = new SymbolBloom.Builder(Sidecars.version(csv));
+        for (int i = 0; i < 1000; i++) {
+            byte[] symbol = ("SHSE.60" + (1000 + i)).getBytes(StandardCharsets.UTF_8);
+            builder.add(symbol, 0, symbol.length);
+            builder.add(symbol, 0, symbol.length);
+        }
+        SymbolBloom bloom = builder.save(csv);
+
+        assertThat(bloom.symbolCount()).isEqualTo(1000);
+        assertThat(Files.exists(Sidecars.path(csv, SymbolBloom.SUFFIX))).isTrue();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(SymbolBloom.get(csv).mightContain("SHSE.60" + (1000 + i))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (!SymbolBloom.definitelyAbsent(csv, "SZSE.00" + (1000 + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    public void testInvalidatedByChange() throws Exception {
+        Path csv = dir.resolve("2020-09-07.csv");
+        Files.writeString(csv, "symbol,bob\nA,1\n");
+        SymbolBloom.Builder builder = new SymbolBloom.Builder(Sidecars.version(csv));
+        builder.add(new byte[]{'A'}, 0, 1);
+        builder.save(csv);
+        assertThat(SymbolBloom.definitelyAbsent(csv, "B")).isTrue();
+
+        Files.writeString(csv, "symbol,bob\nA,1\nB,2\n");
+        assertThat(SymbolBloom.get(csv)).isNull();
+        assertThat(SymbolBloom.definitelyAbsent(csv, "B")).isFalse();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mcp.index;
+
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TickIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private static String time(int row) {
+        return String.format("2020-09-04 %02d:%02d:%02d.000+08:00", 9 + row / 3600, row / 60 % 60, row % 60);
+    }
+
+    @Test
+    public void testSeekTimeSkipsInvalidCheckpoints() throws Exception {
+        int rows = 5 * TickIndex.STRIDE;
+        StringBuilder csv = new StringBuilder("symbol,price,created_at\n");
+        for (int row = 0; row < rows; row++) {
+            // 第 2 个检查点所在行的时间无法解析
+            String createdAt = row == 2 * TickIndex.STRIDE ? "bad" : time(row);
+            csv.append("SHSE.600000,10,").append(createdAt).append('\n');
+        }
+        Path path = Files.writeString(dir.resolve("SHSE.600000.csv"), csv.toString());
+        Sidecars.Version version = Sidecars.version(path);
+        TickIndex index = TickIndex.build(path, 2, version.size(), version.mtime());
+
+        assertThat(index.isSorted()).isTrue();
+        assertThat(index.rowCount()).isEqualTo(rows);
+        for (int target : new int[]{0, 100, TickIndex.STRIDE + 1, 2 * TickIndex.STRIDE + 1, 3 * TickIndex.STRIDE + 7, rows - 1}) {
+            TickIndex.Checkpoint checkpoint = index.seekTime(TimeDecoder.decode(time(target)));
+            // 定位到目标行之前，且不超过一个检查点的距离
+            assertThat(checkpoint.row()).isLessThanOrEqualTo(target);
+            assertThat(target - checkpoint.row()).isLessThanOrEqualTo(TickIndex.STRIDE);
+        }
+        assertThat(index.seekTime(TimeDecoder.decode(time(100))).row()).isZero();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.mcp.indicator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class IndicatorEngineTest {
+
+    @Test
+    public void testMovingAverages() {
+        IndicatorEngine engine = new IndicatorEngine(List.of("sma:3", "ema:3", "boll:3:2"));
+        assertThat(engine.names()).containsExactly("sma3", "ema3", "boll_mid", "boll_upper", "boll_lower");
+        assertThat(engine.lookback()).isEqualTo(3);
+
+        double[] row = new double[engine.width()];
+        double[] closes = {1, 2, 3, 4};
+        for (double close : closes) {
+            engine.update(close, close, close, 0, 0, 0, row);
+        }
+        assertThat(row[0]).isEqualTo(3.0);
+        // 前三个值的平均 2 作为初值，再加入 4：2 + 0.5 * (4 - 2)
+        assertThat(row[1]).isEqualTo(3.0);
+        assertThat(row[2]).isEqualTo(3.0);
+        assertThat(row[3]).isCloseTo(3.0 + 2 * Math.sqrt(2.0 / 3.0), within(1e-12));
+    }
+
+    @Test
+    public void testRsiAndAtr() {
+        IndicatorEngine engine = new IndicatorEngine(List.of("rsi:2", "atr:2"));
+        double[] row = new double[engine.width()];
+
+        engine.update(11, 9, 10, 0, 0, 0, row);
+        assertThat(row[0]).isNaN();
+        engine.update(12, 10, 11, 0, 0, 0, row);
+        assertThat(row[0]).isNaN();
+        assertThat(row[1]).isEqualTo(2.0);
+        engine.update(11, 9, 10, 0, 0, 0, row);
+        // 平均涨幅 0.5，平均跌幅 0.5
+        assertThat(row[0]).isEqualTo(50.0);
+        // 真实波幅 max(2, |11 - 11|, |9 - 11|) = 2
+        assertThat(row[1]).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testMacdAndVwap() {
+        IndicatorEngine engine = new IndicatorEngine(List.of("macd:2:3:2", "vwap"));
+        assertThat(engine.names()).containsExactly("dif", "dea", "macd", "vwap");
+        double[] row = new double[engine.width()];
+        long day = 86_400_000L;
+        engine.update(10, 10, 10, 1000, 100, day + 1, row);
+        assertThat(row[3]).isEqualTo(10.0);
+        engine.update(12, 12, 12, 3600, 300, day + 2, row);
+        assertThat(row[3]).isEqualTo(11.5);
+        engine.update(12, 12, 12, 600, 50, 2 * day + 1, row);
+        assertThat(row[3]).isEqualTo(12.0);
+        for (int i = 0; i < 5; i++) {
+            engine.update(12, 12, 12, 0, 0, 2 * day + 2, row);
+        }
+        assertThat(row[0]).isNotNaN();
+        assertThat(row[2]).isCloseTo(2 * (row[0] - row[1]), within(1e-12));
+    }
+
+    @Test
+    public void testGapRows() {
+        List<String> specs = List.of("sma:3", "ema:3", "boll:3:2", "rsi:2", "atr:2", "vwap");
+        IndicatorEngine gapped = new IndicatorEngine(specs);
+        IndicatorEngine plain = new IndicatorEngine(specs);
+        double[] row = new double[gapped.width()];
+        double[] expected = new double[plain.width()];
+
+        // 第一行就是缺口时输出 NaN
+        gapped.update(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 1, row);
+        assertThat(row).containsOnly(Double.NaN);
+
+        double[] closes = {10, 11, 12, 11, 13, 12};
+        for (int i = 0; i < closes.length; i++) {
+            double close = closes[i];
+            gapped.update(close + 1, close - 1, close, close * 100, 100, i + 2, row);
+            plain.update(close + 1, close - 1, close, close * 100, 100, i + 2, expected);
+            assertThat(row).containsExactly(expected);
+            if (i == 3) {
+                // 缺口行不参与计算，保持上一根 K 线的值
+                gapped.update(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, i + 2, row);
+                assertThat(row).containsExactly(expected);
+            }
+        }
+        assertThat(row).doesNotContain(Double.NaN);
+
+        // 只缺成交量时按 0 计算，VWAP 不变
+        double vwap = row[row.length - 1];
+        gapped.update(13, 11, 12, Double.NaN, Double.NaN, 9, row);
+        assertThat(row[row.length - 1]).isEqualTo(vwap);
+        assertThat(row).doesNotContain(Double.NaN);
+    }
+
+    @Test
+    public void testInvalidSpec() {
+        assertThatThrownBy(() -> new IndicatorEngine(List.of("kdj"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IndicatorEngine(List.of("sma:x"))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
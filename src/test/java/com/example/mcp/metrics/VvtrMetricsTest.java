@@ -0,0 +1,79 @@
+package com.example.mcp.metrics;
+
+import com.example.mcp.cache.PartitionCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VvtrMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    private VvtrMetrics metrics;
+
+    @AfterEach
+    public void close() {
+        if (metrics != null) {
+            metrics.close();
+        }
+    }
+
+    @Test
+    public void testJsonSnapshot() throws Exception {
+        metrics = new VvtrMetrics(new PartitionCache(0), "", 60);
+        try (ScanMetrics.Scan scan = ScanMetrics.start("testJson")) {
+            ScanMetrics.fileOpened();
+            ScanMetrics.bytesRead(1024);
+            scan.scanned(100);
+            scan.returned(10);
+            scan.pruned();
+        }
+        metrics.recordTool("getDayData", 2_000_000, false);
+        metrics.recordTool("getDayData", 4_000_000, true);
+
+        JsonNode json = new ObjectMapper().readTree(metrics.json());
+        JsonNode tool = json.path("tools").path("getDayData");
+        assertThat(tool.path("count").asLong()).isEqualTo(2);
+        assertThat(tool.path("errors").asLong()).isEqualTo(1);
+        assertThat(tool.path("maxMs").asDouble()).isEqualTo(4.0);
+        assertThat(tool.has("p50Ms")).isTrue();
+        assertThat(tool.has("p99Ms")).isTrue();
+
+        JsonNode operation = json.path("operations").path("testJson");
+        assertThat(operation.path("count").asLong()).isEqualTo(1);
+        assertThat(operation.path("rowsScanned").asLong()).isEqualTo(100);
+        assertThat(operation.path("rowsReturned").asLong()).isEqualTo(10);
+        assertThat(operation.path("filesPruned").asLong()).isEqualTo(1);
+
+        // 全局计数器可能已被其他测试累加
+        assertThat(json.path("io").path("filesOpened").asLong()).isGreaterThanOrEqualTo(1);
+        assertThat(json.path("io").path("bytesRead").asLong()).isGreaterThanOrEqualTo(1024);
+        assertThat(json.path("cache").path("maxBytes").asLong()).isZero();
+    }
+
+    @Test
+    public void testPrometheusDump() throws Exception {
+        Path file = dir.resolve("metrics/vvtr.prom");
+        metrics = new VvtrMetrics(new PartitionCache(0), file.toString(), 3600);
+        metrics.recordTool("getTickData", 1_000_000, false);
+
+        metrics.dump();
+        String text = Files.readString(file);
+        assertThat(text).contains("# TYPE vvtr_tool_latency_seconds summary\n");
+        assertThat(text).contains("vvtr_tool_latency_seconds{tool=\"getTickData\",quantile=\"0.99\"} ");
+        assertThat(text).contains("vvtr_tool_latency_seconds_count{tool=\"getTickData\"} 1\n");
+        assertThat(text).contains("# TYPE vvtr_cache_hits_total counter\n");
+        assertThat(text).contains("vvtr_cache_entries 0\n");
+        try (var files = Files.list(file.getParent())) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.mcp.model;
+
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KLineSeriesTest {
+
+    private static final String LINES = """
+            SHSE.510300,3.1,3.3,3.0,3.2,1000.5,300,2020-09-01 09:30:00+08:00,2020-09-01 09:31:00+08:00,1
+            SZSE.159919\t4.1\t4.2\t4.0\t4.15\t800\t200\t2020/09/01 09:30\t2020/09/01 09:31\t1\r
+
+            SHSE.510300,3.2,3.4,3.1,3.3,1200,310,2020-09-01 09:31:00,2020-09-01 09:32:00,1
+            """;
+
+    @Test
+    public void testParseMatchesKLineData() {
+        KLineSeries series = KLineSeries.parseCsvLines(LINES);
+        assertThat(series.size()).isEqualTo(3);
+        assertThat(series.symbolCount()).isEqualTo(2);
+        assertThat(series.symbolId(0)).isEqualTo(series.symbolId(2));
+        assertThat(series.bob(1)).isEqualTo(TimeDecoder.decode("2020-09-01 09:30:00"));
+        assertThat(series.asList()).containsExactly(KLineData.parseCsvLines(LINES));
+
+        assertThatThrownBy(() -> KLineSeries.parseCsvLines("A,1,2,3,4,5,6,2020-09-01,2020-09-01"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("至少 10 列");
+        assertThatThrownBy(() -> KLineSeries.parseCsvLines("A,1,2,3,4,5,6,bad,2020-09-01,1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bad");
+    }
+
+    @Test
+    public void testBuilderGrowsAndSorts() {
+        KLineSeries.Builder builder = KLineSeries.builder(1);
+        for (int i = 0; i < 100; i++) {
+            String symbol = i % 2 == 0 ? "B" : "A";
+            builder.add(symbol, i, i + 1, i - 1, i + 0.5, 10, 1, 1000L * (100 - i), 1000L * (101 - i), i);
+        }
+        KLineSeries sorted = builder.build().sorted();
+
+        assertThat(sorted.size()).isEqualTo(100);
+        List<KLineData> bars = sorted.asList();
+        assertThat(bars.subList(0, 50)).allSatisfy(bar -> assertThat(bar.symbol()).isEqualTo("A"));
+        for (int i = 1; i < 100; i++) {
+            if (sorted.symbolId(i) == sorted.symbolId(i - 1)) {
+                assertThat(sorted.bob(i)).isGreaterThan(sorted.bob(i - 1));
+            }
+        }
+        assertThat(sorted.type(0)).isEqualTo(99);
+        assertThat(sorted.close(0)).isEqualTo(99.5);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.mcp.query;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.index.CsvSchema;
+import com.example.mcp.index.PartitionStats;
+import com.example.mcp.index.SymbolBloom;
+import com.example.mcp.metrics.ScanMetrics;
+import com.example.mcp.repository.ScanPool;
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryEngineTest {
+
+    private static final String BAR_HEADER = "symbol,frequency,open,close,high,low,amount,volume,bob,eob";
+    private static final String TICK_HEADER = "symbol,price,last_volume,last_amount,created_at";
+
+    @TempDir
+    Path dir;
+
+    private final ScanPool scanPool = new ScanPool(4);
+    private final QueryEngine engine = new QueryEngine(new PartitionCache(0), scanPool);
+
+    @AfterEach
+    public void close() {
+        scanPool.close();
+    }
+
+    @Test
+    public void testFiltersAcrossFilesInOrder() throws Exception {
+        List<Path> paths = List.of(
+                dayFile("20200901", "A", "B"),
+                dayFile("20200902", "A", "B"),
+                dayFile("20200903", "B"),
+                dayFile("20200904", "A", "B"));
+        ScanSpec spec = ScanSpec.builder()
+                .partitions(paths)
+                .symbol("A")
+                .startTime(time("2020-09-02 00:00:00"))
+                .endTime(time("2020-09-04 23:59:59"))
+                .build();
+
+        Collector rows = new Collector();
+        assertThat(scan(spec, rows)).isNull();
+        assertThat(rows.rows).containsExactly(
+                "A,1d,1,2,3,0.5,100,10,2020-09-02 00:00:00+08:00,2020-09-02 00:00:00+08:00",
+                "A,1d,1,2,3,0.5,100,10,2020-09-04 00:00:00+08:00,2020-09-04 00:00:00+08:00");
+    }
+
+    @Test
+    public void testPrunesWithExistingStats() throws Exception {
+        List<Path> paths = List.of(dayFile("20200901", "A"), dayFile("20200902", "B"), dayFile("20200903", "A"));
+        paths.forEach(PartitionStats::of);
+        ScanSpec bySymbol = ScanSpec.builder().partitions(paths).symbol("B").build();
+        ScanSpec byTime = ScanSpec.builder().partitions(paths)
+                .startTime(time("2020-09-03 00:00:00"))
+                .endTime(Long.MAX_VALUE)
+                .build();
+        try (ScanMetrics.Scan scan = ScanMetrics.start("test")) {
+            assertThat(engine.plan(bySymbol, 0, scan)).isNull();
+            assertThat(engine.plan(bySymbol, 1, scan)).isNotNull();
+            assertThat(engine.plan(byTime, 1, scan)).isNull();
+            assertThat(engine.plan(byTime, 2, scan)).isNotNull();
+        }
+    }
+
+    @Test
+    public void testResumesWhereSinkStopped() throws Exception {
+        List<Path> paths = List.of(dayFile("20200901", "A", "B", "C"), dayFile("20200902", "A", "B", "C"));
+        ScanSpec spec = ScanSpec.builder().partitions(paths).limit(2).build();
+
+        List<String> all = new ArrayList<>();
+        int pages = 0;
+        ScanSpec.Position next;
+        do {
+            Collector rows = new Collector();
+            next = scan(spec, rows);
+            all.addAll(rows.rows);
+            pages++;
+            if (next != null) {
+                spec = spec.resume(next);
+            }
+        } while (next != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(all).hasSize(6);
+        assertThat(all.get(2)).startsWith("C,").contains("2020-09-01");
+        assertThat(all.get(3)).startsWith("A,").contains("2020-09-02");
+    }
+
+    @Test
+    public void testProjection() throws Exception {
+        ScanSpec spec = ScanSpec.builder()
+                .partitions(List.of(dayFile("20200901", "A", "B")))
+                .columns(List.of("eob", "close", "symbol"))
+                .build();
+        Collector rows = new Collector();
+        scan(spec, rows);
+        assertThat(rows.schema.header()).isEqualTo("eob,close,symbol");
+        assertThat(rows.rows).containsExactly("2020-09-01 00:00:00+08:00,2,A", "2020-09-01 00:00:00+08:00,2,B");
+
+        // 过滤用的列不在投影中
+        Collector filtered = new Collector();
+        scan(spec.toBuilder().columns(List.of("close")).symbol("B").build(), filtered);
+        assertThat(filtered.rows).containsExactly("2");
+
+        ScanSpec unknown = spec.toBuilder().columns(List.of("close", "nope")).build();
+        assertThatThrownBy(() -> scan(unknown, new Collector()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("nope");
+    }
+
+    @Test
+    public void testBloomIncludesShortRows() throws Exception {
+        Path path = dir.resolve("short.csv");
+        Files.writeString(path, BAR_HEADER + "\n"
+                + "A,1d,1,2,3,0.5,100,10,2020-09-01 00:00:00+08:00,2020-09-01 00:00:00+08:00\n"
+                + "C,1d,1,2\n");
+        ScanSpec spec = ScanSpec.builder().partitions(List.of(path)).columns(List.of("eob")).build();
+        Collector rows = new Collector();
+        scan(spec, rows);
+        assertThat(rows.rows).containsExactly("2020-09-01 00:00:00+08:00");
+
+        // 列数不足的行没有输出，但代码仍在过滤器中
+        assertThat(SymbolBloom.get(path)).isNotNull();
+        assertThat(SymbolBloom.definitelyAbsent(path, "A")).isFalse();
+        assertThat(SymbolBloom.definitelyAbsent(path, "C")).isFalse();
+    }
+
+    @Test
+    public void testTickSeeksAndStopsAtEndTime() throws Exception {
+        StringBuilder csv = new StringBuilder(TICK_HEADER).append('\n');
+        for (int i = 0; i < 3600; i++) {
+            csv.append(String.format("A,10.5,100,1050,2020-09-01 %02d:%02d:%02d.000+08:00\n", 9, i / 60 % 60, i % 60));
+        }
+        Path tick = Files.writeString(dir.resolve("tick.csv"), csv.toString());
+        ScanSpec spec = ScanSpec.builder()
+                .partitions(List.of(tick))
+                .timeColumn(ScanSpec.TimeColumn.TICK)
+                .startTime(time("2020-09-01 09:30:00"))
+                .endTime(time("2020-09-01 09:30:09"))
+                .build();
+
+        Collector rows = new Collector();
+        assertThat(scan(spec, rows)).isNull();
+        assertThat(rows.rows).hasSize(10);
+        assertThat(rows.rows.get(0)).endsWith("09:30:00.000+08:00");
+
+        try (ScanMetrics.Scan scan = ScanMetrics.start("test")) {
+            QueryEngine.Partition partition = engine.plan(spec, 0, scan);
+            assertThat(partition.sorted()).isTrue();
+            assertThat(partition.offset()).isGreaterThan(0L);
+            assertThat(partition.row()).isGreaterThan(0L).isLessThanOrEqualTo(1800L);
+        }
+    }
+
+    private ScanSpec.Position scan(ScanSpec spec, RowSink sink) {
+        try (ScanMetrics.Scan scan = ScanMetrics.start("test")) {
+            return engine.scan(spec, sink, scan);
+        }
+    }
+
+    private Path dayFile(String date, String... symbols) throws Exception {
+        String day = date.substring(0, 4) + "-" + date.substring(4, 6) + "-" + date.substring(6);
+        StringBuilder csv = new StringBuilder(BAR_HEADER).append('\n');
+        for (String symbol : symbols) {
+            csv.append(symbol).append(",1d,1,2,3,0.5,100,10,")
+                    .append(day).append(" 00:00:00+08:00,")
+                    .append(day).append(" 00:00:00+08:00\n");
+        }
+        return Files.writeString(dir.resolve(date + ".csv"), csv.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static long time(String text) {
+        return TimeDecoder.decode(text);
+    }
+
+    private static final class Collector implements RowSink {
+        final List<String> rows = new ArrayList<>();
+        CsvSchema schema;
+
+        @Override
+        public void schema(CsvSchema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public boolean row(byte[] buf, int offset, int length) {
+            rows.add(new String(buf, offset, length, StandardCharsets.UTF_8));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.mcp.repository;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.cursor.CursorStore;
+import com.example.mcp.model.KLineData;
+import com.example.mcp.util.TimeDecoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BarSpliteratorTest {
+
+    private static final String BAR_HEADER = "symbol,frequency,open,close,high,low,amount,volume,position,bob,eob";
+
+    @TempDir
+    Path dir;
+
+    private final ScanPool scanPool = new ScanPool(2);
+    private final VvtrData data = new VvtrData(new CursorStore(60), new PartitionCache(0), scanPool, 65536);
+
+    @AfterEach
+    public void close() {
+        scanPool.close();
+    }
+
+    @Test
+    public void testStreamsFilesInOrder() throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int day = 1; day <= 5; day++) {
+            files.add(barFile(day, 30));
+        }
+
+        List<KLineData> bars;
+        try (Stream<KLineData> stream = data.streamBars(files, "SHSE.600000", null, null)) {
+            bars = stream.collect(Collectors.toList());
+        }
+        assertThat(bars).hasSize(150);
+        for (int i = 1; i < bars.size(); i++) {
+            assertThat(bars.get(i).bob()).isAfter(bars.get(i - 1).bob());
+        }
+        assertThat(bars.get(0).open()).isEqualTo(10.0);
+        assertThat(bars.get(0).close()).isEqualTo(10.5);
+        assertThat(bars.get(0).type()).isEqualTo(1);
+
+        try (Stream<KLineData> stream = data.streamBars(files, null, "2020-09-03 00:00:00", null)) {
+            assertThat(stream.parallel().collect(Collectors.toList()))
+                    .hasSize(180)
+                    .allSatisfy(bar -> assertThat(bar.bob().getDayOfMonth()).isGreaterThanOrEqualTo(3));
+        }
+        assertThatThrownBy(() -> data.streamBars(files, null, "bad", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testSplitsOnFileBoundaries() {
+        List<Path> paths = List.of(Path.of("a"), Path.of("b"), Path.of("c"), Path.of("d"));
+        List<Path> loaded = new ArrayList<>();
+        BarSpliterator.Loader loader = (path, bars) -> {
+            loaded.add(path);
+            for (int i = 0; i < 3; i++) {
+                long bob = TimeDecoder.decode("2020-09-01 09:30:00") + i * 60_000L;
+                bars.add(path.toString(), i, i, i, i, i, i, bob, bob + 60_000L, 1);
+            }
+        };
+        BarSpliterator suffix = new BarSpliterator(paths, 0, paths.size(), loader);
+        assertThat(suffix.tryAdvance(bar -> assertThat(bar.symbol()).isEqualTo("a"))).isTrue();
+
+        // 前半部分包含已读入的 a 和未读取的 b
+        Spliterator<KLineData> prefix = suffix.trySplit();
+        assertThat(prefix).isNotNull();
+        List<String> first = StreamSupport.stream(prefix, false).map(KLineData::symbol).toList();
+        List<String> second = StreamSupport.stream(suffix, false).map(KLineData::symbol).toList();
+        assertThat(first).containsExactly("a", "a", "b", "b", "b");
+        assertThat(second).containsExactly("c", "c", "c", "d", "d", "d");
+        assertThat(loaded).containsExactlyElementsOf(paths);
+        assertThat(suffix.trySplit()).isNull();
+        assertThat(suffix.estimateSize()).isZero();
+    }
+
+    // 每个文件一天，从 09:30 开始的一分钟线，两个代码交替
+    private Path barFile(int day, int rows) throws Exception {
+        StringBuilder csv = new StringBuilder(BAR_HEADER).append('\n');
+        for (int i = 0; i < rows * 2; i++) {
+            String symbol = i % 2 == 0 ? "SHSE.600000" : "SZSE.000001";
+            int minute = 30 + i / 2;
+            csv.append(symbol).append(",60s,")
+                    .append(10 + i).append(',').append(10.5 + i).append(',')
+                    .append(11 + i).append(',').append(9 + i).append(',')
+                    .append(1000).append(',').append(100).append(",0,")
+                    .append(String.format("2020-09-%02d %02d:%02d:00+08:00,", day, 9 + minute / 60, minute % 60))
+                    .append(String.format("2020-09-%02d %02d:%02d:00+08:00", day, 9 + (minute + 1) / 60, (minute + 1) % 60))
+                    .append('\n');
+        }
+        Path file = dir.resolve(String.format("202009%02d", day)).resolve("bars.csv");
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, csv.toString());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mcp.resource;
+
+import com.example.mcp.cache.PartitionCache;
+import com.example.mcp.index.PartitionCatalog;
+import com.example.mcp.repository.ScanPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionResourcesTest {
+
+    private static final String TICK_HEADER = "symbol,price,last_volume,created_at";
+    private static final String URI = "vvtr://A-shares/tick/20200904/SHSE.600000";
+
+    @TempDir
+    Path dir;
+
+    private final ScanPool scanPool = new ScanPool(1);
+    private List<String> lines;
+    private PartitionResources resources;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder(TICK_HEADER).append('\n');
+        for (int i = 0; i < 1000; i++) {
+            csv.append("SHSE.600000,").append(10 + i / 100.0).append(',').append(i * 100).append(',')
+                    .append(String.format("2020-09-04 09:%02d:%02d.000+08:00", 30 + i / 60, i % 60)).append('\n');
+        }
+        Path tick = dir.resolve("A-shares/tick/202009/20200904/SHSE.600000.csv");
+        Files.createDirectories(tick.getParent());
+        Files.writeString(tick, csv.toString());
+        lines = Files.readAllLines(tick);
+
+        Path undated = dir.resolve("A-shares/1d/SHSE.600000.csv");
+        Files.createDirectories(undated.getParent());
+        Files.writeString(undated, "symbol,open,close,bob,eob\nSHSE.600000,1,2,2020-09-04,2020-09-05\n");
+
+        // 目录未启动时按目录树查找，与启动后的结果相同
+        resources = new PartitionResources(new PartitionCatalog(dir), new PartitionCache(0), scanPool, 1000);
+    }
+
+    @AfterEach
+    public void close() {
+        scanPool.close();
+    }
+
+    @Test
+    public void testByteChunksCoverFile() throws Exception {
+        List<String> rows = new ArrayList<>();
+        String uri = URI;
+        int chunks = 0;
+        while (uri != null) {
+            PartitionResources.Chunk chunk = resources.read(uri);
+            List<String> text = List.of(chunk.text().split("\n"));
+            assertThat(text.get(0)).isEqualTo(TICK_HEADER);
+            assertThat(chunk.text().length()).isLessThanOrEqualTo(TICK_HEADER.length() + 1 + 1000);
+            assertThat(text).hasSize(chunk.rows() + 1);
+            rows.addAll(text.subList(1, text.size()));
+            uri = chunk.next();
+            chunks++;
+        }
+        assertThat(rows).isEqualTo(lines.subList(1, lines.size()));
+        assertThat(chunks).isGreaterThan(40);
+
+        // 偏移不在行首时从下一行开始
+        int secondRow = lines.get(0).length() + 1 + lines.get(1).length() + 1;
+        PartitionResources.Chunk chunk = resources.read(URI + "?offset=" + (secondRow - 5) + "&length=100");
+        assertThat(chunk.text().split("\n")[1]).isEqualTo(lines.get(2));
+        assertThat(resources.read(URI + "?offset=1").text().split("\n")[1]).isEqualTo(lines.get(1));
+
+        PartitionResources.Chunk undated = resources.read("vvtr://A-shares/1d/-/SHSE.600000");
+        assertThat(undated.rows()).isEqualTo(1);
+        assertThat(undated.next()).isNull();
+    }
+
+    @Test
+    public void testRowRanges() throws Exception {
+        PartitionResources.Chunk chunk = resources.read(URI + "?row=300&rows=5");
+        assertThat(chunk.rows()).isEqualTo(5);
+        assertThat(List.of(chunk.text().split("\n"))).containsExactlyElementsOf(
+                List.of(lines.get(0), lines.get(301), lines.get(302), lines.get(303), lines.get(304), lines.get(305)));
+        assertThat(chunk.next()).isEqualTo(URI + "?row=305&rows=5");
+
+        PartitionResources.Chunk last = resources.read(URI + "?row=998&rows=5");
+        assertThat(last.rows()).isEqualTo(2);
+        assertThat(last.next()).isNull();
+
+        // 行数超过字节上限时按字节截断
+        PartitionResources.Chunk limited = resources.read(URI + "?rows=500");
+        assertThat(limited.rows()).isBetween(1, 499);
+        assertThat(limited.next()).isEqualTo(URI + "?row=" + limited.rows() + "&rows=500");
+    }
+
+    @Test
+    public void testInvalidUris() {
+        assertThatThrownBy(() -> resources.read("file:///etc/passwd"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resources.read("vvtr://A-shares/tick/SHSE.600000"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resources.read("vvtr://../tick/20200904/SHSE.600000"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("路径无效");
+        assertThatThrownBy(() -> resources.read(URI + "?offset=10&row=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> resources.read(URI + "?page=1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("page");
+        assertThatThrownBy(() -> resources.read("vvtr://A-shares/tick/20200905/SHSE.600000"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("分区不存在");
+    }
+}
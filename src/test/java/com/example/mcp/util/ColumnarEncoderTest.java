@@ -0,0 +1,95 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarEncoderTest {
+
+    private static void add(ColumnarEncoder encoder, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        encoder.add(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testMinuteBars() {
+        ColumnarEncoder encoder = new ColumnarEncoder(List.of("symbol", "frequency", "open", "close", "amount", "volume", "bob", "eob"));
+        add(encoder, "SHSE.600000,60s,10.1200,10.13,123456.789,1200.0,2020-09-04 09:31:00+08:00,2020-09-04 09:32:00+08:00");
+        add(encoder, "SZSE.000001,60s,8.500000000000002,8.51,2000,300,2020-09-04 09:31:00+08:00,2020-09-04 09:32:00+08:00");
+        add(encoder, "SHSE.600000,60s,-0.5,,1e3,0,2020-09-04 09:32:00+08:00,2020-09-04 09:33:00+08:00");
+
+        ByteSink out = new ByteSink();
+        encoder.writeTo(out);
+        assertThat(encoder.rowCount()).isEqualTo(3);
+        assertThat(out.toString()).isEqualTo(
+                "#columns symbol,frequency,open,close,amount,volume,bob,eob\n"
+                        + "#dict symbol SHSE.600000,SZSE.000001\n"
+                        + "#dict frequency 60s\n"
+                        + "#time bob 2020-09-04 09:31:00+08:00\n"
+                        + "#time eob 2020-09-04 09:32:00+08:00\n"
+                        + "0,0,10.12,10.13,123456.79,1200,0,0\n"
+                        + "1,0,8.5,8.51,2000,300,0,0\n"
+                        + "0,0,-0.5,,1000,0,60,60\n");
+    }
+
+    @Test
+    public void testTickMillisAndQuotedValues() {
+        ColumnarEncoder encoder = new ColumnarEncoder(List.of("symbol", "trade_type", "price", "created_at"));
+        add(encoder, "A,\"x,y\",1.5,2020-09-04 09:30:00.500+08:00");
+        add(encoder, "A,\"x,y\",1.5,2020-09-04 09:30:00.250+08:00");
+        add(encoder, "A,z,1.5,bad");
+
+        ByteSink out = new ByteSink();
+        encoder.writeTo(out);
+        assertThat(out.toString()).isEqualTo(
+                "#columns symbol,trade_type,price,created_at\n"
+                        + "#dict symbol A\n"
+                        + "#dict trade_type \"x,y\",z\n"
+                        + "#time created_at 2020-09-04 09:30:00.500+08:00\n"
+                        + "0,0,1.5,0\n"
+                        + "0,0,1.5,-0.25\n"
+                        + "0,1,1.5,bad\n");
+    }
+
+    @Test
+    public void testSizeAndRemoveLast() {
+        ColumnarEncoder encoder = new ColumnarEncoder(List.of("symbol", "price", "created_at"));
+        assertThat(encoder.size()).isZero();
+        add(encoder, "A,1.5,2020-09-04 09:30:00+08:00");
+        add(encoder, "B,1.6,2020-09-04 09:30:03+08:00");
+        ByteSink two = new ByteSink();
+        encoder.writeTo(two);
+
+        add(encoder, "C,1.7,2020-09-04 09:30:07+08:00");
+        ByteSink three = new ByteSink();
+        encoder.writeTo(three);
+        assertThat(encoder.size()).isEqualTo(three.size());
+
+        encoder.removeLast();
+        ByteSink undone = new ByteSink();
+        encoder.writeTo(undone);
+        assertThat(undone.toString()).isEqualTo(two.toString());
+        assertThat(encoder.size()).isEqualTo(two.size());
+
+        add(encoder, "A,1.7,2020-09-04 09:30:08+08:00");
+        ByteSink out = new ByteSink();
+        encoder.writeTo(out);
+        assertThat(out.toString()).endsWith("#dict symbol A,B\n#time created_at 2020-09-04 09:30:00+08:00\n0,1.5,0\n1,1.6,3\n0,1.7,5\n");
+    }
+
+    @Test
+    public void testDecimalsAppend() {
+        ByteSink out = new ByteSink();
+        Decimals.append(out, 0.00012, 4);
+        out.append(' ');
+        Decimals.append(out, -12.30004, 4);
+        out.append(' ');
+        Decimals.append(out, 0.00004, 4);
+        out.append(' ');
+        Decimals.append(out, 1.05, 1);
+        assertThat(out.toString()).isEqualTo("0.0001 -12.3 0 1.1");
+    }
+}
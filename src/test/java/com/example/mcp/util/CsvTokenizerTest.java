@@ -0,0 +1,55 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvTokenizerTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSplitWithQuotes() {
+        byte[] line = bytes("SHSE.600000,\"1,5\",,2020-09-04 09:31:00+0800");
+        CsvTokenizer tokenizer = new CsvTokenizer().reset(line, 0, line.length);
+
+        assertThat(tokenizer.fieldCount()).isEqualTo(4);
+        assertThat(tokenizer.fieldEquals(0, bytes("SHSE.600000"))).isTrue();
+        assertThat(tokenizer.fieldAsString(1)).isEqualTo("1,5");
+        assertThat(tokenizer.fieldEquals(1, bytes("1,5"))).isTrue();
+        assertThat(tokenizer.length(2)).isZero();
+        assertThat(tokenizer.comparePrefix(3, bytes("2020-09-04 09:31:00"))).isZero();
+        assertThat(tokenizer.comparePrefix(3, bytes("2020-09-04 10:00:00"))).isNegative();
+        assertThat(tokenizer.comparePrefix(3, bytes("2020-09-04"))).isZero();
+    }
+
+    @Test
+    public void testMaxFields() {
+        byte[] line = bytes("a,b,c,d");
+        CsvTokenizer tokenizer = new CsvTokenizer().reset(line, 0, line.length, 2);
+
+        assertThat(tokenizer.fieldCount()).isEqualTo(2);
+        assertThat(tokenizer.fieldAsString(1)).isEqualTo("b");
+
+        ByteSink sink = new ByteSink();
+        tokenizer.reset(line, 2, 5).copyField(2, sink);
+        assertThat(sink.toString()).isEqualTo("d");
+    }
+
+    @Test
+    public void testFieldAsDouble() {
+        byte[] line = bytes("1.2345,-0.5,\"300\",,1e3,0.1");
+        CsvTokenizer tokenizer = new CsvTokenizer().reset(line, 0, line.length);
+
+        assertThat(tokenizer.fieldAsDouble(0)).isEqualTo(1.2345);
+        assertThat(tokenizer.fieldAsDouble(1)).isEqualTo(-0.5);
+        assertThat(tokenizer.fieldAsDouble(2)).isEqualTo(300.0);
+        assertThat(tokenizer.fieldAsDouble(3)).isNaN();
+        assertThat(tokenizer.fieldAsDouble(4)).isEqualTo(1000.0);
+        assertThat(tokenizer.fieldAsDouble(5)).isEqualTo(0.1);
+    }
+}
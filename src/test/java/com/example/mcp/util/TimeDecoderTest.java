@@ -0,0 +1,49 @@
+package com.example.mcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeDecoderTest {
+
+    @Test
+    public void testSupportedFormats() {
+        long expected = TimeDecoder.fromLocalDateTime(LocalDateTime.of(2020, 9, 4, 9, 31, 0));
+
+        assertThat(TimeDecoder.decode("2020-09-04 09:31:00")).isEqualTo(expected);
+        assertThat(TimeDecoder.decode("2020-09-04 09:31:00+0800")).isEqualTo(expected);
+        assertThat(TimeDecoder.decode("2020-09-04 09:31:00+08:00")).isEqualTo(expected);
+        assertThat(TimeDecoder.decode("2020/09/04 09:31")).isEqualTo(expected);
+        assertThat(TimeDecoder.decode("2020-09-04"))
+                .isEqualTo(TimeDecoder.fromLocalDateTime(LocalDate.of(2020, 9, 4).atStartOfDay()));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThat(TimeDecoder.decode("")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode((String) null)).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2020-13-04 09:31:00")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2020-02-31")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2020-04-31 09:31:00")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2019-02-29")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("1900-02-29")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2020-02-29")).isEqualTo(TimeDecoder.decode("2020-03-01") - TimeDecoder.MILLIS_PER_DAY);
+        assertThat(TimeDecoder.decode("2000-02-29")).isNotEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("2020-09-04 25:31:00")).isEqualTo(TimeDecoder.INVALID);
+        assertThat(TimeDecoder.decode("created_at")).isEqualTo(TimeDecoder.INVALID);
+    }
+
+    @Test
+    public void testMatchesJavaTime() {
+        LocalDateTime time = LocalDateTime.of(1969, 2, 28, 23, 59, 59);
+        for (int i = 0; i < 30_000; i++) {
+            String text = time.toLocalDate() + " " + time.toLocalTime();
+            long millis = TimeDecoder.decode(text.length() == 16 ? text + ":00" : text);
+            assertThat(TimeDecoder.toLocalDateTime(millis)).isEqualTo(time);
+            time = time.plusHours(7).plusSeconds(13);
+        }
+    }
+}